@@ -0,0 +1,71 @@
+package Counters;
+
+/**
+ * <h3><b>Buffered Counter</b></h3>
+ * <p>
+ * Even a {@link StripedCounter} pays for one atomic instruction per update. This counter goes one step further:
+ * each thread adds into a plain field of its own ({@code ThreadLocal}) and only pushes the accumulated amount into a
+ * shared {@link StripedCounter} once every {@code flushEvery} updates.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Staleness:</b> {@code sum()} only sees flushed amounts. Each live thread may be holding back up to
+ *         {@code flushEvery - 1} updates, so the result can lag by at most {@code threads * (flushEvery - 1)}.</li>
+ *     <li><b>{@code flush()}:</b> Pushes the calling thread's buffer immediately. A thread should call it before it finishes
+ *         (e.g. in a {@code finally} block), otherwise its last unflushed updates are lost with the thread.</li>
+ *     <li><b>Best for:</b> very hot counters where an approximate live value is fine and an exact value is needed only after
+ *         the workers are done.</li>
+ * </ul>
+ */
+public class BufferedCounter implements ConcurrentCounter {
+    private final StripedCounter shared;
+    private final int flushEvery;
+    private final ThreadLocal<Buffer> buffer = ThreadLocal.withInitial(Buffer::new);
+
+    public BufferedCounter(int flushEvery) {
+        this(flushEvery, new StripedCounter());
+    }
+
+    public BufferedCounter(int flushEvery, StripedCounter shared) {
+        if (flushEvery <= 0) {
+            throw new IllegalArgumentException("flushEvery must be positive: " + flushEvery);
+        }
+        this.flushEvery = flushEvery;
+        this.shared = shared;
+    }
+
+    @Override
+    public void add(long x) {
+        Buffer b = buffer.get();
+        b.pending += x;
+        if (++b.updates >= flushEvery) {
+            shared.add(b.pending);
+            b.pending = 0;
+            b.updates = 0;
+        }
+    }
+
+    public void flush() {
+        Buffer b = buffer.get();
+        if (b.updates != 0) {
+            shared.add(b.pending);
+            b.pending = 0;
+            b.updates = 0;
+        }
+    }
+
+    @Override
+    public long sum() {
+        return shared.sum();
+    }
+
+    @Override
+    public long sumThenReset() {
+        return shared.sumThenReset();
+    }
+
+    private static final class Buffer {
+        long pending;
+        int updates;
+    }
+}
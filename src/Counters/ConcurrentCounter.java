@@ -0,0 +1,33 @@
+package Counters;
+
+/**
+ * <h3><b>Concurrent Counter</b></h3>
+ * <p>
+ * Common surface for the counters in this package. It keeps the {@code increment()}/{@code get()} shape of
+ * {@code Locks.Counter} and {@code AtomicExample}, and adds a snapshot API on top of it.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@code increment()} / {@code add(long)}:</b> Record an update. Never blocks.</li>
+ *     <li><b>{@code sum()}:</b> Returns the current total. It is <i>not</i> an atomic snapshot: updates that happen
+ *         while the cells are being summed may or may not be included.</li>
+ *     <li><b>{@code sumThenReset()}:</b> Returns the total and sets the counter back to zero. Every update is counted
+ *         exactly once, either in this call's result or in a later one.</li>
+ * </ul>
+ */
+public interface ConcurrentCounter {
+
+    void add(long x);
+
+    long sum();
+
+    long sumThenReset();
+
+    default void increment() {
+        add(1);
+    }
+
+    default long get() {
+        return sum();
+    }
+}
@@ -0,0 +1,433 @@
+package Counters;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * <h3><b>String Counter Map</b></h3>
+ * <p>
+ * {@code AtomicExample} counts one thing. Counting per account or per endpoint, millions of keys, usually ends up as
+ * {@code ConcurrentHashMap<String, AtomicLong>}: per entry a map node (32 bytes), an {@code AtomicLong} (24 bytes) and a table slot,
+ * spread over two objects the garbage collector has to trace, and two pointer hops on every update.
+ * </p>
+ * <p>
+ * This map keeps keys and values in two parallel arrays with open addressing (linear probing): per slot one key reference and one
+ * {@code long}, 12 bytes with compressed oops. Nothing but the key itself is allocated per entry, and an update of an existing key
+ * is a hash, a probe, and a CAS on the value.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Updates:</b> a new key is inserted with a CAS on an empty key slot; a key slot, once taken, never changes. Values are
+ *         changed with a CAS. Nothing is locked.</li>
+ *     <li><b>Reads:</b> {@code get} only reads. It never waits and never helps with a resize.</li>
+ *     <li><b>Incremental resize:</b> above half full, a table twice the size is created and the old one is moved over in chunks of
+ *         {@value #CHUNK} slots. Every update that comes by moves one chunk before doing its own work, so no thread copies the whole
+ *         table at once, and updates keep going meanwhile. A moved value is <i>frozen</i> in the old table (a flag bit), so late
+ *         updates notice and go to the new table. A key that is looked up in the new table before its chunk is moved is moved right
+ *         there, by whoever needs it.</li>
+ *     <li><b>{@code forEach} / {@code topK}:</b> weakly consistent, like {@code ConcurrentHashMap}'s iterators: every key inserted
+ *         before the call is seen once, with a value it had at some point during the call. They help a running resize finish
+ *         first, so the keys are in one table.</li>
+ * </ul>
+ * <p>
+ * The two lowest bits of every value slot are flags (has a value, frozen), so values are 62 bits: they wrap around at
+ * &plusmn;2<sup>61</sup> instead of {@code Long.MAX_VALUE}. Keys can't be removed. The table grows, and stays grown.
+ * </p>
+ */
+public class StringCounterMap {
+    private static final int CHUNK = 256;
+    private static final int MIN_CAPACITY = 64;
+    private static final long LIVE = 2;                 // the slot has a value; unset means the key is there but its value isn't yet
+    private static final long FROZEN = 1;               // moved to the next table, don't change it here any more
+    private static final long ABSENT = 0;
+    private static final long FROZEN_ABSENT = FROZEN;
+    private static final int NOT_FOUND = -1;
+    private static final int HIT_MOVED = -2;
+    private static final Object MOVED = new Object();   // an empty key slot closed by a resize
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(Object[].class);
+    private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            NEXT = MethodHandles.lookup().findVarHandle(Table.class, "next", Table.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final LongAdder size = new LongAdder();
+    private volatile Table table;
+
+    public record Entry(String key, long value) {
+    }
+
+    private static final class Table {
+        final Object[] keys;
+        final long[] values;
+        final int mask;
+        final int threshold;
+        final LongAdder used = new LongAdder();                 // key slots taken
+        final AtomicInteger transferIndex = new AtomicInteger(); // next chunk to move to next
+        final AtomicInteger transferred = new AtomicInteger();  // slots moved to next
+        volatile Table next;        // set once, when this table starts to be moved
+        volatile Table prev;        // the table being moved into this one; null once it is done
+
+        Table(int capacity, Table prev) {
+            this.keys = new Object[capacity];
+            this.values = new long[capacity];
+            this.mask = capacity - 1;
+            this.threshold = capacity / 2;
+            this.prev = prev;
+        }
+    }
+
+    public StringCounterMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedKeys how many keys to make room for up front, so that many can be inserted without a resize
+     */
+    public StringCounterMap(int expectedKeys) {
+        if (expectedKeys < 0) {
+            throw new IllegalArgumentException("expectedKeys must not be negative: " + expectedKeys);
+        }
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedKeys * 2 - 1)) << 1);
+        this.table = new Table(capacity, null);
+    }
+
+    /**
+     * Number of keys.
+     */
+    public long size() {
+        return size.sum();
+    }
+
+    /**
+     * Slots of the current table, for the memory-per-entry figure: 12 bytes each with compressed oops.
+     */
+    public int capacity() {
+        return table.mask + 1;
+    }
+
+    public long increment(String key) {
+        return addAndGet(key, 1);
+    }
+
+    /**
+     * Adds {@code delta} to the value of {@code key}, inserting it with 0 first if it isn't there, and returns the new value.
+     */
+    public long addAndGet(String key, long delta) {
+        Objects.requireNonNull(key);
+        int hash = spread(key.hashCode());
+        Table t = table;
+        Table prev = t.prev;
+        if (prev != null) {
+            transferChunk(prev, t);         // every update moves a chunk while a resize is running
+        }
+        outer:
+        while (true) {
+            int mask = t.mask;
+            int i = hash & mask;
+            boolean inserted = false;
+            for (int probes = 0; ; probes++) {
+                Object k = KEYS.getAcquire(t.keys, i);
+                if (k == null) {
+                    if (KEYS.compareAndSet(t.keys, i, null, key)) {
+                        t.used.increment();
+                        inserted = true;
+                        break;
+                    }
+                    k = KEYS.getAcquire(t.keys, i);
+                }
+                if (k == MOVED) {
+                    t = t.next;
+                    continue outer;
+                }
+                if (matches(k, key)) {
+                    break;
+                }
+                if (probes == mask) {       // full, only possible while updates outrun the resize check
+                    t = resize(t);
+                    continue outer;
+                }
+                i = (i + 1) & mask;
+            }
+            while (true) {
+                long raw = (long) VALUES.getVolatile(t.values, i);
+                if ((raw & FROZEN) != 0) {
+                    t = t.next;
+                    continue outer;
+                }
+                if (raw == ABSENT) {
+                    Table moving = t.prev;
+                    long previous = moving == null ? ABSENT : freezeInPrevious(moving, key, hash);
+                    if (previous != ABSENT) {
+                        VALUES.compareAndSet(t.values, i, ABSENT, previous & ~FROZEN);     // move it over, then add below
+                        continue;
+                    }
+                    long created = LIVE | (delta << 2);
+                    if (VALUES.compareAndSet(t.values, i, ABSENT, created)) {
+                        size.increment();
+                        checkLoad(t);
+                        return created >> 2;
+                    }
+                    continue;
+                }
+                long updated = raw + (delta << 2);
+                if (VALUES.compareAndSet(t.values, i, raw, updated)) {
+                    if (inserted) {
+                        checkLoad(t);
+                    }
+                    return updated >> 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * The value of {@code key}, 0 if it isn't there. Never writes.
+     */
+    public long get(String key) {
+        Objects.requireNonNull(key);
+        int hash = spread(key.hashCode());
+        Table t = table;
+        while (true) {
+            Table prev = t.prev;            // before the find: once the transfer is done it is cleared, and t has every key
+            int i = find(t, key, hash);
+            long raw = i >= 0 ? (long) VALUES.getVolatile(t.values, i) : ABSENT;
+            if (i == HIT_MOVED || (raw & FROZEN) != 0) {
+                t = t.next;                 // the table was moved while we looked
+                continue;
+            }
+            if (raw == ABSENT) {
+                if (prev != null) {         // maybe not moved over yet
+                    int j = find(prev, key, hash);
+                    return j >= 0 ? (long) VALUES.getVolatile(prev.values, j) >> 2 : 0;
+                }
+                return 0;
+            }
+            return raw >> 2;
+        }
+    }
+
+    /**
+     * Passes every key with its value to {@code action}; see the class comment for consistency.
+     */
+    public void forEach(ObjLongConsumer<String> action) {
+        Table t = table;
+        finishTransfer(t);
+        for (int i = 0; i <= t.mask; i++) {
+            Object k = KEYS.getAcquire(t.keys, i);
+            if (k == null || k == MOVED) {
+                continue;
+            }
+            long raw = (long) VALUES.getVolatile(t.values, i);
+            if ((raw & LIVE) != 0) {        // not absent: that key is still being inserted
+                action.accept((String) k, raw >> 2);
+            }
+        }
+    }
+
+    public List<Entry> snapshot() {
+        List<Entry> entries = new ArrayList<>();
+        forEach((key, value) -> entries.add(new Entry(key, value)));
+        return entries;
+    }
+
+    /**
+     * The {@code k} keys with the highest values, highest first. Keeps a heap of {@code k} entries, so it allocates only for keys
+     * that make it into the heap at the time they are seen.
+     */
+    public List<Entry> topK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Math.max(1, k), Comparator.comparingLong(Entry::value));
+        if (k > 0) {
+            forEach((key, value) -> {
+                if (heap.size() < k) {
+                    heap.add(new Entry(key, value));
+                } else if (value > heap.peek().value()) {
+                    heap.poll();
+                    heap.add(new Entry(key, value));
+                }
+            });
+        }
+        List<Entry> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingLong(Entry::value).reversed());
+        return top;
+    }
+
+    private void checkLoad(Table t) {
+        if (t.used.sum() > t.threshold && t.next == null) {
+            resize(t);
+        }
+    }
+
+    /**
+     * Starts moving {@code t} to a table twice the size, if nobody has yet, and returns the new table.
+     */
+    private Table resize(Table t) {
+        finishTransfer(t);          // one resize at a time: the previous one must be done
+        Table next = t.next;
+        if (next == null) {
+            Table created = new Table((t.mask + 1) * 2, t);
+            if (NEXT.compareAndSet(t, null, created)) {
+                table = created;
+            }
+            next = t.next;
+        }
+        return next;
+    }
+
+    /**
+     * Helps until the table moving into {@code t} is completely moved.
+     */
+    private static void finishTransfer(Table t) {
+        Table prev;
+        while ((prev = t.prev) != null) {
+            if (!transferChunk(prev, t)) {
+                Thread.yield();     // all chunks are taken, others are still copying theirs
+            }
+        }
+    }
+
+    /**
+     * Moves the next chunk of {@code from} into {@code to}; false if there are no chunks left to take.
+     */
+    private static boolean transferChunk(Table from, Table to) {
+        int capacity = from.mask + 1;
+        int start = from.transferIndex.getAndAdd(CHUNK);
+        if (start >= capacity) {
+            return false;
+        }
+        int end = Math.min(start + CHUNK, capacity);
+        for (int i = start; i < end; i++) {
+            transferSlot(from, i, to);
+        }
+        if (from.transferred.addAndGet(end - start) == capacity) {
+            to.prev = null;
+        }
+        return true;
+    }
+
+    private static void transferSlot(Table from, int i, Table to) {
+        Object k = KEYS.getAcquire(from.keys, i);
+        if (k == null) {
+            if (KEYS.compareAndSet(from.keys, i, null, MOVED)) {
+                return;
+            }
+            k = KEYS.getAcquire(from.keys, i);
+        }
+        if (k == MOVED) {
+            return;
+        }
+        long raw = freeze(from, i);
+        if (raw == FROZEN_ABSENT) {
+            return;         // inserted but never got a value; the inserting thread will retry in the new table
+        }
+        String key = (String) k;
+        int j = claim(to, key, spread(key.hashCode()));
+        VALUES.compareAndSet(to.values, j, ABSENT, raw & ~FROZEN);      // fails if someone else moved it first, with the same value
+    }
+
+    /**
+     * Finds {@code key} in the table being moved and freezes its value. Returns the frozen value, or {@code ABSENT} if the key isn't
+     * there; empty slots on the way are closed, so the key can't be inserted there any more either.
+     */
+    private static long freezeInPrevious(Table prev, String key, int hash) {
+        int mask = prev.mask;
+        int i = hash & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Object k = KEYS.getAcquire(prev.keys, i);
+            if (k == null) {
+                if (KEYS.compareAndSet(prev.keys, i, null, MOVED)) {
+                    return ABSENT;
+                }
+                k = KEYS.getAcquire(prev.keys, i);
+            }
+            if (k == MOVED) {
+                return ABSENT;
+            }
+            if (matches(k, key)) {
+                long raw = freeze(prev, i);
+                return raw == FROZEN_ABSENT ? ABSENT : raw;
+            }
+            i = (i + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    private static long freeze(Table t, int i) {
+        while (true) {
+            long raw = (long) VALUES.getVolatile(t.values, i);
+            if ((raw & FROZEN) != 0 || VALUES.compareAndSet(t.values, i, raw, raw | FROZEN)) {
+                return raw | FROZEN;
+            }
+        }
+    }
+
+    /**
+     * The slot of {@code key} in a table that isn't being moved, inserting the key if needed.
+     */
+    private static int claim(Table t, String key, int hash) {
+        int mask = t.mask;
+        int i = hash & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Object k = KEYS.getAcquire(t.keys, i);
+            if (k == null) {
+                if (KEYS.compareAndSet(t.keys, i, null, key)) {
+                    t.used.increment();
+                    return i;
+                }
+                k = KEYS.getAcquire(t.keys, i);
+            }
+            if (matches(k, key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        throw new IllegalStateException("no free slot while resizing to " + (mask + 1));
+    }
+
+    /**
+     * The slot of {@code key}, {@code NOT_FOUND}, or {@code HIT_MOVED} if a resize closed the slot where it would have been.
+     */
+    private static int find(Table t, String key, int hash) {
+        int mask = t.mask;
+        int i = hash & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            Object k = KEYS.getAcquire(t.keys, i);
+            if (k == null) {
+                return NOT_FOUND;
+            }
+            if (k == MOVED) {
+                return HIT_MOVED;
+            }
+            if (matches(k, key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    private static boolean matches(Object k, String key) {
+        return k == key || (k != MOVED && k.hashCode() == key.hashCode() && k.equals(key));
+    }
+
+    private static int spread(int h) {
+        h *= 0x9E3779B9;            // similar keys ("account-17", "account-18") have similar hash codes; spread them out
+        return h ^ (h >>> 16);
+    }
+}
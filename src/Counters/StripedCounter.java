@@ -0,0 +1,96 @@
+package Counters;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * <h3><b>Striped Counter</b></h3>
+ * <p>
+ * {@code Locks.Counter} makes every thread queue on one monitor, and {@code AtomicExample} makes every thread CAS the same
+ * cache line. Either way, adding cores only adds waiting: the line holding the count keeps bouncing between cores.
+ * </p>
+ *
+ * <p>
+ * This counter spreads the updates over a number of cells (stripes). Each thread hashes to one cell and only updates that cell,
+ * so threads on different cores mostly touch different cache lines. Reading the value means adding up all cells, which is
+ * more expensive than a single read — the trade-off is worth it when writes vastly outnumber reads (metrics, statistics).
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Padding:</b> The cells live in one {@code long[]}, {@value #PAD} longs (128 bytes) apart. That keeps each cell on
+ *         its own cache line, and also away from its neighbour's line, since some CPUs prefetch cache lines in pairs.
+ *         Without the gap, two cells sharing a line would suffer <b>false sharing</b>: logically independent, but still fighting over the line.</li>
+ *     <li><b>Probe:</b> Each thread keeps a probe value that picks its cell. If the CAS on that cell fails, another thread is using
+ *         the same cell, so the probe is rehashed and the thread moves to a different cell next time.</li>
+ * </ul>
+ */
+public class StripedCounter implements ConcurrentCounter {
+    private static final int PAD = 16;
+    private static final VarHandle CELLS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[]{seed()});
+
+    private final long[] cells;
+    private final int mask;
+
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public StripedCounter(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.cells = new long[(size + 1) * PAD];         // one extra slot of padding in front, so cell 0 doesn't share a line with the array header
+        this.mask = size - 1;
+    }
+
+    @Override
+    public void add(long x) {
+        int[] probe = PROBE.get();
+        int index = offset(probe[0]);
+        long current = (long) CELLS.getVolatile(cells, index);
+        if (!CELLS.weakCompareAndSet(cells, index, current, current + x)) {
+            probe[0] = rehash(probe[0]);        // somebody else is on this cell, move away for the next update
+            CELLS.getAndAdd(cells, index, x);
+        }
+    }
+
+    @Override
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += (long) CELLS.getVolatile(cells, offset(i));
+        }
+        return sum;
+    }
+
+    @Override
+    public long sumThenReset() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += (long) CELLS.getAndSet(cells, offset(i), 0L);
+        }
+        return sum;
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+
+    private int offset(int probe) {
+        return ((probe & mask) + 1) * PAD;
+    }
+
+    private static int seed() {
+        int h = (int) ((Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L) >>> 32);
+        return h == 0 ? 1 : h;
+    }
+
+    private static int rehash(int h) {
+        h ^= h << 13;       // xorshift, never returns 0 for a non zero input
+        h ^= h >>> 17;
+        h ^= h << 5;
+        return h;
+    }
+}
@@ -0,0 +1,152 @@
+package Counters;
+
+import Metrics.BenchmarkHarness;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * <h3><b>Counter Scaling Benchmark</b></h3>
+ * <p>
+ * Runs the same increment loop with 1, 2, 4 ... N threads against each counter and prints the total throughput.
+ * A counter that scales shows throughput growing with the thread count; a contended one stays flat or even drops.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>synchronized:</b> same as {@code Locks.Counter} — one monitor around {@code count++}.</li>
+ *     <li><b>AtomicInteger:</b> same as {@code AtomicExample} — {@code incrementAndGet()} on one shared atomic.</li>
+ *     <li><b>LongAdder:</b> the JDK's own striped counter, as a reference point.</li>
+ *     <li><b>Striped / Buffered:</b> the counters from this package.</li>
+ * </ul>
+ *
+ * <p>
+ * Usage: {@code java Counters.T0_CounterScalingBenchmark [maxThreads] [millisPerRun]}.
+ * The numbers are only meaningful on a machine with several cores; on a single core every counter serializes anyway.
+ * </p>
+ */
+public class T0_CounterScalingBenchmark {
+
+    // Locks.Counter and AtomicExample are not visible from this package, so these mirror them exactly.
+    static class SynchronizedCounter implements ConcurrentCounter {
+        private long count = 0;
+
+        @Override
+        public synchronized void add(long x) {
+            count += x;
+        }
+
+        @Override
+        public synchronized long sum() {
+            return count;
+        }
+
+        @Override
+        public synchronized long sumThenReset() {
+            long sum = count;
+            count = 0;
+            return sum;
+        }
+    }
+
+    static class AtomicIntegerCounter implements ConcurrentCounter {
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        @Override
+        public void increment() {
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public void add(long x) {
+            counter.addAndGet((int) x);
+        }
+
+        @Override
+        public long sum() {
+            return counter.get();
+        }
+
+        @Override
+        public long sumThenReset() {
+            return counter.getAndSet(0);
+        }
+    }
+
+    static class LongAdderCounter implements ConcurrentCounter {
+        private final LongAdder adder = new LongAdder();
+
+        @Override
+        public void add(long x) {
+            adder.add(x);
+        }
+
+        @Override
+        public long sum() {
+            return adder.sum();
+        }
+
+        @Override
+        public long sumThenReset() {
+            return adder.sumThenReset();
+        }
+    }
+
+    record Candidate(String name, Supplier<ConcurrentCounter> factory) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(2, cores * 2);
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+
+        List<Candidate> candidates = List.of(
+                new Candidate("synchronized", SynchronizedCounter::new),
+                new Candidate("AtomicInteger", AtomicIntegerCounter::new),
+                new Candidate("LongAdder", LongAdderCounter::new),
+                new Candidate("Striped", StripedCounter::new),
+                new Candidate("Buffered(256)", () -> new BufferedCounter(256)));
+
+        List<Integer> threadCounts = BenchmarkHarness.threadCounts(maxThreads);
+
+        System.out.println("Cores: " + cores + ", " + millis + " ms per run, throughput in million increments/s");
+        System.out.printf("%-15s", "threads");
+        for (int threads : threadCounts) {
+            System.out.printf("%10d", threads);
+        }
+        System.out.println();
+
+        for (Candidate candidate : candidates) {
+            run(candidate, 1, millis / 4);        // warm up so the JIT has compiled the loop before we measure
+            System.out.printf("%-15s", candidate.name());
+            for (int threads : threadCounts) {
+                System.out.printf("%10.1f", run(candidate, threads, millis));
+            }
+            System.out.println();
+        }
+    }
+
+    private static double run(Candidate candidate, int threads, long millis) throws InterruptedException {
+        ConcurrentCounter counter = candidate.factory().get();
+        BenchmarkHarness.Result result = BenchmarkHarness.run(threads, millis, (index, stop) -> {
+            long n = 0;
+            while (!stop.stopped()) {
+                for (int j = 0; j < 1000; j++) {        // check the flag once per 1000 increments so reading it doesn't dominate
+                    counter.increment();
+                }
+                n += 1000;
+            }
+            if (counter instanceof BufferedCounter buffered) {
+                buffered.flush();
+            }
+            return n;
+        });
+
+        long total = result.total();
+        if (counter.sum() != total) {
+            throw new IllegalStateException(candidate.name() + " lost updates: expected " + total + " but was " + counter.sum());
+        }
+        return result.throughput();
+    }
+}
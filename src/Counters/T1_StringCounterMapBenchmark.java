@@ -0,0 +1,179 @@
+package Counters;
+
+import Ledger.ZipfGenerator;
+import Metrics.BenchmarkHarness;
+import Metrics.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * <h3><b>String Counter Map Benchmark</b></h3>
+ * <p>Compares a {@link StringCounterMap} with {@code ConcurrentHashMap<String, AtomicLong>} on {@code keys} keys:</p>
+ *
+ * <ul>
+ *     <li><b>Memory:</b> heap used after inserting every key once, minus the keys themselves, per entry.</li>
+ *     <li><b>Growth:</b> the latency of each insert while the map grows from empty, single-threaded. The max shows whether a
+ *         resize stops the inserting thread for the whole copy.</li>
+ *     <li><b>Throughput:</b> increments from 1, 2, 4 ... N threads with Zipf-distributed keys (theta 0.99: a few hot keys, a long
+ *         tail), in million increments per second. The sum of all counters is checked against the number of increments.</li>
+ *     <li><b>Top 5:</b> the hottest keys after the last run, and how long {@code topK} took.</li>
+ * </ul>
+ * <p>
+ * Usage: {@code java Counters.T1_StringCounterMapBenchmark [keys] [maxThreads] [millisPerRun]}.
+ * The memory figures hold on any machine; the scaling only means something on several cores.
+ * </p>
+ */
+public class T1_StringCounterMapBenchmark {
+
+    interface Counts {
+        void increment(String key);
+
+        long sum();
+    }
+
+    record Candidate(String name, Supplier<Counts> factory) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(4, cores);
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        String[] keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "account-" + i;
+            keys[i].hashCode();         // cached in the String, so neither map pays for it in the measurements
+        }
+
+        System.out.println("Keys: " + keyCount + ", cores: " + cores);
+        System.out.printf("%-40s%14s%16s%16s%n", "memory", "bytes/entry", "insert p99.9 us", "insert max us");
+        ConcurrentHashMap<String, AtomicLong> chm = new ConcurrentHashMap<>();
+        report("ConcurrentHashMap<String, AtomicLong>", keyCount, chm, key -> chm.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet(), keys);
+        StringCounterMap map = new StringCounterMap();
+        report("StringCounterMap", keyCount, map, map::increment, keys);
+        System.out.printf("StringCounterMap: %,d slots for %,d keys, %.1f bytes/entry in its arrays%n%n", map.capacity(), map.size(),
+                map.capacity() * 12.0 / map.size());
+
+        List<Candidate> candidates = List.of(
+                new Candidate("ConcurrentHashMap<String, AtomicLong>", () -> {
+                    ConcurrentHashMap<String, AtomicLong> counts = new ConcurrentHashMap<>();
+                    return new Counts() {
+                        @Override
+                        public void increment(String key) {
+                            AtomicLong counter = counts.get(key);
+                            if (counter == null) {
+                                counter = counts.computeIfAbsent(key, k -> new AtomicLong());
+                            }
+                            counter.incrementAndGet();
+                        }
+
+                        @Override
+                        public long sum() {
+                            return counts.values().stream().mapToLong(AtomicLong::get).sum();
+                        }
+                    };
+                }),
+                new Candidate("StringCounterMap", () -> {
+                    StringCounterMap counts = new StringCounterMap();
+                    return new Counts() {
+                        @Override
+                        public void increment(String key) {
+                            counts.increment(key);
+                        }
+
+                        @Override
+                        public long sum() {
+                            long[] sum = new long[1];
+                            counts.forEach((key, value) -> sum[0] += value);
+                            return sum[0];
+                        }
+                    };
+                }));
+
+        List<Integer> threadCounts = BenchmarkHarness.threadCounts(maxThreads);
+
+        int[][] picks = new int[maxThreads][];
+        ZipfGenerator zipf = new ZipfGenerator(keyCount, 0.99);
+        for (int t = 0; t < maxThreads; t++) {
+            picks[t] = new int[1 << 20];        // generated up front, so the generator isn't measured
+            for (int i = 0; i < picks[t].length; i++) {
+                picks[t][i] = zipf.next();
+            }
+        }
+
+        System.out.println(millis + " ms per run, throughput in million increments/s");
+        System.out.printf("%-38s", "threads");
+        for (int threads : threadCounts) {
+            System.out.printf("%10d", threads);
+        }
+        System.out.println();
+        for (Candidate candidate : candidates) {
+            run(candidate, keys, picks, 1, millis / 4);        // warm up so the JIT has compiled the loop before we measure
+            System.out.printf("%-38s", candidate.name());
+            for (int threads : threadCounts) {
+                System.out.printf("%10.1f", run(candidate, keys, picks, threads, millis));
+            }
+            System.out.println();
+        }
+
+        StringCounterMap zipfCounts = new StringCounterMap();
+        for (int pick : picks[0]) {
+            zipfCounts.increment(keys[pick]);
+        }
+        long start = System.nanoTime();
+        List<StringCounterMap.Entry> top = zipfCounts.topK(5);
+        System.out.printf("%ntop 5 of %,d keys in %.1f ms: %s%n", zipfCounts.size(), (System.nanoTime() - start) / 1e6, top);
+    }
+
+    private static void report(String name, int keyCount, Object map, Consumer<String> insert, String[] keys) {
+        long before = usedHeap();
+        LatencyHistogram latency = new LatencyHistogram();
+        for (String key : keys) {
+            long begin = System.nanoTime();
+            insert.accept(key);
+            latency.record(System.nanoTime() - begin);
+        }
+        long after = usedHeap();
+        Reference.reachabilityFence(map);       // not collected before the heap was measured
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        System.out.printf("%-40s%14.1f%16.1f%16.0f%n", name, (after - before) / (double) keyCount,
+                snapshot.percentile(99.9) / 1e3, snapshot.max() / 1e3);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static double run(Candidate candidate, String[] keys, int[][] picks, int threads, long millis) throws InterruptedException {
+        Counts counts = candidate.factory().get();
+        BenchmarkHarness.Result result = BenchmarkHarness.run(threads, millis, (index, stop) -> {
+            int[] mine = picks[index];
+            int position = 0;
+            long n = 0;
+            while (!stop.stopped()) {
+                for (int j = 0; j < 1000; j++) {        // check the flag once per 1000 increments so reading it doesn't dominate
+                    counts.increment(keys[mine[position]]);
+                    position = (position + 1) & (mine.length - 1);
+                }
+                n += 1000;
+            }
+            return n;
+        });
+
+        long total = result.total();
+        if (counts.sum() != total) {
+            throw new IllegalStateException(candidate.name() + " lost updates: expected " + total + " but was " + counts.sum());
+        }
+        return result.throughput();
+    }
+}
@@ -0,0 +1,183 @@
+package ExecutorFramework;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h3><b>Adaptive Thread Pool</b></h3>
+ * <p>
+ * {@link T0_ExecutorFramework} uses 10 threads, {@link T1_InvokeAndInvokeAll} 2 and {@link T3_CompletableFutureExample} 3. The right
+ * number depends on the tasks: a thread that is blocked (sleeping, waiting for I/O or a lock) doesn't use its core, so the more time
+ * tasks spend blocked, the more threads it takes to keep the cores busy. With {@code W} the time a task waits and {@code C} the time
+ * it computes, Little's law gives {@code threads = cores * (1 + W / C)}.
+ * </p>
+ * <p>
+ * This pool measures {@code W / C} instead of guessing it. Every task's wall time and CPU time
+ * ({@code ThreadMXBean.getCurrentThreadCpuTime}) are recorded around {@code beforeExecute}/{@code afterExecute}, and a controller
+ * resizes the core pool once per interval.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Estimate:</b> {@code cores * (1 + W / C)}, with {@code W / C} smoothed over intervals, clamped to {@code [min, max]}.</li>
+ *     <li><b>Damping:</b> the pool moves only half of the way towards the estimate per interval, so one odd interval doesn't make
+ *         it jump.</li>
+ *     <li><b>Hill climbing:</b> the estimate assumes the cores are the only limit. If they aren't (a connection pool, a disk, a lock),
+ *         more threads don't help. So every growth step is checked: if throughput didn't rise by at least {@value #MIN_GAIN_PERCENT}%,
+ *         the pool goes back and remembers that size as a ceiling.</li>
+ *     <li><b>Busy cores:</b> once the tasks use (almost) all the CPU time there is, a thread also waits for a core, and that time
+ *         counts as {@code W} as well: with 20 threads on one core, purely computing tasks measure {@code W / C = 19}, which would
+ *         keep 20 threads forever. So with busy cores the pool ignores the estimate and tries fewer threads instead; if
+ *         throughput drops by more than {@value #MIN_GAIN_PERCENT}%, it goes back and remembers that size as a floor.</li>
+ *     <li><b>Forgetting:</b> floor and ceiling are dropped when {@code W / C} changes a lot, because that means the workload changed,
+ *         and every {@value #RETRY_INTERVALS} intervals anyway.</li>
+ *     <li><b>Demand:</b> with an empty queue and idle threads there is nothing to gain, so the pool doesn't grow.</li>
+ * </ul>
+ * <p>The queue is unbounded and the controller keeps {@code corePoolSize == maximumPoolSize}, so that is the number of threads.</p>
+ */
+public final class AdaptiveThreadPool extends ThreadPoolExecutor {
+    private static final int MIN_GAIN_PERCENT = 5;
+    private static final double SMOOTHING = 0.5;
+    private static final double CPU_SATURATED = 0.9;
+    private static final int RETRY_INTERVALS = 30;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int minThreads;
+    private final int maxThreads;
+    private final int cores = Runtime.getRuntime().availableProcessors();
+    private final long intervalNanos;
+    private final ScheduledExecutorService controller;
+    private final ThreadLocal<long[]> taskStart = ThreadLocal.withInitial(() -> new long[2]);
+    private final LongAdder wallNanos = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+
+    private volatile double waitComputeRatio = -1;     // written by the controller, read by waitComputeRatio()
+
+    // controller state, only touched by the controller thread
+    private double ratioAtBounds;
+    private int floor;
+    private int ceiling;
+    private int boundsAge;
+    private double lastThroughput;
+    private int lastStep;               // threads added (negative: removed) by the last resize
+    private long lastAdjust = System.nanoTime();
+    private volatile int target;
+
+    public AdaptiveThreadPool(int minThreads, int maxThreads, long interval, TimeUnit unit) {
+        super(minThreads, minThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("need 1 <= minThreads <= maxThreads");
+        }
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.floor = minThreads;
+        this.ceiling = maxThreads;
+        this.intervalNanos = unit.toNanos(interval);
+        this.target = minThreads;
+        if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+            throw new UnsupportedOperationException("thread CPU time is not supported by this JVM");
+        }
+        this.controller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "adaptive-pool-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        controller.scheduleWithFixedDelay(this::adjust, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The measured {@code W / C} (time blocked per unit of CPU time), smoothed; -1 before the first measurement.
+     */
+    public double waitComputeRatio() {
+        return waitComputeRatio;
+    }
+
+    /**
+     * The pool size the controller is currently aiming for.
+     */
+    public int targetSize() {
+        return target;
+    }
+
+    @Override
+    protected void beforeExecute(Thread thread, Runnable task) {
+        long[] start = taskStart.get();
+        start[0] = System.nanoTime();
+        start[1] = THREADS.getCurrentThreadCpuTime();
+    }
+
+    @Override
+    protected void afterExecute(Runnable task, Throwable error) {
+        long[] start = taskStart.get();
+        cpuNanos.add(THREADS.getCurrentThreadCpuTime() - start[1]);
+        wallNanos.add(System.nanoTime() - start[0]);
+        completed.increment();
+    }
+
+    @Override
+    protected void terminated() {
+        controller.shutdownNow();
+    }
+
+    private void adjust() {
+        long now = System.nanoTime();
+        long elapsed = now - lastAdjust;
+        lastAdjust = now;
+        long wall = wallNanos.sumThenReset();
+        long cpu = cpuNanos.sumThenReset();
+        long done = completed.sumThenReset();
+        if (done == 0) {
+            return;
+        }
+        double throughput = done * 1e9 / elapsed;
+        double ratio = Math.max(0, (double) (wall - cpu) / Math.max(cpu, 1));
+        waitComputeRatio = waitComputeRatio < 0 ? ratio : SMOOTHING * ratio + (1 - SMOOTHING) * waitComputeRatio;
+        boolean workloadChanged = Math.abs(waitComputeRatio - ratioAtBounds) > 0.5 * Math.max(ratioAtBounds, 1);
+        if (workloadChanged || ++boundsAge > RETRY_INTERVALS) {
+            floor = minThreads;         // the workload changed, or the bounds are old: explore again
+            ceiling = maxThreads;
+            boundsAge = 0;
+            ratioAtBounds = waitComputeRatio;
+        }
+
+        int size = getCorePoolSize();
+        boolean backlog = !getQueue().isEmpty();        // otherwise throughput is limited by the submitters, not by the pool
+        if (backlog && lastStep > 0 && throughput < lastThroughput * (1 + MIN_GAIN_PERCENT / 100.0)) {
+            ceiling = size - lastStep;      // growing didn't pay off: go back and stay there
+        }
+        if (backlog && lastStep < 0 && throughput < lastThroughput * (1 - MIN_GAIN_PERCENT / 100.0)) {
+            floor = size - lastStep;        // shrinking cost throughput: go back and stay there
+        }
+        lastThroughput = throughput;
+
+        int next;
+        if (backlog && cpu >= CPU_SATURATED * cores * elapsed) {
+            next = size - Math.max(1, size / 4);        // cores busy: the measured wait includes the run queue, try fewer threads
+        } else {
+            int estimate = (int) Math.round(cores * (1 + waitComputeRatio));
+            next = size + (int) Math.round(SMOOTHING * (estimate - size));
+            if (next == size && estimate != size) {
+                next += Integer.signum(estimate - size);        // always make progress while away from the estimate
+            }
+            if (next > size && !backlog && getActiveCount() < size) {
+                next = size;        // idle threads already, more won't help
+            }
+        }
+        next = Math.max(floor, Math.min(ceiling, next));
+        lastStep = next - size;
+        target = next;
+        if (next > size) {
+            setMaximumPoolSize(next);
+            setCorePoolSize(next);
+        } else if (next < size) {
+            setCorePoolSize(next);
+            setMaximumPoolSize(next);       // a thread above the maximum leaves after its task; above the core only once idle for long
+        }
+    }
+}
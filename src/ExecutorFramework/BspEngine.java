@@ -0,0 +1,190 @@
+package ExecutorFramework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h3><b>BSP Engine (bulk-synchronous parallel, on a Phaser)</b></h3>
+ * <p>
+ * {@link T5_CyclicBarrierExample} uses a barrier once. Iterative computations (a stencil on a grid, PageRank ...) need one per step:
+ * every cell of step {@code s + 1} is computed from the grid of step {@code s}, so no worker may start the next step before all
+ * of them have finished the current one. Each step is a <b>superstep</b>: compute, then barrier.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Double buffering:</b> workers read {@code current} and write {@code next}, two {@code double[]}s. Nobody writes what others
+ *         read, so a superstep needs no locks at all. The buffers are swapped once per step, at the barrier.</li>
+ *     <li><b>Partitioning:</b> the grid is cut into contiguous chunks of {@code chunkSize} cells, and in every step the workers claim
+ *         chunks with one {@code getAndIncrement}. Contiguous chunks keep the memory access sequential, and claiming them means nobody
+ *         owns a fixed slice, so workers can join and leave between steps.</li>
+ *     <li><b>{@code Phaser} instead of {@code CyclicBarrier}:</b> the number of parties can change. {@code addWorker()} registers a new
+ *         party and {@code removeWorker()} makes one {@code arriveAndDeregister()} after its current step. {@code onAdvance}, run by the
+ *         last party to arrive, swaps the buffers and ends the run after the last step, like a barrier action.</li>
+ *     <li><b>Tiering:</b> all parties of one {@code Phaser} arrive on the same counter, so with many threads that counter becomes
+ *         contended. Workers are spread over child phasers of at most {@code partiesPerPhaser} parties each, and only the last
+ *         arrival of each child arrives at the root, so it is a tree barrier.</li>
+ * </ul>
+ */
+public class BspEngine {
+    private final Kernel kernel;
+    private final int chunkSize;
+    private final int partiesPerPhaser;
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final AtomicInteger leaving = new AtomicInteger();      // workers asked to leave, not yet gone
+    private final AtomicInteger workers = new AtomicInteger();
+    private Phaser root;
+    private Phaser[] leaves;
+    private volatile double[] current;
+    private volatile double[] next;
+    private volatile int superstep;
+    private int supersteps;
+    private int chunks;
+    private int workerIds;
+
+    /**
+     * Computes cells {@code [from, to)} of {@code next} from {@code current}. Must not write outside that range.
+     */
+    @FunctionalInterface
+    public interface Kernel {
+        void compute(double[] current, double[] next, int from, int to, int superstep);
+    }
+
+    public BspEngine(Kernel kernel, int chunkSize, int partiesPerPhaser) {
+        if (chunkSize < 1 || partiesPerPhaser < 1) {
+            throw new IllegalArgumentException("chunkSize and partiesPerPhaser must be positive");
+        }
+        this.kernel = kernel;
+        this.chunkSize = chunkSize;
+        this.partiesPerPhaser = partiesPerPhaser;
+    }
+
+    /**
+     * Runs {@code supersteps} steps on a copy of {@code grid} with {@code workers} threads and returns the final grid.
+     */
+    public double[] run(double[] grid, int supersteps, int workers) throws InterruptedException {
+        if (supersteps < 1 || workers < 1) {
+            throw new IllegalArgumentException("supersteps and workers must be positive");
+        }
+        synchronized (this) {
+            if (root != null && !root.isTerminated()) {
+                throw new IllegalStateException("already running");
+            }
+            this.current = grid.clone();
+            this.next = grid.clone();       // cells the kernel doesn't write (e.g. boundaries) keep their value
+            this.supersteps = supersteps;
+            this.superstep = 0;
+            this.chunks = (grid.length + chunkSize - 1) / chunkSize;
+            this.nextChunk.set(0);
+            this.leaving.set(0);
+            this.threads.clear();
+            this.root = new Phaser() {
+                @Override
+                protected boolean onAdvance(int phase, int registeredParties) {
+                    double[] swap = current;
+                    current = next;
+                    next = swap;
+                    nextChunk.set(0);
+                    superstep = phase + 1;
+                    return superstep >= BspEngine.this.supersteps || registeredParties == 0;
+                }
+            };
+            this.leaves = new Phaser[(workers + partiesPerPhaser - 1) / partiesPerPhaser];
+            for (int i = 0; i < leaves.length; i++) {
+                leaves[i] = new Phaser(root, 0);
+            }
+            for (int i = 0; i < workers; i++) {
+                addWorker();
+            }
+        }
+        for (int i = 0; ; i++) {
+            Thread thread;
+            synchronized (this) {
+                if (i == threads.size()) {
+                    break;
+                }
+                thread = threads.get(i);
+            }
+            thread.join();      // threads added while we wait are joined too
+        }
+        return current;
+    }
+
+    /**
+     * Adds a worker to the running computation. It helps with the current step and stays until the end or {@code removeWorker()}.
+     * Returns {@code false} if nothing is running.
+     */
+    public synchronized boolean addWorker() {
+        if (root == null || root.isTerminated()) {
+            return false;
+        }
+        int id = workerIds++;
+        Phaser leaf = leaves[id % leaves.length];
+        if (leaf.register() < 0) {
+            return false;
+        }
+        workers.incrementAndGet();
+        Thread thread = new Thread(() -> work(leaf), "bsp-worker-" + id);
+        threads.add(thread);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Makes one worker leave after its current step. The last worker can't leave; returns {@code false} in that case.
+     */
+    public boolean removeWorker() {
+        int current;
+        do {
+            current = leaving.get();
+            if (workers.get() - current <= 1) {
+                return false;
+            }
+        } while (!leaving.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public int workers() {
+        return workers.get();
+    }
+
+    /**
+     * The number of completed supersteps.
+     */
+    public int superstep() {
+        return superstep;
+    }
+
+    private void work(Phaser leaf) {
+        while (true) {
+            double[] from = current;
+            double[] to = next;
+            int step = superstep;
+            for (int chunk = nextChunk.getAndIncrement(); chunk < chunks; chunk = nextChunk.getAndIncrement()) {
+                int start = chunk * chunkSize;
+                kernel.compute(from, to, start, Math.min(start + chunkSize, from.length), step);
+            }
+            if (tryLeave()) {
+                workers.decrementAndGet();
+                leaf.arriveAndDeregister();
+                return;
+            }
+            if (leaf.arriveAndAwaitAdvance() < 0) {
+                return;     // terminated after the last superstep
+            }
+        }
+    }
+
+    private boolean tryLeave() {
+        int current;
+        do {
+            current = leaving.get();
+            if (current == 0) {
+                return false;
+            }
+        } while (!leaving.compareAndSet(current, current - 1));
+        return true;
+    }
+}
@@ -0,0 +1,189 @@
+package ExecutorFramework;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * <h3><b>Completion Batch (streaming invokeAll)</b></h3>
+ * <p>
+ * {@code invokeAll} (see {@link T1_InvokeAndInvokeAll}) returns only when the <i>slowest</i> task is done, and its futures are in
+ * submission order. A batch hands out every task as soon as it finishes, in <b>completion order</b>, so the fast results can be used
+ * while the slow ones are still running. It is built on {@code ExecutorCompletionService}, which puts each future into a queue the
+ * moment its task completes.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@code next()}:</b> blocks until the next task completes and returns its (done) future, or {@code null} when all tasks
+ *         have been returned or the deadline has passed.</li>
+ *     <li><b>{@code successes()}:</b> a lazy {@code Stream} of the successful results in completion order; failed tasks are skipped.
+ *         Closing the stream cancels whatever is still running, so use it in try-with-resources, e.g. with {@code limit(k)}.</li>
+ *     <li><b>{@code firstSuccesses(k)}</b> and <b>{@code firstMatching(predicate)}:</b> stop as soon as they have their answer and
+ *         cancel (interrupt) the tasks that are still running.</li>
+ *     <li><b>Deadline:</b> the whole batch has one deadline. Once it passes, the remaining tasks are cancelled and the batch ends;
+ *         {@code timedOut()} tells whether that happened.</li>
+ *     <li><b>Threads:</b> the results are meant to be consumed by one thread. {@code cancelRemaining()} and {@code close()} may be
+ *         called from any thread.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * try (CompletionBatch<Integer> batch = CompletionBatch.submit(executorService, callables, 1, TimeUnit.SECONDS)) {
+ *     List<Integer> fastest = batch.firstSuccesses(3);
+ * }}</pre>
+ */
+public class CompletionBatch<T> implements AutoCloseable {
+    private final ExecutorCompletionService<T> completionService;
+    private final List<Future<T>> futures;
+    private final long deadline;
+    private volatile int remaining;
+    private volatile boolean timedOut;
+
+    private CompletionBatch(ExecutorService executor, Collection<? extends Callable<T>> tasks, long deadline) {
+        this.completionService = new ExecutorCompletionService<>(executor);
+        this.futures = new ArrayList<>(tasks.size());
+        this.deadline = deadline;
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(completionService.submit(task));
+            }
+        } catch (RuntimeException e) {
+            cancelRemaining();      // e.g. RejectedExecutionException, don't leave half a batch running
+            throw e;
+        }
+        this.remaining = futures.size();
+    }
+
+    /**
+     * Submits all tasks to {@code executor}. The batch ends after {@code timeout}, counted from now.
+     */
+    public static <T> CompletionBatch<T> submit(ExecutorService executor, Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) {
+        long nanos = unit.toNanos(timeout);
+        long deadline = nanos >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : System.nanoTime() + nanos;
+        return new CompletionBatch<>(executor, tasks, deadline);
+    }
+
+    /**
+     * Submits all tasks to {@code executor} without a deadline.
+     */
+    public static <T> CompletionBatch<T> submit(ExecutorService executor, Collection<? extends Callable<T>> tasks) {
+        return new CompletionBatch<>(executor, tasks, Long.MAX_VALUE);
+    }
+
+    /**
+     * The next completed task, or {@code null} if there are none left or the deadline has passed.
+     */
+    public Future<T> next() throws InterruptedException {
+        while (remaining > 0 && !timedOut) {
+            Future<T> future;
+            if (deadline == Long.MAX_VALUE) {
+                future = completionService.take();
+            } else {
+                future = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    timedOut = true;
+                    cancelRemaining();
+                    return null;
+                }
+            }
+            remaining--;                                       // every future is queued exactly once, cancelled ones too
+            if (!future.isCancelled()) {                       // cancelRemaining() raced with take(): skip it
+                return future;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Successful results in completion order. The stream ends when all tasks are done, the deadline passes, or the calling thread
+     * is interrupted (the interrupt flag stays set).
+     */
+    public Stream<T> successes() {
+        Iterator<T> iterator = new Iterator<>() {
+            private T next;
+            private boolean ready;
+
+            @Override
+            public boolean hasNext() {
+                while (!ready) {
+                    Future<T> future;
+                    try {
+                        future = CompletionBatch.this.next();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancelRemaining();
+                        return false;
+                    }
+                    if (future == null) {
+                        return false;
+                    }
+                    if (future.state() == Future.State.SUCCESS) {
+                        next = future.resultNow();
+                        ready = true;
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return next;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(this::cancelRemaining);
+    }
+
+    /**
+     * The first {@code k} successful results, or fewer if the batch ends first. Cancels the rest.
+     */
+    public List<T> firstSuccesses(int k) {
+        try (Stream<T> results = successes()) {
+            return results.limit(k).toList();
+        }
+    }
+
+    /**
+     * The first successful result that matches {@code predicate}, if any completes before the batch ends. Cancels the rest.
+     */
+    public Optional<T> firstMatching(Predicate<? super T> predicate) {
+        try (Stream<T> results = successes()) {
+            return results.filter(predicate).findFirst();
+        }
+    }
+
+    /**
+     * Cancels (interrupts) all tasks that haven't completed yet. They never show up in {@code next()}.
+     */
+    public void cancelRemaining() {
+        for (Future<T> future : futures) {
+            future.cancel(true);
+        }
+        remaining = 0;
+    }
+
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    @Override
+    public void close() {
+        cancelRemaining();
+    }
+}
@@ -0,0 +1,40 @@
+package ExecutorFramework;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <h3><b>Execution Mode</b></h3>
+ * <p>One place to choose how submitted tasks get a thread.</p>
+ *
+ * <ul>
+ *     <li><b>{@code FIXED_POOL}:</b> {@code Executors.newFixedThreadPool(n)}, as in {@link T0_ExecutorFramework}. At most {@code n} tasks
+ *         run at once; the rest wait in the queue. Right for CPU-bound work, where more threads than cores only adds switching.</li>
+ *     <li><b>{@code CACHED_POOL}:</b> {@code Executors.newCachedThreadPool()}. Starts a new platform thread whenever no idle one is
+ *         available. Every platform thread is an OS thread with its own stack (around 1 MB reserved), so thousands of blocked
+ *         tasks mean thousands of OS threads.</li>
+ *     <li><b>{@code VIRTUAL_PER_TASK}:</b> {@code Executors.newVirtualThreadPerTaskExecutor()} (Java 21). Every task gets its own
+ *         virtual thread. A virtual thread that blocks in {@code sleep}, I/O or a {@code java.util.concurrent} lock is unmounted from
+ *         its carrier (platform) thread, which moves on to another virtual thread. A million blocked tasks cost a million small heap
+ *         objects instead of a million OS threads. The pool size is ignored.</li>
+ * </ul>
+ *
+ * <p>
+ * <b>Pinning:</b> a virtual thread that blocks while inside a {@code synchronized} block (like {@code Locks.T2_BankAccount} sleeping
+ * in {@code withdraw}) can't be unmounted in Java 21 and keeps its carrier busy. Use a {@code ReentrantLock} in such code, and see
+ * {@link PinningMonitor} to find it.
+ * </p>
+ */
+public enum ExecutionMode {
+    FIXED_POOL,
+    CACHED_POOL,
+    VIRTUAL_PER_TASK;
+
+    public ExecutorService newExecutor(int poolSize) {
+        return switch (this) {
+            case FIXED_POOL -> Executors.newFixedThreadPool(poolSize);
+            case CACHED_POOL -> Executors.newCachedThreadPool();
+            case VIRTUAL_PER_TASK -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+    }
+}
@@ -0,0 +1,274 @@
+package ExecutorFramework;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <h3><b>Hedged Executor</b></h3>
+ * <p>
+ * {@code invokeAny} (see {@link T1_InvokeAndInvokeAll}) starts every callable at once, so asking two replicas doubles the load just to
+ * cut the rare slow response. A <b>hedged request</b> starts only the primary. If it hasn't answered after a delay that most calls
+ * beat (e.g. the p95 of recent calls), a backup is started, and whichever answers first wins. The loser is cancelled.
+ * Only the ~5% slowest calls get a backup, yet the long tail mostly disappears, because two independent slow responses are rare.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Adaptive delay:</b> each task type keeps the latencies of its last {@value #WINDOW} successful calls, and the hedge delay
+ *         is the configured percentile of them. A latency is measured from {@code submit} to the result, whichever attempt
+ *         delivered it: a call rescued by its backup counts with the time it took the caller, never less than the hedge delay,
+ *         not with the backup's short run time, which would pull the delay down and make every later call hedge sooner.
+ *         The delay is recomputed every {@value #RECOMPUTE_EVERY} calls. Until a type has {@value #MIN_SAMPLES} samples there is
+ *         no estimate, and its calls are not hedged.</li>
+ *     <li><b>Rejection:</b> if the executor rejects the primary, the returned future fails with the
+ *         {@code RejectedExecutionException}. A rejected backup counts as a failed attempt.</li>
+ *     <li><b>Budget:</b> every request earns {@code maxHedgeFraction} of a hedge, and starting a backup spends a whole one. So at most
+ *         that fraction of requests (plus a small burst) are hedged, even when the service slows down as a whole and every call is
+ *         late. That is exactly when extra load would hurt most.</li>
+ *     <li><b>Failures:</b> a request fails only when every attempt it started has failed. If the primary fails before the hedge delay,
+ *         the result waits for the backup.</li>
+ *     <li><b>Idempotence:</b> the same callable may run twice, so it must be safe to repeat, like a read.</li>
+ * </ul>
+ */
+public class HedgedExecutor {
+    private static final int WINDOW = 1000;
+    private static final int RECOMPUTE_EVERY = 100;
+    private static final int MIN_SAMPLES = 20;
+    private static final long ONE_HEDGE = 1_000_000;        // the budget is kept in millionths of a hedge
+    private static final long MAX_BUDGET = 10 * ONE_HEDGE;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final double percentile;
+    private final long earnedPerRequest;
+    private final ConcurrentHashMap<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+
+    /**
+     * @param executor         runs the attempts; it needs free threads for the backups, e.g. a virtual thread per task executor
+     * @param scheduler        only used to start backups after the delay
+     * @param percentile       hedge delay as a percentile of recent latencies, e.g. 95
+     * @param maxHedgeFraction at most this fraction of requests gets a backup, e.g. 0.05
+     */
+    public HedgedExecutor(ExecutorService executor, ScheduledExecutorService scheduler, double percentile, double maxHedgeFraction) {
+        if (percentile <= 0 || percentile > 100 || maxHedgeFraction < 0 || maxHedgeFraction > 1) {
+            throw new IllegalArgumentException("percentile must be in (0, 100], maxHedgeFraction in [0, 1]");
+        }
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.percentile = percentile;
+        this.earnedPerRequest = (long) (maxHedgeFraction * ONE_HEDGE);
+    }
+
+    /**
+     * Runs {@code task} and, if it is slow, a backup of it. {@code type} groups calls that have similar latencies,
+     * e.g. one per remote endpoint. Cancelling the returned future cancels all attempts.
+     */
+    public <T> CompletableFuture<T> submit(String type, Callable<T> task) {
+        requests.incrementAndGet();
+        earn();
+        LatencyWindow window = windows.computeIfAbsent(type, t -> new LatencyWindow());
+        long delay = window.hedgeDelay();
+        Call<T> call = new Call<>(task, window, delay != Long.MAX_VALUE, System.nanoTime());
+        try {
+            call.primary = start(call, false);
+        } catch (RejectedExecutionException e) {
+            call.result.completeExceptionally(e);
+            return call.result;
+        }
+        if (delay != Long.MAX_VALUE) {
+            try {
+                call.timer = scheduler.schedule(() -> hedge(call), delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                call.attemptEnded(null);        // no hedge for this one
+            }
+        }
+        call.result.whenComplete((value, error) -> {
+            if (!call.won.get() && call.outstanding.get() > 0) {
+                call.cancelAttempts();      // completed or cancelled by the caller; the attempts' own endings cancel nothing here
+            }
+        });
+        return call.result;
+    }
+
+    /**
+     * Blocking version of {@code submit}.
+     */
+    public <T> T invoke(String type, Callable<T> task) throws InterruptedException, ExecutionException {
+        CompletableFuture<T> result = submit(type, task);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            throw e;
+        }
+    }
+
+    /**
+     * The current hedge delay for {@code type} in nanoseconds, or {@code Long.MAX_VALUE} if there is no estimate yet.
+     */
+    public long hedgeDelay(String type) {
+        LatencyWindow window = windows.get(type);
+        return window == null ? Long.MAX_VALUE : window.hedgeDelay();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long hedges() {
+        return hedges.get();
+    }
+
+    /**
+     * How many backups answered before their primary.
+     */
+    public long hedgeWins() {
+        return hedgeWins.get();
+    }
+
+    private void earn() {
+        long current;
+        do {
+            current = budget.get();
+            if (current >= MAX_BUDGET) {
+                return;
+            }
+        } while (!budget.compareAndSet(current, Math.min(MAX_BUDGET, current + earnedPerRequest)));
+    }
+
+    private boolean spend() {
+        long current;
+        do {
+            current = budget.get();
+            if (current < ONE_HEDGE) {
+                return false;
+            }
+        } while (!budget.compareAndSet(current, current - ONE_HEDGE));
+        return true;
+    }
+
+    private <T> void hedge(Call<T> call) {
+        if (call.result.isDone()) {
+            return;
+        }
+        if (!spend()) {
+            call.attemptEnded(null);        // the pending hedge won't happen
+            return;
+        }
+        hedges.incrementAndGet();
+        try {
+            call.backup = start(call, true);
+        } catch (RejectedExecutionException e) {
+            call.attemptEnded(e);
+            return;
+        }
+        if (call.result.isDone()) {
+            call.backup.cancel(true);       // completed while we were starting it
+        }
+    }
+
+    private <T> Future<?> start(Call<T> call, boolean backup) {
+        return executor.submit(() -> {
+            try {
+                T value = call.task.call();
+                if (call.won.compareAndSet(false, true)) {
+                    boolean completed = call.result.complete(value);
+                    call.cancelLosers(backup);      // not our own future: cancel(true) on it would interrupt this thread
+                    if (completed) {
+                        call.window.record(System.nanoTime() - call.submitNanos);
+                        if (backup) {
+                            hedgeWins.incrementAndGet();
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                call.attemptEnded(e);
+            }
+        });
+    }
+
+    private static final class Call<T> {
+        final Callable<T> task;
+        final LatencyWindow window;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final AtomicInteger outstanding;        // attempts running, plus one for a hedge that may still be started
+        final AtomicReference<Throwable> lastError = new AtomicReference<>();
+        final AtomicBoolean won = new AtomicBoolean();      // an attempt succeeded first; set before it completes the result
+        final long submitNanos;
+        volatile Future<?> primary;
+        volatile Future<?> backup;
+        volatile ScheduledFuture<?> timer;
+
+        Call(Callable<T> task, LatencyWindow window, boolean hedged, long submitNanos) {
+            this.task = task;
+            this.window = window;
+            this.submitNanos = submitNanos;
+            this.outstanding = new AtomicInteger(hedged ? 2 : 1);
+        }
+
+        void attemptEnded(Throwable error) {
+            if (error != null) {
+                lastError.set(error);
+            }
+            if (outstanding.decrementAndGet() == 0) {
+                Throwable last = lastError.get();
+                result.completeExceptionally(last != null ? last : new IllegalStateException("no attempt succeeded"));
+            }
+        }
+
+        void cancelAttempts() {
+            cancel(timer);
+            cancel(primary);
+            cancel(backup);
+        }
+
+        void cancelLosers(boolean backupWon) {
+            cancel(timer);
+            cancel(backupWon ? primary : backup);
+        }
+
+        private static void cancel(Future<?> future) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * The last {@value #WINDOW} latencies of one task type.
+     */
+    private final class LatencyWindow {
+        private final long[] samples = new long[WINDOW];
+        private long count;
+        private volatile long delay = Long.MAX_VALUE;
+
+        synchronized void record(long nanos) {
+            samples[(int) (count++ % WINDOW)] = nanos;
+            if (count >= MIN_SAMPLES && (count % RECOMPUTE_EVERY == 0 || count == MIN_SAMPLES)) {
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, WINDOW));
+                Arrays.sort(sorted);
+                delay = sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile / 100 * sorted.length) - 1)];
+            }
+        }
+
+        long hedgeDelay() {
+            return delay;
+        }
+    }
+}
@@ -0,0 +1,552 @@
+package ExecutorFramework;
+
+import Metrics.LatencyHistogram;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h3><b>Instrumented Executor (telemetry)</b></h3>
+ * <p>
+ * {@link T0_ExecutorFramework} measures the whole run with {@code System.currentTimeMillis()}. That can't tell a pool that is too small
+ * (tasks wait long in the queue) from tasks that are slow (they run long), and the fix is a different one in each case.
+ * This wrapper around any {@code ExecutorService} times every task at three points, submit, start and finish, and counts what the
+ * executor is doing.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Queue wait</b> (submit to start) and <b>execution time</b> (start to finish): {@link LatencyHistogram}s.</li>
+ *     <li><b>Scheduling lag</b>: how late a scheduled task started compared to when it was due, for every run of a periodic task too.
+ *         A fixed-rate task is due every {@code period} after its first due time, a fixed-delay task {@code delay} after its last run
+ *         ended.</li>
+ *     <li><b>Counters:</b> submitted, completed, failed, cancelled, rejected, and in flight: queued and running. For {@code execute}
+ *         and {@code submit} they add up: every task is rejected, queued, running, or has ended in one of the other three. Cancelled
+ *         counts a task cancelled before or while it ran, and one that {@code shutdownNow()} dropped from the queue. A periodic task
+ *         is submitted once and completes once per run. Scheduled tasks are not counted as queued while they wait for their delay (the delegate
+ *         keeps them, and a cancelled one may never come by again); they are in flight only while running.</li>
+ *     <li><b>Allocation:</b> per task, the wrapper holding the submit time and its entry in the set of queued tasks (plus the
+ *         {@code FutureTask} that {@code submit} needs anyway). The set is how {@code shutdownNow()} finds the tasks that will never
+ *         run, whatever the delegate hands back: a {@code ScheduledThreadPoolExecutor} returns its own wrappers, a
+ *         {@code ForkJoinPool} nothing at all. A periodic task is wrapped once, not per run. Histograms and counters don't allocate.</li>
+ *     <li><b>Reading:</b> {@code snapshot()} returns all of it at once. The same data goes to JFR: {@code ExecutorFramework.ExecutorStatistics}
+ *         once a second per executor, {@code ExecutorFramework.TaskRejected} for every rejection, and, when enabled (it is off by default,
+ *         as it is one event per task), {@code ExecutorFramework.TaskExecution} for every task.</li>
+ * </ul>
+ * <p>
+ * The {@code schedule...} methods need a {@code ScheduledExecutorService} to wrap. A task cancelled while queued is still counted as
+ * queued until the executor gets to it, because that is when its slot in the queue is freed. {@code shutdownNow()} cancels the
+ * {@code submit} futures of the dropped tasks it can't hand back unwrapped, so nobody waits for them forever.
+ * </p>
+ */
+public class InstrumentedExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+    private final String name;
+    private final ExecutorService delegate;
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+    private final LatencyHistogram schedulingLag = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder running = new LongAdder();
+    private final Set<TimedTask> queuedTasks = ConcurrentHashMap.newKeySet();     // removing one is the claim: run it, or drop it
+    private final Runnable statisticsHook = this::emitStatistics;
+
+    public InstrumentedExecutor(String name, ExecutorService delegate) {
+        this.name = name;
+        this.delegate = delegate;
+        FlightRecorder.addPeriodicEvent(StatisticsEvent.class, statisticsHook);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(name, submitted.sum(), completed.sum(), failed.sum(), cancelled.sum(), rejected.sum(), queued.sum(), running.sum(),
+                queueWait.snapshot(), executionTime.snapshot(), schedulingLag.snapshot());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        submitted.increment();
+        queued.increment();
+        TimedTask task = new TimedTask(command, System.nanoTime());
+        queuedTasks.add(task);
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            queuedTasks.remove(task);
+            queued.decrement();
+            reject(command);
+            throw e;
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        submitted.increment();
+        try {
+            return scheduled().schedule(new ScheduledTask(command, System.nanoTime() + unit.toNanos(delay), 0, false), delay, unit);
+        } catch (RejectedExecutionException e) {
+            reject(command);
+            throw e;
+        }
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+        submitted.increment();
+        try {
+            return scheduled().schedule(new ScheduledCall<>(callable, System.nanoTime() + unit.toNanos(delay)), delay, unit);
+        } catch (RejectedExecutionException e) {
+            reject(callable);
+            throw e;
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        long due = System.nanoTime() + unit.toNanos(initialDelay);
+        ScheduledTask task = new ScheduledTask(command, due, unit.toNanos(period), true);
+        submitted.increment();
+        try {
+            return scheduled().scheduleAtFixedRate(task, initialDelay, period, unit);
+        } catch (RejectedExecutionException e) {
+            reject(command);
+            throw e;
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        long due = System.nanoTime() + unit.toNanos(initialDelay);
+        ScheduledTask task = new ScheduledTask(command, due, unit.toNanos(delay), false);
+        submitted.increment();
+        try {
+            return scheduled().scheduleWithFixedDelay(task, initialDelay, delay, unit);
+        } catch (RejectedExecutionException e) {
+            reject(command);
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+        FlightRecorder.removePeriodicEvent(statisticsHook);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> returned = delegate.shutdownNow();
+        List<Runnable> neverRun = new ArrayList<>(returned.size());
+        Set<TimedTask> handedBack = new HashSet<>();
+        for (Runnable task : returned) {
+            if (task instanceof TimedTask timed) {
+                handedBack.add(timed);
+                neverRun.add(timed.task);
+            } else {
+                neverRun.add(task);     // the delegate's own wrapper, or one of our scheduled tasks
+            }
+        }
+        for (TimedTask timed : queuedTasks) {
+            if (queuedTasks.remove(timed)) {        // not started, and now it never will be
+                queued.decrement();
+                cancelled.increment();
+                if (!handedBack.contains(timed) && timed.task instanceof Future<?> future) {
+                    future.cancel(false);
+                }
+            }
+        }
+        FlightRecorder.removePeriodicEvent(statisticsHook);
+        return neverRun;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    private ScheduledExecutorService scheduled() {
+        if (delegate instanceof ScheduledExecutorService scheduled) {
+            return scheduled;
+        }
+        throw new UnsupportedOperationException(name + " does not wrap a ScheduledExecutorService");
+    }
+
+    private void reject(Object task) {
+        rejected.increment();
+        RejectionEvent event = new RejectionEvent();
+        if (event.isEnabled()) {
+            event.executor = name;
+            event.taskClass = task.getClass();
+            event.commit();
+        }
+    }
+
+    private TaskEvent started() {
+        running.increment();
+        TaskEvent event = new TaskEvent();     // scalar replaced by the JIT while the event is disabled
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Records a finished task; {@code waited} is its queue wait, or its scheduling lag if {@code scheduled}.
+     */
+    private void finished(TaskEvent event, long startNanos, long waited, boolean scheduled, LongAdder outcome) {
+        running.decrement();
+        executionTime.record(System.nanoTime() - startNanos);
+        outcome.increment();
+        if (event.shouldCommit()) {
+            event.executor = name;
+            event.queueWait = scheduled ? 0 : waited;
+            event.schedulingLag = scheduled ? waited : 0;
+            event.failed = outcome == failed;
+            event.commit();
+        }
+    }
+
+    private void emitStatistics() {
+        Snapshot snapshot = snapshot();
+        StatisticsEvent event = new StatisticsEvent();
+        event.executor = name;
+        event.submitted = snapshot.submitted;
+        event.completed = snapshot.completed;
+        event.failed = snapshot.failed;
+        event.cancelled = snapshot.cancelled;
+        event.rejected = snapshot.rejected;
+        event.queued = snapshot.queued;
+        event.running = snapshot.running;
+        event.queueWaitP50 = snapshot.queueWait.percentile(50);
+        event.queueWaitP99 = snapshot.queueWait.percentile(99);
+        event.executionTimeP50 = snapshot.executionTime.percentile(50);
+        event.executionTimeP99 = snapshot.executionTime.percentile(99);
+        event.schedulingLagP99 = snapshot.schedulingLag.percentile(99);
+        event.commit();
+    }
+
+    /**
+     * The wrapper of a task from {@code execute} or {@code submit}.
+     */
+    private final class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long submitNanos;
+
+        TimedTask(Runnable task, long submitNanos) {
+            this.task = task;
+            this.submitNanos = submitNanos;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            if (!queuedTasks.remove(this)) {
+                return;         // dropped by shutdownNow(), which counted it
+            }
+            queued.decrement();
+            if (task instanceof Future<?> future && future.isDone()) {
+                cancelled.increment();      // cancelled while queued, it won't run
+                return;
+            }
+            long waited = start - submitNanos;
+            queueWait.record(waited);
+            TaskEvent event = started();
+            LongAdder outcome = failed;
+            try {
+                task.run();
+                if (!(task instanceof Future<?> future)) {
+                    outcome = completed;
+                } else if (future.isCancelled()) {
+                    outcome = cancelled;
+                } else if (future.state() != Future.State.FAILED) {        // a FutureTask from submit keeps the exception to itself
+                    outcome = completed;
+                }
+            } finally {
+                finished(event, start, waited, false, outcome);
+            }
+        }
+    }
+
+    /**
+     * The wrapper of a scheduled task, one for all runs of a periodic task.
+     */
+    private final class ScheduledTask implements Runnable {
+        private final Runnable task;
+        private final long period;          // 0 for one-shot tasks
+        private final boolean fixedRate;
+        private long due;                   // only touched by the run in progress, runs of one task never overlap
+
+        ScheduledTask(Runnable task, long due, long period, boolean fixedRate) {
+            this.task = task;
+            this.due = due;
+            this.period = period;
+            this.fixedRate = fixedRate;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long lag = start - due;
+            schedulingLag.record(lag);
+            TaskEvent event = started();
+            boolean ok = false;
+            try {
+                task.run();
+                ok = true;
+            } finally {
+                finished(event, start, lag, true, ok ? completed : failed);
+                due = fixedRate ? due + period : System.nanoTime() + period;
+            }
+        }
+    }
+
+    /**
+     * The wrapper of a {@code Callable} given to {@code schedule}.
+     */
+    private final class ScheduledCall<V> implements Callable<V> {
+        private final Callable<V> task;
+        private final long due;
+
+        ScheduledCall(Callable<V> task, long due) {
+            this.task = task;
+            this.due = due;
+        }
+
+        @Override
+        public V call() throws Exception {
+            long start = System.nanoTime();
+            long lag = start - due;
+            schedulingLag.record(lag);
+            TaskEvent event = started();
+            boolean ok = false;
+            try {
+                V result = task.call();
+                ok = true;
+                return result;
+            } finally {
+                finished(event, start, lag, true, ok ? completed : failed);
+            }
+        }
+    }
+
+    /**
+     * A consistent view of the counters and histograms (nanoseconds) at one point in time.
+     */
+    public static final class Snapshot {
+        private final String executor;
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long cancelled;
+        private final long rejected;
+        private final long queued;
+        private final long running;
+        private final LatencyHistogram.Snapshot queueWait;
+        private final LatencyHistogram.Snapshot executionTime;
+        private final LatencyHistogram.Snapshot schedulingLag;
+
+        Snapshot(String executor, long submitted, long completed, long failed, long cancelled, long rejected, long queued, long running,
+                 LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot executionTime, LatencyHistogram.Snapshot schedulingLag) {
+            this.executor = executor;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.rejected = rejected;
+            this.queued = queued;
+            this.running = running;
+            this.queueWait = queueWait;
+            this.executionTime = executionTime;
+            this.schedulingLag = schedulingLag;
+        }
+
+        public long submitted() {
+            return submitted;
+        }
+
+        public long completed() {
+            return completed;
+        }
+
+        public long failed() {
+            return failed;
+        }
+
+        public long cancelled() {
+            return cancelled;
+        }
+
+        public long rejected() {
+            return rejected;
+        }
+
+        public long queued() {
+            return queued;
+        }
+
+        public long running() {
+            return running;
+        }
+
+        public LatencyHistogram.Snapshot queueWait() {
+            return queueWait;
+        }
+
+        public LatencyHistogram.Snapshot executionTime() {
+            return executionTime;
+        }
+
+        public LatencyHistogram.Snapshot schedulingLag() {
+            return schedulingLag;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(executor).append(": submitted=").append(submitted).append(" completed=").append(completed)
+                    .append(" failed=").append(failed).append(" cancelled=").append(cancelled).append(" rejected=").append(rejected)
+                    .append(" queued=").append(queued).append(" running=").append(running)
+                    .append("\n    queue wait:     ").append(queueWait)
+                    .append("\n    execution time: ").append(executionTime);
+            if (schedulingLag.count() > 0) {
+                sb.append("\n    scheduling lag: ").append(schedulingLag);
+            }
+            return sb.toString();
+        }
+    }
+
+    @Name("ExecutorFramework.TaskExecution")
+    @Label("Task Execution")
+    @Category({"Application", "Executor"})
+    @Description("One task run by an InstrumentedExecutor; the event duration is the execution time")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class TaskEvent extends Event {
+        @Label("Executor")
+        String executor;
+
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+
+        @Label("Scheduling Lag")
+        @Timespan(Timespan.NANOSECONDS)
+        long schedulingLag;
+
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("ExecutorFramework.TaskRejected")
+    @Label("Task Rejected")
+    @Category({"Application", "Executor"})
+    @StackTrace(false)
+    static final class RejectionEvent extends Event {
+        @Label("Executor")
+        String executor;
+
+        @Label("Task Class")
+        Class<?> taskClass;
+    }
+
+    @Name("ExecutorFramework.ExecutorStatistics")
+    @Label("Executor Statistics")
+    @Category({"Application", "Executor"})
+    @Period("1 s")
+    @StackTrace(false)
+    static final class StatisticsEvent extends Event {
+        @Label("Executor")
+        String executor;
+
+        @Label("Submitted")
+        long submitted;
+
+        @Label("Completed")
+        long completed;
+
+        @Label("Failed")
+        long failed;
+
+        @Label("Cancelled")
+        long cancelled;
+
+        @Label("Rejected")
+        long rejected;
+
+        @Label("Queued")
+        long queued;
+
+        @Label("Running")
+        long running;
+
+        @Label("Queue Wait p50")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWaitP50;
+
+        @Label("Queue Wait p99")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWaitP99;
+
+        @Label("Execution Time p50")
+        @Timespan(Timespan.NANOSECONDS)
+        long executionTimeP50;
+
+        @Label("Execution Time p99")
+        @Timespan(Timespan.NANOSECONDS)
+        long executionTimeP99;
+
+        @Label("Scheduling Lag p99")
+        @Timespan(Timespan.NANOSECONDS)
+        long schedulingLagP99;
+    }
+}
@@ -0,0 +1,257 @@
+package ExecutorFramework;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <h3><b>Parallel Factorial (fork/join product tree)</b></h3>
+ * <p>
+ * {@link T0_ExecutorFramework} only pretends to compute factorials. A real {@code n!} for large {@code n} is a number with millions
+ * of bits, and the naive loop {@code result = result.multiply(i)} multiplies an ever growing number by a tiny one {@code n} times,
+ * which is quadratic in the size of the result. Multiplying numbers of about the <i>same</i> size is much cheaper, because
+ * {@code BigInteger} switches to Karatsuba and Toom-Cook multiplication for big operands.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Product tree:</b> {@code product(from, to)} splits the range in half, computes both halves and multiplies them, so every
+ *         multiplication has two operands of about the same size. The two halves are independent, which makes it a natural
+ *         {@code RecursiveTask}: fork one half, compute the other, {@code join()}.</li>
+ *     <li><b>Sequential cutoff:</b> ranges with at most {@code cutoff} numbers are multiplied in the calling task, because forking
+ *         a task costs more than a few small multiplications. Small numbers are first packed into a {@code long} while they fit,
+ *         so a leaf does far fewer {@code BigInteger} operations than it has numbers.</li>
+ *     <li><b>Top of the tree:</b> the last few multiplications dominate and there is only one of each, so there is nothing to fork.
+ *         Above {@value #PARALLEL_MULTIPLY_BITS} bits they use {@code BigInteger.parallelMultiply} (Java 19), which splits the
+ *         Toom-Cook multiplication itself into fork/join tasks.</li>
+ *     <li><b>Prime swing:</b> {@code primeSwingFactorial(n)} uses Luschny's algorithm: {@code n! = 2^k * oddFactorial(n)} and
+ *         {@code oddFactorial(n) = oddFactorial(n / 2)^2 * swing(n)}, where {@code swing(n) = n! / (n/2)!^2} is computed from its
+ *         prime factorization. There are far fewer primes than numbers up to {@code n}, so the products are much smaller; they still
+ *         go through the parallel product tree. Squaring is cheaper than a general multiplication, and the power of two is a shift.</li>
+ * </ul>
+ */
+public class ParallelFactorial {
+    private static final int PARALLEL_MULTIPLY_BITS = 1 << 20;
+    private static final long[] SMALL_ODD_SWING = {
+            1, 1, 1, 3, 3, 15, 5, 35, 35, 315, 63, 693, 231, 3003, 429, 6435, 6435, 109395, 12155, 230945, 46189, 969969, 88179,
+            2028117, 676039, 16900975, 1300075, 35102025, 5014575, 145422675, 9694845, 300540195, 300540195};
+
+    private final ForkJoinPool pool;
+    private final int cutoff;
+
+    public ParallelFactorial() {
+        this(ForkJoinPool.commonPool(), 256);
+    }
+
+    public ParallelFactorial(ForkJoinPool pool, int cutoff) {
+        if (cutoff < 1) {
+            throw new IllegalArgumentException("cutoff must be positive: " + cutoff);
+        }
+        this.pool = pool;
+        this.cutoff = cutoff;
+    }
+
+    /**
+     * {@code n!} with the parallel product tree.
+     */
+    public BigInteger factorial(int n) {
+        checkArgument(n);
+        return product(2, n);
+    }
+
+    /**
+     * The product {@code from * (from + 1) * ... * to}, or 1 for an empty range.
+     */
+    public BigInteger product(long from, long to) {
+        if (from < 1 || to >= Long.MAX_VALUE) {
+            throw new IllegalArgumentException("range must lie within 1 and Long.MAX_VALUE - 1: " + from + ".." + to);
+        }
+        if (from > to) {
+            return BigInteger.ONE;
+        }
+        return pool.invoke(new RangeProduct(from, to + 1, cutoff));
+    }
+
+    /**
+     * {@code n!} with the prime swing algorithm. Same result as {@code factorial(n)}, usually several times faster for large {@code n}.
+     */
+    public BigInteger primeSwingFactorial(int n) {
+        checkArgument(n);
+        if (n < 2) {
+            return BigInteger.ONE;
+        }
+        boolean[] composite = sieve(n);
+        return oddFactorial(n, composite).shiftLeft(n - Integer.bitCount(n));     // n! contains 2 exactly n - bitCount(n) times
+    }
+
+    /**
+     * The naive loop, for comparison.
+     */
+    public static BigInteger sequentialFactorial(int n) {
+        checkArgument(n);
+        BigInteger result = BigInteger.ONE;
+        for (int i = 2; i <= n; i++) {
+            result = result.multiply(BigInteger.valueOf(i));
+        }
+        return result;
+    }
+
+    private BigInteger oddFactorial(int n, boolean[] composite) {
+        if (n < 2) {
+            return BigInteger.ONE;
+        }
+        BigInteger half = oddFactorial(n / 2, composite);
+        return multiply(half.multiply(half), swing(n, composite));
+    }
+
+    /**
+     * The odd part of {@code n! / (n/2)!^2}. A prime {@code p} divides it as often as {@code n / p^k} is odd, counting over all {@code k}.
+     */
+    private BigInteger swing(int n, boolean[] composite) {
+        if (n < SMALL_ODD_SWING.length) {
+            return BigInteger.valueOf(SMALL_ODD_SWING[n]);
+        }
+        long[] factors = new long[n / 2 + 1];
+        int count = 0;
+        int sqrt = (int) Math.sqrt(n);
+        for (int p = 3; p <= sqrt; p += 2) {
+            if (!composite[p]) {
+                long power = 1;
+                for (int q = n / p; q > 0; q /= p) {
+                    if ((q & 1) == 1) {
+                        power *= p;
+                    }
+                }
+                if (power > 1) {
+                    factors[count++] = power;
+                }
+            }
+        }
+        for (int p = (sqrt + 1) | 1; p <= n / 3; p += 2) {       // p^2 > n, so only n / p matters
+            if (!composite[p] && ((n / p) & 1) == 1) {
+                factors[count++] = p;
+            }
+        }
+        for (int p = (n / 2 + 1) | 1; p <= n; p += 2) {         // primes in (n/2, n] divide n! once and (n/2)! not at all
+            if (!composite[p]) {
+                factors[count++] = p;
+            }
+        }
+        return count == 0 ? BigInteger.ONE : pool.invoke(new ArrayProduct(factors, 0, count, cutoff));
+    }
+
+    private static boolean[] sieve(int n) {
+        boolean[] composite = new boolean[n + 1];
+        for (int i = 3; (long) i * i <= n; i += 2) {
+            if (!composite[i]) {
+                for (int j = i * i; j <= n; j += 2 * i) {
+                    composite[j] = true;
+                }
+            }
+        }
+        return composite;
+    }
+
+    private static BigInteger multiply(BigInteger a, BigInteger b) {
+        return a.bitLength() > PARALLEL_MULTIPLY_BITS && b.bitLength() > PARALLEL_MULTIPLY_BITS ? a.parallelMultiply(b) : a.multiply(b);
+    }
+
+    private static void checkArgument(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+    }
+
+    /**
+     * Product of the numbers {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    private static final class RangeProduct extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final int cutoff;
+
+        RangeProduct(long from, long to, int cutoff) {
+            this.from = from;
+            this.to = to;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            if (to - from <= cutoff) {
+                return sequentialProduct(from, to);
+            }
+            long middle = (from + to) >>> 1;
+            RangeProduct left = new RangeProduct(from, middle, cutoff);
+            left.fork();
+            BigInteger right = new RangeProduct(middle, to, cutoff).compute();
+            return multiply(left.join(), right);
+        }
+
+        private static BigInteger sequentialProduct(long from, long to) {
+            if (to - from <= 16) {
+                BigInteger result = BigInteger.ONE;
+                long packed = 1;
+                for (long i = from; i < to; i++) {
+                    if (packed > Long.MAX_VALUE / i) {
+                        result = result.multiply(BigInteger.valueOf(packed));
+                        packed = 1;
+                    }
+                    packed *= i;
+                }
+                return result.multiply(BigInteger.valueOf(packed));
+            }
+            long middle = (from + to) >>> 1;
+            return sequentialProduct(from, middle).multiply(sequentialProduct(middle, to));
+        }
+    }
+
+    /**
+     * Product of {@code values[from]} (inclusive) to {@code values[to]} (exclusive).
+     */
+    private static final class ArrayProduct extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] values;
+        private final int from;
+        private final int to;
+        private final int cutoff;
+
+        ArrayProduct(long[] values, int from, int to, int cutoff) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            if (to - from <= cutoff) {
+                return sequentialProduct(values, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            ArrayProduct left = new ArrayProduct(values, from, middle, cutoff);
+            left.fork();
+            BigInteger right = new ArrayProduct(values, middle, to, cutoff).compute();
+            return multiply(left.join(), right);
+        }
+
+        private static BigInteger sequentialProduct(long[] values, int from, int to) {
+            if (to - from <= 16) {
+                BigInteger result = BigInteger.ONE;
+                long packed = 1;
+                for (int i = from; i < to; i++) {
+                    if (packed > Long.MAX_VALUE / values[i]) {
+                        result = result.multiply(BigInteger.valueOf(packed));
+                        packed = 1;
+                    }
+                    packed *= values[i];
+                }
+                return result.multiply(BigInteger.valueOf(packed));
+            }
+            int middle = (from + to) >>> 1;
+            return sequentialProduct(values, from, middle).multiply(sequentialProduct(values, middle, to));
+        }
+    }
+}
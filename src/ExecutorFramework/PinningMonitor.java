@@ -0,0 +1,74 @@
+package ExecutorFramework;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h3><b>Pinning Monitor</b></h3>
+ * <p>
+ * Listens in-process for the JFR event {@code jdk.VirtualThreadPinned}, which the JVM emits when a virtual thread blocks
+ * while pinned to its carrier thread (typically inside {@code synchronized}) for longer than the threshold.
+ * It counts the events and remembers the first application frame of each distinct stack, so the offending code can be found.
+ * </p>
+ *
+ * <pre>{@code
+ * try (PinningMonitor monitor = PinningMonitor.start(Duration.ofMillis(1))) {
+ *     ... run virtual thread work ...
+ *     System.out.println(monitor.report());
+ * }
+ * }</pre>
+ *
+ * <p>Events are delivered asynchronously, so {@code report()} waits briefly for the stream to catch up.</p>
+ */
+public class PinningMonitor implements AutoCloseable {
+    private final RecordingStream stream = new RecordingStream();
+    private final AtomicLong events = new AtomicLong();
+    private final Map<String, AtomicLong> sites = new ConcurrentHashMap<>();
+
+    private PinningMonitor(Duration threshold) {
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.startAsync();
+    }
+
+    public static PinningMonitor start(Duration threshold) {
+        return new PinningMonitor(threshold);
+    }
+
+    public long events() {
+        return events.get();
+    }
+
+    public String report() throws InterruptedException {
+        Thread.sleep(1500);     // JFR flushes roughly once a second
+        StringBuilder sb = new StringBuilder("pinned events: ").append(events.get());
+        sites.forEach((site, count) -> sb.append("\n    ").append(count).append(" x ").append(site));
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        events.incrementAndGet();
+        String site = "unknown";
+        if (event.getStackTrace() != null) {
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (!type.startsWith("java.") && !type.startsWith("jdk.")) {
+                    site = type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                    break;
+                }
+            }
+        }
+        sites.computeIfAbsent(site, key -> new AtomicLong()).incrementAndGet();
+    }
+}
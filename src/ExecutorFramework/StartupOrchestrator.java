@@ -0,0 +1,293 @@
+package ExecutorFramework;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h3><b>Startup Orchestrator (dependency graph)</b></h3>
+ * <p>
+ * {@link T4_CountDownLatchExample} and {@link T5_CyclicBarrierExample} start all services at once and wait for all of them. That only
+ * works if the services don't need each other. Once the cache needs the database, a flat latch has to become stages
+ * (first all databases, then all caches ...), and every stage waits for its slowest member, even if nothing in the next stage needs it.
+ * </p>
+ * <p>
+ * Here every node names the nodes it depends on, and a node is submitted the moment its <i>own</i> dependencies are done.
+ * Independent branches run in parallel, and the whole startup takes as long as the longest chain of dependencies, the
+ * <b>critical path</b>, given enough threads.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@code add(name, task, dependencies...)}:</b> the task is any {@code Callable}. The existing services need their
+ *         synchronizer, but it must not make them wait for each other, because the ordering is the orchestrator's job now:
+ *         {@code new DependentService(new CountDownLatch(1))} as is, and a {@code Runnable} like
+ *         {@code Executors.callable(new Subsystem("Cache", 4000, new CyclicBarrier(1)))} (a barrier of one party trips at once).
+ *         Dependencies must be added before {@code start()}, in any order.</li>
+ *     <li><b>Validation:</b> unknown dependencies and cycles are reported before anything is started.</li>
+ *     <li><b>Fail fast:</b> when a node fails, nodes that haven't started yet never start, running ones are cancelled (interrupted),
+ *         and {@code start()} throws an {@code ExecutionException} with the failure as its cause.</li>
+ *     <li><b>{@link Report}:</b> when and how long each node waited and ran, and the critical path: walking back from the node that
+ *         finished last, each step goes to the dependency that finished last, i.e. the one it actually waited for.</li>
+ * </ul>
+ */
+public class StartupOrchestrator {
+    private final ExecutorService executor;
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final AtomicBoolean failed = new AtomicBoolean();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private AtomicInteger unfinished;
+    private long startNanos;
+    private volatile String failedNode;
+
+    public StartupOrchestrator(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public synchronized StartupOrchestrator add(String name, Callable<?> task, String... dependencies) {
+        if (unfinished != null) {
+            throw new IllegalStateException("already started");
+        }
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("duplicate node: " + name);
+        }
+        nodes.put(name, new Node(name, task, List.of(dependencies)));
+        return this;
+    }
+
+    /**
+     * Starts every node as soon as its dependencies are done and waits until all of them are, or one fails.
+     */
+    public Report start() throws InterruptedException, ExecutionException {
+        List<Node> roots;
+        synchronized (this) {
+            if (unfinished != null) {
+                throw new IllegalStateException("already started");
+            }
+            roots = link();
+            unfinished = new AtomicInteger(nodes.size());
+            startNanos = System.nanoTime();
+        }
+        if (nodes.isEmpty()) {
+            done.complete(null);
+        }
+        for (Node root : roots) {
+            submit(root);
+        }
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            fail(null, e);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new ExecutionException("startup of " + failedNode + " failed", e.getCause());
+        }
+        return new Report(new ArrayList<>(nodes.values()));
+    }
+
+    private List<Node> link() {
+        List<Node> roots = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            node.dependencies.clear();      // start() may be called again after fixing a validation error
+            node.dependents.clear();
+        }
+        for (Node node : nodes.values()) {
+            for (String dependency : node.dependencyNames) {
+                Node target = nodes.get(dependency);
+                if (target == null) {
+                    throw new IllegalStateException(node.name + " depends on unknown node " + dependency);
+                }
+                node.dependencies.add(target);
+                target.dependents.add(node);
+            }
+            node.pending.set(node.dependencies.size());
+            if (node.dependencies.isEmpty()) {
+                roots.add(node);
+            }
+        }
+        Map<Node, Integer> state = new HashMap<>();       // 1 = on the current path, 2 = done
+        for (Node node : nodes.values()) {
+            List<String> cycle = findCycle(node, state, new ArrayList<>());
+            if (cycle != null) {
+                throw new IllegalStateException("dependency cycle: " + String.join(" -> ", cycle));
+            }
+        }
+        return roots;
+    }
+
+    private static List<String> findCycle(Node node, Map<Node, Integer> state, List<String> path) {
+        Integer seen = state.get(node);
+        if (seen != null) {
+            if (seen == 2) {
+                return null;
+            }
+            List<String> cycle = new ArrayList<>(path.subList(path.indexOf(node.name), path.size()));
+            cycle.add(node.name);
+            return cycle;
+        }
+        state.put(node, 1);
+        path.add(node.name);
+        for (Node dependency : node.dependencies) {
+            List<String> cycle = findCycle(dependency, state, path);
+            if (cycle != null) {
+                return cycle;
+            }
+        }
+        path.remove(path.size() - 1);
+        state.put(node, 2);
+        return null;
+    }
+
+    private void submit(Node node) {
+        if (failed.get()) {
+            return;
+        }
+        node.readyAt = System.nanoTime();
+        try {
+            node.future = executor.submit(() -> run(node));
+        } catch (RuntimeException e) {
+            fail(node, e);      // e.g. the executor was shut down
+            return;
+        }
+        if (failed.get()) {
+            node.future.cancel(true);       // a failure raced with submitting this node
+        }
+    }
+
+    private void run(Node node) {
+        if (failed.get()) {
+            return;
+        }
+        node.startedAt = System.nanoTime();
+        try {
+            node.task.call();
+        } catch (Throwable e) {
+            node.finishedAt = System.nanoTime();
+            fail(node, e);
+            return;
+        }
+        node.finishedAt = System.nanoTime();
+        for (Node dependent : node.dependents) {
+            if (dependent.pending.decrementAndGet() == 0) {
+                submit(dependent);
+            }
+        }
+        if (unfinished.decrementAndGet() == 0) {
+            done.complete(null);
+        }
+    }
+
+    private void fail(Node node, Throwable cause) {
+        if (!failed.compareAndSet(false, true)) {
+            return;     // only the first failure counts, the rest are usually the cancellations it caused
+        }
+        for (Node other : nodes.values()) {
+            Future<?> future = other.future;
+            if (other != node && future != null) {
+                future.cancel(true);
+            }
+        }
+        failedNode = node == null ? null : node.name;
+        done.completeExceptionally(cause);
+    }
+
+    private static final class Node {
+        final String name;
+        final Callable<?> task;
+        final List<String> dependencyNames;
+        final List<Node> dependencies = new ArrayList<>();
+        final List<Node> dependents = new ArrayList<>();
+        final AtomicInteger pending = new AtomicInteger();
+        volatile Future<?> future;
+        volatile long readyAt;
+        volatile long startedAt;
+        volatile long finishedAt;
+
+        Node(String name, Callable<?> task, List<String> dependencyNames) {
+            this.name = name;
+            this.task = task;
+            this.dependencyNames = dependencyNames;
+        }
+    }
+
+    /**
+     * Timings of a successful startup, in milliseconds since {@code start()} was called.
+     */
+    public final class Report {
+        private final List<Node> nodes;
+
+        private Report(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        public long totalMillis() {
+            long last = startNanos;
+            for (Node node : nodes) {
+                last = Math.max(last, node.finishedAt);
+            }
+            return millis(last);
+        }
+
+        /**
+         * From the first node to the one that finished last.
+         */
+        public List<String> criticalPath() {
+            Node current = null;
+            for (Node node : nodes) {
+                if (current == null || node.finishedAt > current.finishedAt) {
+                    current = node;
+                }
+            }
+            List<String> path = new ArrayList<>();
+            while (current != null) {
+                path.add(current.name);
+                Node waitedFor = null;
+                for (Node dependency : current.dependencies) {
+                    if (waitedFor == null || dependency.finishedAt > waitedFor.finishedAt) {
+                        waitedFor = dependency;
+                    }
+                }
+                current = waitedFor;
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        /**
+         * Sum of the run times along the critical path; the rest of {@code totalMillis()} was spent waiting for a thread.
+         */
+        public long criticalPathMillis() {
+            long total = 0;
+            for (String name : criticalPath()) {
+                Node node = StartupOrchestrator.this.nodes.get(name);
+                total += (node.finishedAt - node.startedAt) / 1_000_000;
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format("%-20s%10s%10s%10s%10s%n", "node", "ready", "started", "finished", "ran ms"));
+            for (Node node : nodes) {
+                sb.append(String.format("%-20s%10d%10d%10d%10d%n", node.name, millis(node.readyAt), millis(node.startedAt),
+                        millis(node.finishedAt), (node.finishedAt - node.startedAt) / 1_000_000));
+            }
+            sb.append("critical path: ").append(String.join(" -> ", criticalPath()))
+                    .append(" (").append(criticalPathMillis()).append(" ms), total ").append(totalMillis()).append(" ms");
+            return sb.toString();
+        }
+
+        private long millis(long nanos) {
+            return (nanos - startNanos) / 1_000_000;
+        }
+    }
+}
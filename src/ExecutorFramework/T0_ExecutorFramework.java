@@ -1,7 +1,6 @@
 package ExecutorFramework;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -87,7 +86,8 @@ public class T0_ExecutorFramework {
 
     public static void main(String[] args) {
         long startTime = System.currentTimeMillis();
-        ExecutorService executorService = Executors.newFixedThreadPool(10);
+        ExecutionMode mode = args.length > 0 ? ExecutionMode.valueOf(args[0]) : ExecutionMode.FIXED_POOL;      // see ExecutionMode, e.g. VIRTUAL_PER_TASK finishes all 50 tasks in ~1 second
+        ExecutorService executorService = mode.newExecutor(10);
         for (int i = 0; i < 50; i++) {
             int finalI = i;
             executorService.submit(() -> {
@@ -0,0 +1,89 @@
+package ExecutorFramework;
+
+import Metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h3><b>Hedged Request Benchmark</b></h3>
+ * <p>
+ * Simulates a remote call with a heavy tail: most calls take 2 - 6 ms, 4% take 20 - 60 ms and 1% take 300 ms
+ * (a GC pause, a retransmit, a cold cache). Each slow call is independent of the others, so a second try is usually fast.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>single:</b> one attempt per request.</li>
+ *     <li><b>invokeAny x2:</b> two attempts per request, always. Best tail, double load.</li>
+ *     <li><b>hedged p95:</b> {@link HedgedExecutor} with the backup after the p95, at most 10% of requests hedged.</li>
+ * </ul>
+ * <p>Usage: {@code java ExecutorFramework.T10_HedgedRequestBenchmark [requests] [clients]}.</p>
+ */
+public class T10_HedgedRequestBenchmark {
+    private static final AtomicLong attempts = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        HedgedExecutor hedged = new HedgedExecutor(executorService, scheduler, 95, 0.10);
+
+        System.out.printf("%-14s%10s%10s%10s%10s%10s%18s%n", "strategy", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms", "attempts/request");
+        run("single", requests, clients, () -> remoteCall().call());
+        run("invokeAny x2", requests, clients, () -> executorService.invokeAny(List.of(remoteCall(), remoteCall())));
+        run("hedged p95", requests, clients, () -> hedged.invoke("remote", remoteCall()));
+        System.out.printf("hedged %d of %d requests, the backup won %d times, final delay %.1f ms%n",
+                hedged.hedges(), hedged.requests(), hedged.hedgeWins(), hedged.hedgeDelay("remote") / 1e6);
+
+        scheduler.shutdown();
+        executorService.shutdown();
+    }
+
+    private static Callable<Integer> remoteCall() {
+        return () -> {
+            attempts.incrementAndGet();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double p = random.nextDouble();
+            int millis = p < 0.95 ? random.nextInt(2, 7) : p < 0.99 ? random.nextInt(20, 61) : 300;
+            Thread.sleep(millis);
+            return millis;
+        };
+    }
+
+    private static void run(String name, int requests, int clients, Callable<Integer> request) throws InterruptedException, ExecutionException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        attempts.set(0);
+        AtomicLong remaining = new AtomicLong(requests);
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                workers.add(clientThreads.submit(() -> {
+                    while (remaining.getAndDecrement() > 0) {
+                        long start = System.nanoTime();
+                        request.call();
+                        histogram.record(System.nanoTime() - start);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        System.out.printf("%-14s%10.1f%10.1f%10.1f%10.1f%10.1f%18.2f%n", name,
+                snapshot.percentile(50) / 1e6, snapshot.percentile(95) / 1e6, snapshot.percentile(99) / 1e6,
+                snapshot.percentile(99.9) / 1e6, snapshot.max() / 1e6, (double) attempts.get() / requests);
+    }
+}
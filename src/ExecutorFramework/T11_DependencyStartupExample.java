@@ -0,0 +1,95 @@
+package ExecutorFramework;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <h3><b>Dependency Graph Startup</b></h3>
+ * <p>
+ * The subsystems of {@link T5_CyclicBarrierExample}, now with dependencies:
+ * </p>
+ * <pre>
+ * Config (100) ---> Messaging (400) --------------+
+ *                                                 +--> Web server (200)
+ * Database (400) -> Cache (300) ------------------+
+ *                \-> Search index (600)
+ * </pre>
+ * <p>
+ * Started in stages with a latch per stage (Config + Database, then Messaging + Cache + Search index, then Web server) it takes
+ * 400 + 600 + 200 = 1200 ms. With {@link StartupOrchestrator} it takes as long as the critical path Database -> Search index, 1000 ms.
+ * The second run makes Cache fail: Search index is interrupted and Web server never starts.
+ * </p>
+ */
+public class T11_DependencyStartupExample {
+
+    public static void main(String[] args) throws InterruptedException {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        System.out.println("----------Staged with latches (expected ~1200 ms)");
+        long start = System.currentTimeMillis();
+        runStage(executorService, service("Config", 100), service("Database", 400));
+        runStage(executorService, service("Messaging", 400), service("Cache", 300), service("Search index", 600));
+        runStage(executorService, service("Web server", 200));
+        System.out.println("total " + (System.currentTimeMillis() - start) + " ms");
+
+        System.out.println("----------Dependency graph");
+        try {
+            StartupOrchestrator.Report report = graph(executorService, service("Cache", 300)).start();
+            System.out.println(report);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+
+        System.out.println("----------Dependency graph, Cache fails");
+        try {
+            graph(executorService, () -> {
+                Thread.sleep(300);
+                throw new IllegalStateException("Cache: connection refused");
+            }).start();
+        } catch (ExecutionException e) {
+            System.out.println(e.getMessage() + ": " + e.getCause().getMessage());
+        }
+
+        executorService.shutdown();
+    }
+
+    private static StartupOrchestrator graph(ExecutorService executorService, Callable<?> cache) {
+        return new StartupOrchestrator(executorService)
+                .add("Web server", service("Web server", 200), "Cache", "Messaging")
+                .add("Cache", cache, "Database")
+                .add("Search index", service("Search index", 600), "Database")
+                .add("Messaging", service("Messaging", 400), "Config")
+                .add("Database", service("Database", 400))
+                .add("Config", service("Config", 100));
+    }
+
+    private static Callable<String> service(String name, int initializationTime) {
+        return () -> {
+            try {
+                Thread.sleep(initializationTime);
+                System.out.println(name + " initialized successfully.");
+            } catch (InterruptedException e) {
+                System.out.println(name + " cancelled.");
+                throw e;
+            }
+            return "ok";
+        };
+    }
+
+    private static void runStage(ExecutorService executorService, Callable<?>... services) throws InterruptedException {
+        CountDownLatch countDownLatch = new CountDownLatch(services.length);
+        for (Callable<?> service : services) {
+            executorService.submit(() -> {
+                try {
+                    return service.call();
+                } finally {
+                    countDownLatch.countDown();
+                }
+            });
+        }
+        countDownLatch.await();
+    }
+}
@@ -0,0 +1,138 @@
+package ExecutorFramework;
+
+import java.util.Arrays;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h3><b>BSP Barrier Benchmark</b></h3>
+ * <p>
+ * Runs a 1-D heat diffusion stencil ({@code next[i] = current[i] + 0.25 * (current[i-1] - 2 current[i] + current[i+1])}) for many
+ * supersteps on a grid that is deliberately small, so that the time per superstep is mostly the barrier. Compares, at 2 - 64 threads:
+ * </p>
+ * <ul>
+ *     <li><b>CyclicBarrier:</b> a fixed slice per thread, the barrier action swaps the buffers.</li>
+ *     <li><b>Phaser flat:</b> {@link BspEngine} with all parties on one {@code Phaser}.</li>
+ *     <li><b>Phaser tiered:</b> {@link BspEngine} with at most 4 parties per child phaser.</li>
+ * </ul>
+ * <p>
+ * Every result is checked against a single-threaded run. The last run adds and removes workers while it is running.
+ * </p>
+ * <p>Usage: {@code java ExecutorFramework.T12_BspBarrierBenchmark [supersteps] [cellsPerThread]}.</p>
+ */
+public class T12_BspBarrierBenchmark {
+    private static final int[] THREADS = {2, 4, 8, 16, 32, 64};
+    private static final BspEngine.Kernel HEAT = (current, next, from, to, superstep) -> {
+        for (int i = Math.max(1, from); i < Math.min(to, current.length - 1); i++) {      // the two boundary cells stay fixed
+            next[i] = current[i] + 0.25 * (current[i - 1] - 2 * current[i] + current[i + 1]);
+        }
+    };
+
+    public static void main(String[] args) throws Exception {
+        int supersteps = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int cellsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+
+        System.out.printf("%8s%22s%22s%22s%n", "threads", "CyclicBarrier us/step", "Phaser flat us/step", "Phaser tiered us/step");
+        for (int threads : THREADS) {
+            double[] grid = initialGrid(threads * cellsPerThread);
+            double[] expected = sequential(grid, supersteps);
+
+            long start = System.nanoTime();
+            check(expected, cyclicBarrier(grid, supersteps, threads));
+            double barrier = (System.nanoTime() - start) / 1e3 / supersteps;
+
+            start = System.nanoTime();
+            check(expected, new BspEngine(HEAT, cellsPerThread, threads).run(grid, supersteps, threads));
+            double flat = (System.nanoTime() - start) / 1e3 / supersteps;
+
+            start = System.nanoTime();
+            check(expected, new BspEngine(HEAT, cellsPerThread, 4).run(grid, supersteps, threads));
+            double tiered = (System.nanoTime() - start) / 1e3 / supersteps;
+
+            System.out.printf("%8d%22.1f%22.1f%22.1f%n", threads, barrier, flat, tiered);
+        }
+
+        dynamicWorkers(supersteps, cellsPerThread);
+    }
+
+    private static void dynamicWorkers(int supersteps, int cellsPerThread) throws InterruptedException {
+        double[] grid = initialGrid(8 * cellsPerThread);
+        BspEngine engine = new BspEngine(HEAT, cellsPerThread, 4);
+        Thread resizer = new Thread(() -> {
+            while (engine.superstep() < supersteps / 3) {
+                LockSupport.parkNanos(100_000);
+            }
+            for (int i = 0; i < 4; i++) {
+                engine.addWorker();
+            }
+            while (engine.superstep() < 2 * supersteps / 3) {
+                LockSupport.parkNanos(100_000);
+            }
+            for (int i = 0; i < 6; i++) {
+                engine.removeWorker();
+            }
+        });
+        resizer.start();
+        double[] result = engine.run(grid, supersteps, 4);
+        resizer.join();
+        check(sequential(grid, supersteps), result);
+        System.out.println("4 workers, +4 after " + supersteps / 3 + " steps, -6 after " + 2 * supersteps / 3 + " steps: "
+                + engine.workers() + " at the end, result matches the single-threaded run");
+    }
+
+    private static double[] cyclicBarrier(double[] grid, int supersteps, int threads) throws InterruptedException {
+        double[][] buffers = {grid.clone(), grid.clone()};
+        CyclicBarrier cyclicBarrier = new CyclicBarrier(threads, () -> {
+            double[] swap = buffers[0];
+            buffers[0] = buffers[1];
+            buffers[1] = swap;
+        });
+        Thread[] workers = new Thread[threads];
+        int slice = (grid.length + threads - 1) / threads;
+        for (int t = 0; t < threads; t++) {
+            int from = t * slice;
+            int to = Math.min(grid.length, from + slice);
+            workers[t] = new Thread(() -> {
+                try {
+                    for (int step = 0; step < supersteps; step++) {
+                        HEAT.compute(buffers[0], buffers[1], from, to, step);
+                        cyclicBarrier.await();
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return buffers[0];
+    }
+
+    private static double[] sequential(double[] grid, int supersteps) {
+        double[] current = grid.clone();
+        double[] next = grid.clone();
+        for (int step = 0; step < supersteps; step++) {
+            HEAT.compute(current, next, 0, current.length, step);
+            double[] swap = current;
+            current = next;
+            next = swap;
+        }
+        return current;
+    }
+
+    private static double[] initialGrid(int cells) {
+        double[] grid = new double[cells];
+        grid[0] = 100;      // a hot left edge
+        grid[cells / 2] = 50;
+        return grid;
+    }
+
+    private static void check(double[] expected, double[] actual) {
+        if (!Arrays.equals(expected, actual)) {
+            throw new AssertionError("grid differs from the single-threaded run");
+        }
+    }
+}
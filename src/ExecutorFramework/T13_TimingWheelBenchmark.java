@@ -0,0 +1,122 @@
+package ExecutorFramework;
+
+import Metrics.LatencyHistogram;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <h3><b>Timing Wheel Benchmark</b></h3>
+ * <p>
+ * Compares {@link TimingWheelScheduler} with {@code ScheduledThreadPoolExecutor} (with {@code removeOnCancel}, so cancelled tasks
+ * don't pile up in its heap).
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Schedule/cancel:</b> each thread keeps {@code liveTimers / threads} timeouts of 1 - 60 seconds outstanding, and for
+ *         every new one it schedules it cancels its oldest one, like request timeouts that are almost never reached.</li>
+ *     <li><b>Jitter:</b> on a fresh scheduler, 2000 timers with delays of 10 - 500 ms; how late each one actually ran. The wheel ticks every millisecond,
+ *         so it should be up to ~1 ms late; the heap wakes up exactly on time but pays for it on every insert.</li>
+ * </ul>
+ * <p>Usage: {@code java ExecutorFramework.T13_TimingWheelBenchmark [threads] [liveTimers] [millis]}.</p>
+ */
+public class T13_TimingWheelBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int liveTimers = args.length > 1 ? Integer.parseInt(args[1]) : 400_000;
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 3000;
+
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        System.out.printf("%-26s%22s%12s%12s%12s%n", "scheduler", "schedule+cancel/s", "late p50", "late p99", "late max");
+        run("ScheduledThreadPool", () -> {
+            ScheduledThreadPoolExecutor heap = new ScheduledThreadPoolExecutor(4);
+            heap.setRemoveOnCancelPolicy(true);
+            return heap;
+        }, threads, liveTimers, millis);
+        run("TimingWheelScheduler 1ms", () -> new TimingWheelScheduler(1, TimeUnit.MILLISECONDS, workers), threads, liveTimers, millis);
+        workers.shutdown();
+    }
+
+    private static void run(String name, Supplier<ScheduledExecutorService> factory, int threads, int liveTimers, long millis) throws InterruptedException {
+        ScheduledExecutorService scheduler = factory.get();
+        long pairs = scheduleCancel(scheduler, threads, liveTimers, millis);
+        scheduler.shutdownNow();
+        System.gc();        // measure the jitter on a fresh scheduler, not while the garbage of the first part is collected
+
+        scheduler = factory.get();
+        LatencyHistogram.Snapshot late = jitter(scheduler);
+        System.out.printf("%-26s%22.0f%12.2f%12.2f%12.2f%n", name, pairs * 1000.0 / millis,
+                late.percentile(50) / 1e6, late.percentile(99) / 1e6, late.max() / 1e6);
+        scheduler.shutdownNow();
+    }
+
+    private static long scheduleCancel(ScheduledExecutorService scheduler, int threads, int liveTimers, long millis) throws InterruptedException {
+        Runnable timeout = () -> {
+            throw new AssertionError("timeout fired");
+        };
+        long[] counts = new long[threads];
+        Thread[] workers = new Thread[threads];
+        CountDownLatch startGate = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ScheduledFuture<?>[] outstanding = new ScheduledFuture<?>[liveTimers / threads];
+                for (int i = 0; i < outstanding.length; i++) {
+                    outstanding[i] = scheduler.schedule(timeout, random.nextLong(1000, 60_000), TimeUnit.MILLISECONDS);
+                }
+                try {
+                    startGate.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+                long count = 0;
+                int oldest = 0;
+                while ((count & 255) != 0 || System.nanoTime() < end) {
+                    outstanding[oldest].cancel(false);
+                    outstanding[oldest] = scheduler.schedule(timeout, random.nextLong(1000, 60_000), TimeUnit.MILLISECONDS);
+                    oldest = oldest + 1 == outstanding.length ? 0 : oldest + 1;
+                    count++;
+                }
+                for (ScheduledFuture<?> future : outstanding) {
+                    future.cancel(false);
+                }
+                counts[id] = count;
+            });
+            workers[t].start();
+        }
+        Thread.sleep(200);      // let every thread fill its timers first
+        startGate.countDown();
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total += counts[t];
+        }
+        return total;
+    }
+
+    private static LatencyHistogram.Snapshot jitter(ScheduledExecutorService scheduler) throws InterruptedException {
+        int timers = 2000;
+        LatencyHistogram late = new LatencyHistogram();
+        CountDownLatch fired = new CountDownLatch(timers);
+        for (int i = 0; i < timers; i++) {
+            long delay = ThreadLocalRandom.current().nextLong(10, 500);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+            scheduler.schedule(() -> {
+                late.record(System.nanoTime() - deadline);
+                fired.countDown();
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+        fired.await();
+        return late.snapshot();
+    }
+}
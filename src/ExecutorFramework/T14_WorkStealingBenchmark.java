@@ -0,0 +1,104 @@
+package ExecutorFramework;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * <h3><b>Work-Stealing Benchmark</b></h3>
+ * <p>
+ * Runs tasks of a fixed amount of CPU work (100 ns to 1 ms, calibrated at startup) on a fixed thread pool, a {@code ForkJoinPool}
+ * and the {@link WorkStealingExecutor}, all with the same number of threads. Each cell gets about the same total amount of work,
+ * so the columns compare how much of the time goes into handing out tasks.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>external:</b> the main thread submits every task, like a server handing requests to a pool.</li>
+ *     <li><b>fan-out:</b> the main thread submits one task per worker, and each of those submits its share of the tasks from inside
+ *         the pool, like a divide-and-conquer computation. This is where the per-worker deques pay off.</li>
+ * </ul>
+ * <p>The numbers are efficiency: the pure work time divided by the wall time, times the number of threads (100% = no overhead).</p>
+ * <p>Usage: {@code java ExecutorFramework.T14_WorkStealingBenchmark [threads] [millisOfWorkPerCell]}.</p>
+ */
+public class T14_WorkStealingBenchmark {
+    private static final long[] TASK_NANOS = {100, 1_000, 10_000, 100_000, 1_000_000};
+    private static volatile long blackhole;
+    private static double iterationsPerNano;
+
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long workMillis = args.length > 1 ? Long.parseLong(args[1]) : 500;
+        calibrate();
+
+        System.out.println("Threads: " + threads);
+        System.out.printf("%10s%10s%16s%16s%16s%n", "task", "tasks", "FixedPool", "ForkJoinPool", "WorkStealing");
+        for (boolean fanOut : new boolean[]{false, true}) {
+            System.out.println(fanOut ? "fan-out" : "external");
+            for (long taskNanos : TASK_NANOS) {
+                int tasks = (int) Math.min(2_000_000, TimeUnit.MILLISECONDS.toNanos(workMillis) * threads / taskNanos);
+                System.out.printf("%10s%10d%15.0f%%%15.0f%%%15.0f%%%n", format(taskNanos), tasks,
+                        run(Executors::newFixedThreadPool, threads, tasks, taskNanos, fanOut),
+                        run(ForkJoinPool::new, threads, tasks, taskNanos, fanOut),
+                        run(WorkStealingExecutor::new, threads, tasks, taskNanos, fanOut));
+            }
+        }
+    }
+
+    private static double run(IntFunction<ExecutorService> factory, int threads, int tasks, long taskNanos, boolean fanOut) {
+        ExecutorService executorService = factory.apply(threads);
+        long iterations = (long) (taskNanos * iterationsPerNano);
+        LongAdder done = new LongAdder();
+        Runnable task = () -> {
+            work(iterations);
+            done.increment();
+        };
+
+        long start = System.nanoTime();
+        if (fanOut) {
+            for (int w = 0; w < threads; w++) {
+                int share = tasks / threads + (w < tasks % threads ? 1 : 0);
+                executorService.execute(() -> {
+                    for (int i = 0; i < share; i++) {
+                        executorService.execute(task);
+                    }
+                });
+            }
+        } else {
+            for (int i = 0; i < tasks; i++) {
+                executorService.execute(task);
+            }
+        }
+        while (done.sum() < tasks) {
+            LockSupport.parkNanos(50_000);
+        }
+        long wall = System.nanoTime() - start;
+        executorService.shutdown();
+        return 100.0 * tasks * taskNanos / ((double) wall * threads);
+    }
+
+    private static void calibrate() {
+        long iterations = 1_000_000;
+        for (int round = 0; round < 5; round++) {       // warm up the loop, keep the last measurement
+            long start = System.nanoTime();
+            work(iterations);
+            iterationsPerNano = (double) iterations / (System.nanoTime() - start);
+            iterations *= 2;
+        }
+    }
+
+    private static void work(long iterations) {
+        long x = iterations;
+        for (long i = 0; i < iterations; i++) {
+            x = x * 6364136223846793005L + 1442695040888963407L;
+        }
+        blackhole = x;
+    }
+
+    private static String format(long nanos) {
+        return nanos < 1_000 ? nanos + " ns" : nanos < 1_000_000 ? nanos / 1_000 + " us" : nanos / 1_000_000 + " ms";
+    }
+}
@@ -0,0 +1,105 @@
+package ExecutorFramework;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <h3><b>Adaptive Pool Benchmark</b></h3>
+ * <p>
+ * Three workloads, each task computing for a while and then sleeping (standing in for I/O):
+ * </p>
+ * <ul>
+ *     <li><b>io-heavy:</b> 100 us CPU, 2 ms blocked, so {@code W / C = 20}.</li>
+ *     <li><b>cpu-bound:</b> 500 us CPU, nothing blocked.</li>
+ *     <li><b>mixed:</b> 300 us CPU, 300 us blocked.</li>
+ * </ul>
+ * <p>
+ * Every fixed pool size from 1 to 64 runs each workload with a full queue, which finds the best size by brute force.
+ * Then a single {@link AdaptiveThreadPool} runs the three workloads one after another, without being told anything, and has to
+ * find a good size for each on its own. It gets {@code 2 * millisPerRun} to settle before each measurement.
+ * </p>
+ * <p>Usage: {@code java ExecutorFramework.T15_AdaptivePoolBenchmark [millisPerRun]}.</p>
+ */
+public class T15_AdaptivePoolBenchmark {
+    private static final int[] FIXED_SIZES = {1, 2, 4, 8, 16, 32, 64};
+    private static final String[] NAMES = {"io-heavy", "cpu-bound", "mixed"};
+    private static final long[][] WORKLOADS = {{100_000, 2_000_000}, {500_000, 0}, {300_000, 300_000}};     // cpu ns, blocked ns
+    private static volatile long blackhole;
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", tasks/s");
+
+        System.out.printf("%-12s", "workload");
+        for (int size : FIXED_SIZES) {
+            System.out.printf("%10s", "fixed " + size);
+        }
+        System.out.printf("%12s%10s%10s%n", "adaptive", "threads", "W/C");
+
+        double[][] fixed = new double[WORKLOADS.length][FIXED_SIZES.length];
+        for (int w = 0; w < WORKLOADS.length; w++) {
+            for (int s = 0; s < FIXED_SIZES.length; s++) {
+                ExecutorService executorService = Executors.newFixedThreadPool(FIXED_SIZES[s]);
+                fixed[w][s] = run(executorService, WORKLOADS[w], millis);
+                executorService.shutdownNow();
+            }
+        }
+
+        AdaptiveThreadPool adaptive = new AdaptiveThreadPool(1, 64, 100, TimeUnit.MILLISECONDS);
+        for (int w = 0; w < WORKLOADS.length; w++) {
+            run(adaptive, WORKLOADS[w], 2 * millis);        // give it time to find its size
+            double throughput = run(adaptive, WORKLOADS[w], millis);
+            System.out.printf("%-12s", NAMES[w]);
+            for (double value : fixed[w]) {
+                System.out.printf("%10.0f", value);
+            }
+            System.out.printf("%12.0f%10d%10.1f%n", throughput, adaptive.getCorePoolSize(), adaptive.waitComputeRatio());
+        }
+        adaptive.shutdownNow();
+    }
+
+    /**
+     * Keeps the queue full for {@code millis} and returns the completed tasks per second.
+     */
+    private static double run(ExecutorService executorService, long[] workload, long millis) throws InterruptedException {
+        Semaphore backlog = new Semaphore(256);
+        LongAdder completed = new LongAdder();
+        long cpuNanos = workload[0];
+        long blockedNanos = workload[1];
+        Runnable task = () -> {
+            try {
+                long end = System.nanoTime() + cpuNanos;
+                long x = 0;
+                while (System.nanoTime() < end) {
+                    x += end * 31;
+                }
+                blackhole = x;
+                if (blockedNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(blockedNanos);
+                }
+                completed.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                backlog.release();
+            }
+        };
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        long countFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis / 4);     // skip the warm-up
+        long base = -1;
+        while (System.nanoTime() < end) {
+            if (base < 0 && System.nanoTime() >= countFrom) {
+                base = completed.sum();
+            }
+            if (backlog.tryAcquire(10, TimeUnit.MILLISECONDS)) {
+                executorService.execute(task);
+            }
+        }
+        long counted = completed.sum() - Math.max(base, 0);
+        backlog.acquire(256);       // let the queue drain before the next run
+        return counted * 1000.0 / (millis - millis / 4);
+    }
+}
@@ -0,0 +1,115 @@
+package ExecutorFramework;
+
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h3><b>Executor Telemetry Example</b></h3>
+ * <p>Four situations that look alike from the outside ("it is slow") but not through an {@link InstrumentedExecutor}:</p>
+ *
+ * <ul>
+ *     <li><b>Too few threads:</b> 200 tasks of 5 ms on 2 and on 20 threads. Execution time is the same, the queue wait is not.</li>
+ *     <li><b>Full queue:</b> bursts into a pool with a bounded queue and {@code AbortPolicy} show up as rejections.</li>
+ *     <li><b>Blocked scheduler:</b> a 10 ms fixed-rate tick shares a single scheduler thread with a task that blocks for 50 ms,
+ *         which shows up as scheduling lag.</li>
+ *     <li><b>Overhead:</b> a million empty tasks through a plain and an instrumented single thread executor.</li>
+ * </ul>
+ * <p>The overhead is measured first, with no recording running. The rest runs inside a JFR {@code RecordingStream} that counts the
+ * custom events it receives.</p>
+ * <p>Usage: {@code java ExecutorFramework.T16_ExecutorTelemetryExample}.</p>
+ */
+public class T16_ExecutorTelemetryExample {
+    public static void main(String[] args) throws Exception {
+        System.out.printf("overhead: plain %.0f ns/task, instrumented %.0f ns/task%n%n", overhead(false), overhead(true));
+
+        AtomicLong taskEvents = new AtomicLong();
+        AtomicLong rejectionEvents = new AtomicLong();
+        AtomicLong statisticsEvents = new AtomicLong();
+        try (RecordingStream stream = new RecordingStream()) {
+            stream.enable("ExecutorFramework.TaskExecution");       // off by default
+            stream.enable("ExecutorFramework.TaskRejected");
+            stream.enable("ExecutorFramework.ExecutorStatistics").withPeriod(Duration.ofSeconds(1));
+            stream.onEvent("ExecutorFramework.TaskExecution", event -> taskEvents.incrementAndGet());
+            stream.onEvent("ExecutorFramework.TaskRejected", event -> rejectionEvents.incrementAndGet());
+            stream.onEvent("ExecutorFramework.ExecutorStatistics", event -> statisticsEvents.incrementAndGet());
+            stream.startAsync();
+
+            for (int threads : new int[]{2, 20}) {
+                InstrumentedExecutor executor = new InstrumentedExecutor(threads + " threads", Executors.newFixedThreadPool(threads));
+                for (int i = 0; i < 200; i++) {
+                    executor.execute(() -> sleep(5));
+                }
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+                System.out.println(executor.snapshot());
+            }
+
+            InstrumentedExecutor bounded = new InstrumentedExecutor("bounded queue",
+                    new ThreadPoolExecutor(2, 2, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(10)));
+            for (int burst = 0; burst < 5; burst++) {
+                for (int i = 0; i < 20; i++) {
+                    try {
+                        bounded.execute(() -> sleep(2));
+                    } catch (RejectedExecutionException e) {
+                        // counted by the executor
+                    }
+                }
+                Thread.sleep(30);
+            }
+            bounded.shutdown();
+            bounded.awaitTermination(1, TimeUnit.MINUTES);
+            System.out.println(bounded.snapshot());
+
+            InstrumentedExecutor scheduler = new InstrumentedExecutor("scheduler", Executors.newScheduledThreadPool(1));
+            scheduler.scheduleAtFixedRate(() -> { }, 0, 10, TimeUnit.MILLISECONDS);
+            for (int i = 1; i <= 3; i++) {
+                scheduler.schedule(() -> sleep(50), i * 200L, TimeUnit.MILLISECONDS);
+            }
+            Thread.sleep(1200);     // long enough for a periodic statistics event as well
+            scheduler.shutdownNow();
+            System.out.println(scheduler.snapshot());
+
+            System.out.println();
+            Thread.sleep(1500);     // JFR flushes roughly once a second
+            System.out.printf("JFR events received: %d TaskExecution, %d TaskRejected, %d ExecutorStatistics%n",
+                    taskEvents.get(), rejectionEvents.get(), statisticsEvents.get());
+        }
+    }
+
+    private static double overhead(boolean instrumented) throws InterruptedException {
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            ExecutorService single = Executors.newSingleThreadExecutor();
+            ExecutorService executor = instrumented ? new InstrumentedExecutor("overhead", single) : single;
+            int tasks = 1_000_000;
+            CountDownLatch done = new CountDownLatch(1);
+            Runnable empty = () -> { };
+            long start = System.nanoTime();
+            for (int i = 1; i < tasks; i++) {
+                executor.execute(empty);
+            }
+            executor.execute(done::countDown);
+            done.await();
+            best = Math.min(best, (System.nanoTime() - start) / (double) tasks);
+            executor.shutdown();
+        }
+        return best;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
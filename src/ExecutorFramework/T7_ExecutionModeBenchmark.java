@@ -0,0 +1,115 @@
+package ExecutorFramework;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <h3><b>Execution Mode Benchmark</b></h3>
+ * <p>
+ * Runs sleep-bound tasks, like the {@code factorial} tasks of {@link T0_ExecutorFramework}, in every {@link ExecutionMode}
+ * with 50 up to 1,000,000 tasks, and reports wall time, peak platform threads, peak number of tasks running at once, and peak heap.
+ * </p>
+ *
+ * <ul>
+ *     <li>The fixed pool is skipped when {@code tasks / 10 * sleep} would take longer than the time limit.</li>
+ *     <li>The cached pool is skipped above 10,000 tasks: it would try to start one OS thread per task.</li>
+ *     <li><b>VIRTUAL + synchronized</b> sleeps inside a {@code synchronized} block. Each virtual thread is then pinned to its carrier
+ *         while it sleeps, so only as many tasks as there are carriers (one per core) make progress at once.
+ *         A {@link PinningMonitor} reports the pinned events and where they came from.</li>
+ * </ul>
+ * <p>Usage: {@code java ExecutorFramework.T7_ExecutionModeBenchmark [sleepMillis] [maxSecondsPerRun]}.</p>
+ */
+public class T7_ExecutionModeBenchmark {
+    private static final int[] TASK_COUNTS = {50, 1_000, 10_000, 100_000, 1_000_000};
+    private static final int POOL_SIZE = 10;
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        long sleepMillis = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        long maxSeconds = args.length > 1 ? Long.parseLong(args[1]) : 30;
+        int carriers = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Each task sleeps " + sleepMillis + " ms. Fixed pool size " + POOL_SIZE + ", " + carriers + " carrier threads.");
+        System.out.printf("%-26s%10s%12s%16s%16s%14s%n", "mode", "tasks", "wall ms", "peak threads", "peak running", "peak heap MB");
+
+        for (int tasks : TASK_COUNTS) {
+            if (estimateSeconds(tasks, POOL_SIZE, sleepMillis) <= maxSeconds) {
+                run("FIXED_POOL", ExecutionMode.FIXED_POOL, tasks, sleepMillis, false);
+            } else {
+                skip("FIXED_POOL", tasks, "would take ~" + estimateSeconds(tasks, POOL_SIZE, sleepMillis) + " s");
+            }
+            if (tasks <= 10_000) {
+                run("CACHED_POOL", ExecutionMode.CACHED_POOL, tasks, sleepMillis, false);
+            } else {
+                skip("CACHED_POOL", tasks, "one OS thread per task");
+            }
+            run("VIRTUAL_PER_TASK", ExecutionMode.VIRTUAL_PER_TASK, tasks, sleepMillis, false);
+        }
+
+        System.out.println();
+        try (PinningMonitor monitor = PinningMonitor.start(Duration.ofMillis(1))) {
+            int tasks = (int) Math.min(1_000, maxSeconds * 1000 / sleepMillis * carriers);
+            run("VIRTUAL + synchronized", ExecutionMode.VIRTUAL_PER_TASK, tasks, sleepMillis, true);
+            System.out.println(monitor.report());
+        }
+    }
+
+    private static long estimateSeconds(int tasks, int threads, long sleepMillis) {
+        return (tasks + threads - 1) / threads * sleepMillis / 1000;
+    }
+
+    private static void skip(String name, int tasks, String reason) {
+        System.out.printf("%-26s%10d   skipped: %s%n", name, tasks, reason);
+    }
+
+    private static void run(String name, ExecutionMode mode, int tasks, long sleepMillis, boolean pinned) throws InterruptedException {
+        System.gc();
+        THREADS.resetPeakThreadCount();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peakRunning = new AtomicInteger();
+
+        long start = System.nanoTime();
+        ExecutorService executorService = mode.newExecutor(POOL_SIZE);
+        for (int i = 0; i < tasks; i++) {
+            Object monitor = new Object();
+            executorService.submit(() -> {
+                peakRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    if (pinned) {
+                        synchronized (monitor) {        // blocking while holding a monitor pins the virtual thread
+                            Thread.sleep(sleepMillis);
+                        }
+                    } else {
+                        Thread.sleep(sleepMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+        executorService.shutdown();
+        while (!executorService.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+            // keep waiting
+        }
+        long wall = (System.nanoTime() - start) / 1_000_000;
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        System.out.printf("%-26s%10d%12d%16d%16d%14d%n", name, tasks, wall, THREADS.getPeakThreadCount(), peakRunning.get(), peakHeap >> 20);
+    }
+}
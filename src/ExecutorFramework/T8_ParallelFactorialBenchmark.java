@@ -0,0 +1,67 @@
+package ExecutorFramework;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <h3><b>Parallel Factorial Benchmark</b></h3>
+ * <p>
+ * Computes {@code n!} with the naive loop, the {@link ParallelFactorial} product tree on one worker and on all cores,
+ * and the prime swing algorithm on all cores, and checks that all of them agree.
+ * </p>
+ * <p>
+ * The naive loop is quadratic, so it is skipped above {@code maxNaive} (default 200,000, which already takes seconds).
+ * The product tree with one worker shows how much comes from the balanced multiplications alone; the difference to all cores
+ * is what fork/join adds.
+ * </p>
+ * <p>Usage: {@code java ExecutorFramework.T8_ParallelFactorialBenchmark [maxN] [maxNaive]}.</p>
+ */
+public class T8_ParallelFactorialBenchmark {
+
+    public static void main(String[] args) {
+        int maxN = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int maxNaive = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ParallelFactorial parallel = new ParallelFactorial(ForkJoinPool.commonPool(), 256);
+        ForkJoinPool single = new ForkJoinPool(1);
+        ParallelFactorial oneWorker = new ParallelFactorial(single, 256);
+
+        System.out.println("Cores: " + cores);
+        System.out.printf("%10s%14s%14s%18s%16s%16s%n", "n", "bits", "naive ms", "tree 1 worker ms", "tree all ms", "swing all ms");
+        for (int n = 10_000; n <= maxN; n *= 10) {
+            run(n, maxNaive, parallel, oneWorker);
+        }
+        single.shutdown();
+    }
+
+    private static void run(int n, int maxNaive, ParallelFactorial parallel, ParallelFactorial oneWorker) {
+        parallel.factorial(n / 10);         // warm up
+        parallel.primeSwingFactorial(n / 10);
+
+        String naiveMillis = "skipped";
+        BigInteger naive = null;
+        if (n <= maxNaive) {
+            long start = System.nanoTime();
+            naive = ParallelFactorial.sequentialFactorial(n);
+            naiveMillis = String.valueOf((System.nanoTime() - start) / 1_000_000);
+        }
+
+        long start = System.nanoTime();
+        BigInteger treeOne = oneWorker.factorial(n);
+        long treeOneMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        BigInteger tree = parallel.factorial(n);
+        long treeMillis = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        BigInteger swing = parallel.primeSwingFactorial(n);
+        long swingMillis = (System.nanoTime() - start) / 1_000_000;
+
+        if (!tree.equals(treeOne) || !tree.equals(swing) || (naive != null && !tree.equals(naive))) {
+            throw new AssertionError("results differ for n = " + n);
+        }
+        System.out.printf("%10d%14d%14s%18d%16d%16d%n", n, tree.bitLength(), naiveMillis, treeOneMillis, treeMillis, swingMillis);
+    }
+}
@@ -0,0 +1,100 @@
+package ExecutorFramework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h3><b>Streaming invokeAll</b></h3>
+ * <p>
+ * Same fan-out as {@link T1_InvokeAndInvokeAll}, but with skewed task durations: most tasks take 10 - 100 ms, a few take 2 seconds.
+ * {@code invokeAll} makes every result wait for the slowest task; a {@link CompletionBatch} hands out each result when it is ready.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>All results:</b> the total time is the same, but with the batch the first result is there after ~10 ms instead of ~2 s.</li>
+ *     <li><b>First 5 successes:</b> the batch returns after the 5th fastest task and cancels the slow ones.</li>
+ *     <li><b>Deadline:</b> a 500 ms batch returns every result that made it in time and cancels the rest.</li>
+ *     <li><b>Predicate:</b> {@code firstMatching} stops at the first result above a threshold.</li>
+ * </ul>
+ */
+public class T9_StreamingInvokeAllExample {
+    private static final int TASKS = 20;
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        ExecutorService executorService = Executors.newFixedThreadPool(TASKS);
+
+        System.out.println("----------invokeAll");
+        long start = System.nanoTime();
+        List<Future<Integer>> futures = executorService.invokeAll(tasks());        // blocks until the slowest task is done
+        long firstMillis = millisSince(start);
+        List<Integer> all = new ArrayList<>();
+        for (Future<Integer> future : futures) {
+            all.add(future.get());
+        }
+        System.out.println("first result after " + firstMillis + " ms, all " + all.size() + " after " + millisSince(start) + " ms");
+
+        System.out.println("----------CompletionBatch, all results");
+        start = System.nanoTime();
+        try (CompletionBatch<Integer> batch = CompletionBatch.submit(executorService, tasks())) {
+            long first = -1;
+            int count = 0;
+            for (Future<Integer> future = batch.next(); future != null; future = batch.next()) {       // completion order
+                if (first < 0) {
+                    first = millisSince(start);
+                }
+                future.get();
+                count++;
+            }
+            System.out.println("first result after " + first + " ms, all " + count + " after " + millisSince(start) + " ms");
+        }
+
+        System.out.println("----------First 5 successes");
+        start = System.nanoTime();
+        try (CompletionBatch<Integer> batch = CompletionBatch.submit(executorService, tasks())) {
+            List<Integer> fastest = batch.firstSuccesses(5);
+            System.out.println(fastest + " after " + millisSince(start) + " ms (invokeAll: " + firstMillis + " ms)");
+        }
+
+        System.out.println("----------Deadline 500 ms");
+        start = System.nanoTime();
+        try (CompletionBatch<Integer> batch = CompletionBatch.submit(executorService, tasks(), 500, TimeUnit.MILLISECONDS)) {
+            List<Integer> inTime = batch.successes().toList();
+            System.out.println(inTime.size() + " of " + TASKS + " results after " + millisSince(start) + " ms, timed out: " + batch.timedOut());
+        }
+
+        System.out.println("----------First result above 90");
+        start = System.nanoTime();
+        try (CompletionBatch<Integer> batch = CompletionBatch.submit(executorService, tasks())) {
+            Optional<Integer> found = batch.firstMatching(result -> result > 90);
+            System.out.println(found.orElse(null) + " after " + millisSince(start) + " ms");
+        }
+
+        executorService.shutdown();
+    }
+
+    /**
+     * Task {@code i} sleeps {@code 10 + 5 * i} ms and returns that number, except every 5th task, which sleeps 2 seconds.
+     */
+    private static List<Callable<Integer>> tasks() {
+        List<Callable<Integer>> callables = new ArrayList<>();
+        for (int i = 0; i < TASKS; i++) {
+            int millis = i % 5 == 4 ? 2000 : 10 + 5 * i;
+            callables.add(() -> {
+                Thread.sleep(millis);
+                return millis;
+            });
+        }
+        return callables;
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
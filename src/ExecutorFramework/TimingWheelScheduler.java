@@ -0,0 +1,433 @@
+package ExecutorFramework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h3><b>Timing Wheel Scheduler</b></h3>
+ * <p>
+ * {@code Executors.newScheduledThreadPool} (see {@link T6_ScheduledExecutorServiceExample}) keeps its tasks in a binary heap behind
+ * one lock: scheduling and cancelling cost {@code O(log n)} each and every thread contends on that lock. Timeouts are mostly
+ * scheduled and then cancelled because the awaited thing happened in time, so that is the cost that matters.
+ * </p>
+ * <p>
+ * This scheduler keeps its timers in a <b>hierarchical timing wheel</b>, like a clock with {@value #LEVELS} hands. The time is divided
+ * into ticks. Level 0 has {@value #WHEEL_SIZE} slots of one tick each, level 1 has {@value #WHEEL_SIZE} slots of
+ * {@value #WHEEL_SIZE} ticks each, and so on. A timer goes into the slot of the lowest level that reaches its deadline.
+ * Whenever a higher-level slot comes around, its timers are <i>cascaded</i> down into finer slots, and when the level-0 hand
+ * reaches a slot, its timers fire.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@code O(1)} schedule and cancel:</b> {@code schedule} only pushes the timer onto a lock-free stack with one CAS, and
+ *         {@code cancel} onto another. The stacks link the timers themselves, so neither allocates anything. The single <b>tick thread</b> owns the wheel: once per tick it moves new timers into their slots and unlinks
+ *         cancelled ones from their slot's linked list, neither of which depends on the number of timers.</li>
+ *     <li><b>Workers:</b> the tick thread never runs a task itself. Fired tasks are handed to the {@code workers} executor, so a slow
+ *         task can't delay other timers. The executor belongs to the caller and is not shut down with the scheduler.</li>
+ *     <li><b>Precision:</b> a task never runs early, and runs at most about one tick late (plus the delay of the worker executor).
+ *         Delays of 0 or less are handed to the workers right away. Delays beyond the top level (about 2 years at 1 ms ticks)
+ *         are parked in the farthest slot and cascaded again.</li>
+ *     <li><b>Shutdown</b> works like {@code ScheduledThreadPoolExecutor}'s defaults: {@code shutdown()} cancels periodic tasks
+ *         but lets delayed ones still fire; {@code shutdownNow()} returns the tasks that never ran. The scheduler is terminated once
+ *         the tick thread has handed off its last task.</li>
+ * </ul>
+ */
+public final class TimingWheelScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+    private static final int WHEEL_BITS = 9;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    private final Executor workers;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timer<?>[][] heads = new Timer<?>[LEVELS][WHEEL_SIZE];
+    private final AtomicReference<Timer<?>> added = new AtomicReference<>();          // stacks linked through Timer.nextAdded
+    private final AtomicReference<Timer<?>> cancelled = new AtomicReference<>();      // and Timer.nextCancelled
+    private final CompletableFuture<List<Runnable>> neverRun = new CompletableFuture<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final Thread tickThread;
+    private volatile int runState = RUNNING;
+    private volatile boolean tickThreadDone;
+    private long tick;          // the next tick to process; only the tick thread touches the wheel, tick and size
+    private int size;
+
+    public TimingWheelScheduler(long tick, TimeUnit unit, Executor workers) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("tick must be positive: " + tick);
+        }
+        this.tickNanos = unit.toNanos(tick);
+        this.workers = workers;
+        this.startNanos = System.nanoTime();
+        this.tickThread = new Thread(this::runTicks, "timing-wheel-tick");
+        this.tickThread.setDaemon(true);
+        this.tickThread.start();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return enqueue(new Timer<Void>(command, null, deadline(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return enqueue(new Timer<>(callable, deadline(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + period);
+        }
+        return enqueue(new Timer<Void>(command, null, deadline(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be positive: " + delay);
+        }
+        return enqueue(new Timer<Void>(command, null, deadline(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (runState == RUNNING) {
+            runState = SHUTDOWN;
+            LockSupport.unpark(tickThread);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        runState = STOP;
+        LockSupport.unpark(tickThread);
+        return neverRun.join();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private static long deadline(long delay, TimeUnit unit) {
+        return System.nanoTime() + Math.min(unit.toNanos(delay), Long.MAX_VALUE / 4);     // no overflow for "never"
+    }
+
+    private <V> Timer<V> enqueue(Timer<V> timer) {
+        if (runState != RUNNING) {
+            throw new RejectedExecutionException("scheduler is shut down");
+        }
+        if (timer.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+            workers.execute(timer);
+            return timer;
+        }
+        pushAdded(timer);
+        if (tickThreadDone) {
+            cancelAdded();      // raced with termination, nobody is left to fire it
+        }
+        return timer;
+    }
+
+    private void reschedule(Timer<?> timer) {
+        if (runState != RUNNING) {
+            timer.cancel(false);        // periodic tasks end with shutdown()
+            return;
+        }
+        pushAdded(timer);
+        if (tickThreadDone) {
+            cancelAdded();
+        }
+    }
+
+    private void pushAdded(Timer<?> timer) {
+        Timer<?> head;
+        do {
+            head = added.get();
+            timer.nextAdded = head;
+        } while (!added.compareAndSet(head, timer));
+    }
+
+    private void pushCancelled(Timer<?> timer) {
+        Timer<?> head;
+        do {
+            head = cancelled.get();
+            timer.nextCancelled = head;
+        } while (!cancelled.compareAndSet(head, timer));
+    }
+
+    private void cancelAdded() {
+        for (Timer<?> timer = added.getAndSet(null); timer != null; ) {
+            Timer<?> next = timer.nextAdded;
+            timer.nextAdded = null;
+            timer.cancel(false);
+            timer = next;
+        }
+    }
+
+    private void runTicks() {
+        boolean periodicCancelled = false;
+        try {
+            while (true) {
+                transferAdded();
+                transferCancelled();
+                int state = runState;
+                if (state == STOP) {
+                    neverRun.complete(drainAll());
+                    return;
+                }
+                if (state == SHUTDOWN) {
+                    if (!periodicCancelled) {
+                        cancelPeriodic();
+                        periodicCancelled = true;
+                        continue;       // unlink them before checking whether anything is left
+                    }
+                    if (size == 0 && added.get() == null) {
+                        return;
+                    }
+                }
+                long now = System.nanoTime();
+                while (now - (startNanos + tick * tickNanos) >= 0) {
+                    expire(tick);
+                    tick++;
+                }
+                long wait = startNanos + tick * tickNanos - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(this, wait);
+                }
+            }
+        } finally {
+            tickThreadDone = true;
+            cancelAdded();
+            neverRun.complete(List.of());
+            terminated.countDown();
+        }
+    }
+
+    private void transferAdded() {
+        for (Timer<?> timer = added.getAndSet(null); timer != null; ) {
+            Timer<?> next = timer.nextAdded;
+            timer.nextAdded = null;         // a periodic timer may be pushed again as soon as it has run
+            if (!timer.isCancelled()) {
+                long nanos = timer.deadlineNanos - startNanos;
+                timer.deadlineTick = (nanos + tickNanos - 1) / tickNanos;       // round up, never fire early
+                insert(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void transferCancelled() {
+        for (Timer<?> timer = cancelled.getAndSet(null); timer != null; ) {
+            Timer<?> next = timer.nextCancelled;
+            timer.nextCancelled = null;
+            if (timer.level >= 0) {
+                unlink(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void insert(Timer<?> timer) {
+        long delta = timer.deadlineTick - tick;
+        if (delta < 0) {
+            fire(timer);        // already due
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (WHEEL_BITS * (level + 1))) {
+                link(timer, level, (int) (timer.deadlineTick >>> (WHEEL_BITS * level)) & MASK);
+                return;
+            }
+        }
+        int top = LEVELS - 1;
+        link(timer, top, (int) ((tick >>> (WHEEL_BITS * top)) + MASK) & MASK);        // beyond the wheel: farthest slot, cascaded again later
+    }
+
+    /**
+     * Processes tick {@code t}: cascades the higher-level slots that come around at {@code t}, then fires level-0 slot {@code t}.
+     */
+    private void expire(long t) {
+        int levels = 0;
+        while (levels < LEVELS - 1 && (t & ((1L << (WHEEL_BITS * (levels + 1))) - 1)) == 0) {
+            levels++;
+        }
+        for (int level = levels; level >= 1; level--) {
+            Timer<?> timer = heads[level][(int) (t >>> (WHEEL_BITS * level)) & MASK];
+            while (timer != null) {
+                Timer<?> next = timer.next;
+                unlink(timer);
+                insert(timer);
+                timer = next;
+            }
+        }
+        Timer<?> timer = heads[0][(int) t & MASK];
+        while (timer != null) {
+            Timer<?> next = timer.next;
+            unlink(timer);
+            fire(timer);        // a level-0 slot only ever holds timers due at this tick
+            timer = next;
+        }
+    }
+
+    private void fire(Timer<?> timer) {
+        try {
+            workers.execute(timer);
+        } catch (RejectedExecutionException e) {
+            timer.cancel(false);
+        }
+    }
+
+    private void cancelPeriodic() {
+        for (Timer<?>[] wheel : heads) {
+            for (Timer<?> timer : wheel) {
+                for (; timer != null; timer = timer.next) {
+                    if (timer.isPeriodic()) {
+                        timer.cancel(false);        // unlinked by transferCancelled
+                    }
+                }
+            }
+        }
+    }
+
+    private List<Runnable> drainAll() {
+        List<Runnable> tasks = new ArrayList<>(size);
+        for (Timer<?>[] wheel : heads) {
+            for (Timer<?> timer : wheel) {
+                while (timer != null) {
+                    Timer<?> next = timer.next;
+                    unlink(timer);
+                    tasks.add(timer);
+                    timer = next;
+                }
+            }
+        }
+        for (Timer<?> timer = added.getAndSet(null); timer != null; timer = timer.nextAdded) {
+            if (!timer.isCancelled()) {
+                tasks.add(timer);
+            }
+        }
+        return tasks;
+    }
+
+    private void link(Timer<?> timer, int level, int slot) {
+        Timer<?> head = heads[level][slot];
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        heads[level][slot] = timer;
+        size++;
+    }
+
+    private void unlink(Timer<?> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            heads[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.level = -1;
+        size--;
+    }
+
+    private final class Timer<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+        private final long period;          // 0 = one-shot, > 0 = fixed rate, < 0 = fixed delay
+        private volatile long deadlineNanos;
+        Timer<?> nextAdded;                 // written before the CAS that publishes the timer
+        Timer<?> nextCancelled;
+        long deadlineTick;                  // the fields below belong to the tick thread
+        Timer<?> prev;
+        Timer<?> next;
+        int level = -1;
+        int slot;
+
+        Timer(Callable<V> callable, long deadlineNanos, long period) {
+            super(callable);
+            this.deadlineNanos = deadlineNanos;
+            this.period = period;
+        }
+
+        Timer(Runnable runnable, V result, long deadlineNanos, long period) {
+            super(runnable, result);
+            this.deadlineNanos = deadlineNanos;
+            this.period = period;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (runAndReset()) {
+                deadlineNanos = period > 0 ? deadlineNanos + period : System.nanoTime() - period;
+                reschedule(this);
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean wasCancelled = super.cancel(mayInterruptIfRunning);
+            if (wasCancelled) {
+                pushCancelled(this);        // the tick thread unlinks it from its slot
+            }
+            return wasCancelled;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package ExecutorFramework;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h3><b>Work-Stealing Executor</b></h3>
+ * <p>
+ * {@code Executors.newFixedThreadPool} (used all over {@link T0_ExecutorFramework}) has one {@code LinkedBlockingQueue} shared by
+ * every worker and every submitter. For tasks that run in microseconds, taking them out of that queue (a lock, plus a cache line that
+ * bounces between all cores) costs more than running them.
+ * </p>
+ * <p>
+ * Here every worker owns a <b>deque</b>. A task submitted by a running task (from a worker thread) goes onto the bottom of that worker's
+ * own deque, and the worker takes its next task from the bottom too, so in the common case a task never leaves its core and no other
+ * thread is involved. Only an idle worker looks elsewhere: it <b>steals</b> from the <i>top</i> of a randomly chosen victim's deque.
+ * The owner and the thieves work on opposite ends, so they only compete for the very last task.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Deque:</b> a Chase-Lev deque: a growable circular array with a {@code bottom} written only by the owner and a {@code top}
+ *         advanced by CAS. {@code push} and {@code pop} are a few plain reads and writes; only a thief, or the owner taking the last task,
+ *         needs a CAS.</li>
+ *     <li><b>External submissions</b> (from threads that aren't workers) go into a lock-free inbox of one worker, picked by the
+ *         submitting thread, so different submitters mostly use different inboxes. Idle workers steal from inboxes too.</li>
+ *     <li><b>Idle workers</b> park after a scan that found nothing. A submission wakes one parked worker, if there is one.</li>
+ *     <li><b>Shutdown:</b> after {@code shutdown()} external submissions are rejected, but tasks may still submit subtasks, so a
+ *         divide-and-conquer computation can finish. Workers exit once every deque and inbox is empty.</li>
+ * </ul>
+ */
+public class WorkStealingExecutor extends AbstractExecutorService {
+    private static final int RUNNING = 0;
+    private static final int SHUTDOWN = 1;
+    private static final int STOP = 2;
+
+    private final Worker[] workers;
+    private final ConcurrentLinkedQueue<Worker> sleepers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger liveWorkers;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private volatile int runState = RUNNING;
+
+    public WorkStealingExecutor(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        workers = new Worker[parallelism];
+        liveWorkers = new AtomicInteger(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (Thread.currentThread() instanceof Worker worker && worker.pool() == this && runState < STOP) {
+            worker.deque.push(task);        // local: no other thread involved
+            signalWork();
+            return;
+        }
+        if (runState != RUNNING) {
+            throw new RejectedExecutionException("executor is shut down");
+        }
+        ConcurrentLinkedQueue<Runnable> inbox = workers[(int) (Thread.currentThread().threadId() % workers.length)].inbox;
+        inbox.add(task);
+        signalWork();
+        if (liveWorkers.get() == 0 && inbox.remove(task)) {
+            throw new RejectedExecutionException("executor is shut down");      // raced with termination, nobody is left to run it
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (runState == RUNNING) {
+            runState = SHUTDOWN;
+            wakeAll();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        runState = STOP;
+        List<Runnable> neverRun = new ArrayList<>();
+        for (Worker worker : workers) {
+            for (Runnable task = worker.inbox.poll(); task != null; task = worker.inbox.poll()) {
+                neverRun.add(task);
+            }
+            for (Runnable task = worker.deque.steal(); task != null || !worker.deque.isEmpty(); task = worker.deque.steal()) {
+                if (task != null) {
+                    neverRun.add(task);
+                }
+            }
+            worker.interrupt();
+        }
+        wakeAll();
+        return neverRun;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return runState != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    public int parallelism() {
+        return workers.length;
+    }
+
+    private void signalWork() {
+        Worker sleeper = sleepers.poll();
+        if (sleeper != null) {
+            sleeper.queued = false;
+            LockSupport.unpark(sleeper);
+        }
+    }
+
+    private void wakeAll() {
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final TaskDeque deque = new TaskDeque();
+        private final ConcurrentLinkedQueue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+        private final int index;
+        private volatile boolean queued;        // in sleepers
+
+        Worker(int index) {
+            super("work-stealing-worker-" + index);
+            this.index = index;
+            setDaemon(true);
+        }
+
+        WorkStealingExecutor pool() {
+            return WorkStealingExecutor.this;
+        }
+
+        @Override
+        public void run() {
+            boolean exited = false;
+            try {
+                while (true) {
+                    Runnable task = findTask();
+                    if (task != null) {
+                        runTask(task);
+                        continue;
+                    }
+                    int state = runState;
+                    if (state == STOP) {
+                        return;
+                    }
+                    if (state == SHUTDOWN) {
+                        if (tryExit()) {
+                            exited = true;
+                            return;
+                        }
+                        continue;
+                    }
+                    if (!queued) {
+                        queued = true;
+                        sleepers.add(this);         // publish that we are idle, then look once more
+                    }
+                    task = findTask();
+                    if (task != null) {
+                        runTask(task);
+                        continue;
+                    }
+                    if (runState == RUNNING) {
+                        LockSupport.park(this);
+                    }
+                }
+            } finally {
+                if (!exited && liveWorkers.decrementAndGet() == 0) {
+                    terminated.countDown();
+                }
+            }
+        }
+
+        /**
+         * Called with nothing left to find during shutdown; returns {@code true} if this worker has left. The last worker to leave
+         * checks the inboxes once more, because an external submission may have slipped in after the check of {@code runState}.
+         */
+        private boolean tryExit() {
+            if (liveWorkers.decrementAndGet() > 0) {
+                return true;
+            }
+            for (Worker worker : workers) {
+                if (!worker.inbox.isEmpty()) {
+                    liveWorkers.incrementAndGet();
+                    return false;
+                }
+            }
+            terminated.countDown();
+            return true;
+        }
+
+        private Runnable findTask() {
+            Runnable task = deque.pop();
+            if (task == null) {
+                task = inbox.poll();
+            }
+            if (task == null) {
+                task = steal();
+            }
+            return task;
+        }
+
+        private Runnable steal() {
+            int n = workers.length;
+            int start = n == 1 ? 0 : ThreadLocalRandom.current().nextInt(n);
+            for (int i = 0; i < n; i++) {
+                Worker victim = workers[(start + i) % n];
+                if (victim == this) {
+                    continue;
+                }
+                Runnable task = victim.deque.steal();
+                if (task == null) {
+                    task = victim.inbox.poll();
+                }
+                if (task != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                getUncaughtExceptionHandler().uncaughtException(this, e);       // like a pool thread would, but keep the worker
+            }
+            if (runState != STOP) {
+                Thread.interrupted();       // an interrupt meant for the task must not leak into the next one
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Worker " + index;
+        }
+    }
+
+    /**
+     * Chase-Lev work-stealing deque. Only the owner calls {@code push} and {@code pop}; anybody may call {@code steal}.
+     */
+    private static final class TaskDeque {
+        private static final VarHandle TOP;
+        private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Runnable[].class);
+
+        static {
+            try {
+                TOP = MethodHandles.lookup().findVarHandle(TaskDeque.class, "top", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private volatile long top;          // next task to steal
+        private volatile long bottom;       // next free slot, written only by the owner
+        private volatile Runnable[] array = new Runnable[1 << 10];
+
+        void push(Runnable task) {
+            long b = bottom;
+            long t = top;
+            Runnable[] a = array;
+            if (b - t >= a.length - 1) {
+                a = grow(a, t, b);
+            }
+            SLOTS.setRelease(a, (int) b & (a.length - 1), task);
+            bottom = b + 1;
+        }
+
+        Runnable pop() {
+            long b = bottom - 1;
+            Runnable[] a = array;
+            bottom = b;         // volatile write, then read top: a thief either sees the smaller bottom or we see its larger top
+            long t = top;
+            if (t > b) {
+                bottom = b + 1;     // empty
+                return null;
+            }
+            int i = (int) b & (a.length - 1);
+            Runnable task = a[i];
+            if (t == b) {           // the last task, a thief may be after it as well
+                if (!TOP.compareAndSet(this, t, t + 1)) {
+                    task = null;
+                }
+                bottom = b + 1;
+            }
+            if (task != null) {
+                a[i] = null;
+            }
+            return task;
+        }
+
+        Runnable steal() {
+            long t = top;
+            long b = bottom;
+            if (t >= b) {
+                return null;
+            }
+            Runnable[] a = array;       // read after bottom, so it is at least the array that bottom was written for
+            int i = (int) t & (a.length - 1);
+            Runnable task = (Runnable) SLOTS.getAcquire(a, i);
+            if (task == null || !TOP.compareAndSet(this, t, t + 1)) {
+                return null;        // lost the race, the caller moves on
+            }
+            SLOTS.compareAndSet(a, i, task, null);      // unless the owner has reused the slot already
+            return task;
+        }
+
+        boolean isEmpty() {
+            return top >= bottom;
+        }
+
+        private Runnable[] grow(Runnable[] old, long t, long b) {
+            Runnable[] a = new Runnable[old.length * 2];
+            for (long i = t; i < b; i++) {
+                a[(int) i & (a.length - 1)] = old[(int) i & (old.length - 1)];
+            }
+            array = a;
+            return a;
+        }
+    }
+}
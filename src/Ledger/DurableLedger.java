@@ -0,0 +1,134 @@
+package Ledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h3><b>Durable Ledger</b></h3>
+ * <p>
+ * The balances in {@code Locks.T2_BankAccount}, {@code Locks.T3_BankAccountWithLock} and {@link ShardedLedger} live only in memory,
+ * so a restart loses them. This wraps a {@link ShardedLedger} with a {@link TransactionLog} and periodic {@link LedgerSnapshot}s.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Logging:</b> every successful deposit, withdrawal and transfer is appended to the log while the ledger still holds the
+ *         shard lock(s), before the balances change. Refused operations change nothing and aren't logged.</li>
+ *     <li><b>Durability:</b> a change is durable once the log has been synced, every {@code syncEvery} records or on {@link #sync()}.
+ *         The group sync runs after the shard locks are released, by whichever caller made the log reach {@code syncEvery}.
+ *         Callers that must not acknowledge a transaction before it is on disk should call {@code sync()} first.</li>
+ *     <li><b>Snapshots:</b> {@link #snapshot()} copies all balances under all shard locks, together with the last log sequence number,
+ *         so the two are consistent. Log segments the snapshot covers are then deleted.</li>
+ *     <li><b>Recovery</b> ({@link #open}): load the snapshot if there is one, then replay the log records after it. Replaying is a
+ *         sequential scan of mapped files adding to {@code long[]} arrays, which is why it's fast.</li>
+ * </ul>
+ */
+public class DurableLedger implements AutoCloseable {
+    private final Path directory;
+    private final ShardedLedger ledger;
+    private final TransactionLog log;
+    private final long recoveredRecords;
+    private ScheduledExecutorService snapshotScheduler;
+
+    private DurableLedger(Path directory, ShardedLedger ledger, TransactionLog log, long recoveredRecords) {
+        this.directory = directory;
+        this.ledger = ledger;
+        this.log = log;
+        this.recoveredRecords = recoveredRecords;
+        ledger.journal = new ShardedLedger.Journal() {
+            @Override
+            public void record(int op, int account, int to, long amount) {
+                log.append(op, account, to, amount);
+            }
+
+            @Override
+            public void committed() {
+                log.syncIfDue();        // outside the shard locks, so a slow disk doesn't hold up other accounts
+            }
+        };
+    }
+
+    /**
+     * Opens the ledger stored in {@code directory}, recovering it from the snapshot and log there, or creates a new one with
+     * every account at {@code initialBalance}.
+     */
+    public static DurableLedger open(Path directory, int accounts, long initialBalance, int recordsPerSegment, int syncEvery) throws IOException {
+        TransactionLog log = new TransactionLog(directory, recordsPerSegment, syncEvery);
+        ShardedLedger ledger = new ShardedLedger(accounts, initialBalance);
+        LedgerSnapshot snapshot = LedgerSnapshot.read(directory, accounts);
+        long fromSequence = 1;
+        if (snapshot != null) {
+            ledger.importBalances(snapshot.balances());
+            fromSequence = snapshot.lastSequence() + 1;
+        }
+        long last = log.replay(fromSequence, (sequence, op, account, to, amount) -> ledger.replay(op, account, to, amount));
+        return new DurableLedger(directory, ledger, log, last - fromSequence + 1);
+    }
+
+    public void deposit(int account, long amount) {
+        ledger.deposit(account, amount);
+    }
+
+    public boolean withdraw(int account, long amount) {
+        return ledger.withdraw(account, amount);
+    }
+
+    public boolean transfer(int from, int to, long amount) {
+        return ledger.transfer(from, to, amount);
+    }
+
+    public long balance(int account) {
+        return ledger.balance(account);
+    }
+
+    public long totalBalance() {
+        return ledger.totalBalance();
+    }
+
+    public void sync() {
+        log.sync();
+    }
+
+    /**
+     * How many log records were replayed on top of the snapshot when this ledger was opened.
+     */
+    public long recoveredRecords() {
+        return recoveredRecords;
+    }
+
+    public synchronized void snapshot() throws IOException {
+        long[] balances = new long[ledger.accounts()];
+        long lastSequence = ledger.exportBalances(balances, log::lastSequence);
+        log.sync();
+        new LedgerSnapshot(balances, lastSequence).write(directory);
+        log.deleteBefore(lastSequence + 1);
+    }
+
+    public synchronized void scheduleSnapshots(long period, TimeUnit unit) {
+        if (snapshotScheduler == null) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ledger-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);      // stops further snapshots; the log keeps everything meanwhile
+            }
+        }, period, period, unit);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        log.close();
+    }
+}
@@ -0,0 +1,174 @@
+package Ledger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h3><b>Group Commit Account</b></h3>
+ * <p>
+ * In {@code Locks.T2_BankAccount} and {@code Locks.T3_BankAccountWithLock} every caller takes the lock itself, so with many callers
+ * most of the time goes into handing the lock (and the cache line holding the balance) from one core to the next.
+ * Here only one thread, the <b>applier</b>, ever touches the balance. Callers just enqueue a request and get a
+ * {@code CompletableFuture} back.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Enqueue:</b> requests are pushed onto a lock-free stack with a single CAS. The caller that pushes onto an empty stack
+ *         wakes the applier.</li>
+ *     <li><b>Batching:</b> the applier takes the <i>whole</i> stack with one {@code getAndSet(null)}, reverses it back into arrival
+ *         order and applies every request, checking for insufficient balance exactly like {@code withdraw} does.
+ *         The more callers there are, the bigger the batches and the fewer handoffs per request.</li>
+ *     <li><b>Completion:</b> the futures are completed after the whole batch is applied. The result is {@code true} if the request
+ *         was applied and {@code false} if a withdrawal was refused. Non-async callbacks run on the applier thread,
+ *         so callers should use {@code thenXxxAsync} or keep callbacks short.</li>
+ *     <li><b>{@code close()}:</b> applies whatever is already queued, then stops. Requests made after that fail with
+ *         {@code RejectedExecutionException}. If the closing thread is interrupted, it returns early with its interrupt flag set.</li>
+ * </ul>
+ */
+public final class GroupCommitAccount implements AutoCloseable {
+    private final AtomicReference<Request> pending = new AtomicReference<>();
+    private final Thread applier;
+    private volatile boolean closed;
+    private volatile boolean terminated;
+    private volatile long balance;
+    private volatile long batches;          // written by the applier only
+    private volatile long applied;
+
+    public GroupCommitAccount(long initialBalance) {
+        this.balance = initialBalance;
+        this.applier = new Thread(this::applyLoop, "group-commit-applier");
+        this.applier.setDaemon(true);
+        this.applier.start();
+    }
+
+    public CompletableFuture<Boolean> withdraw(long amount) {
+        return submit(false, amount);
+    }
+
+    public CompletableFuture<Boolean> deposit(long amount) {
+        return submit(true, amount);
+    }
+
+    /**
+     * The balance as of the last applied batch.
+     */
+    public long balance() {
+        return balance;
+    }
+
+    /**
+     * Average number of requests applied per batch so far.
+     */
+    public double averageBatchSize() {
+        long n = batches;
+        return n == 0 ? 0 : (double) applied / n;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(applier);
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();     // stop waiting; the applier still finishes the queued requests
+        }
+    }
+
+    private CompletableFuture<Boolean> submit(boolean deposit, long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("amount must not be negative: " + amount);
+        }
+        Request request = new Request(deposit, amount);
+        if (closed) {
+            request.future.completeExceptionally(new RejectedExecutionException("account is closed"));
+            return request.future;
+        }
+        Request head;
+        do {
+            head = pending.get();
+            request.next = head;
+        } while (!pending.compareAndSet(head, request));
+        if (head == null) {
+            LockSupport.unpark(applier);        // the applier may be parked waiting for work
+        }
+        if (terminated) {
+            rejectPending();        // raced with close(), nobody is left to apply it
+        }
+        return request.future;
+    }
+
+    private void applyLoop() {
+        while (true) {
+            Request batch = pending.getAndSet(null);
+            if (batch == null) {
+                if (closed) {
+                    terminated = true;
+                    rejectPending();        // anything pushed between our last look and setting terminated
+                    return;
+                }
+                LockSupport.park(this);
+                continue;
+            }
+            applyBatch(reverse(batch));
+        }
+    }
+
+    private void applyBatch(Request first) {
+        long current = balance;
+        int size = 0;
+        for (Request r = first; r != null; r = r.next) {
+            if (r.deposit) {
+                current += r.amount;
+                r.result = true;
+            } else if (current >= r.amount) {
+                current -= r.amount;
+                r.result = true;
+            } else {
+                r.result = false;       // insufficient balance
+            }
+            size++;
+        }
+        balance = current;      // one volatile write for the whole batch
+        applied += size;
+        batches++;
+        for (Request r = first; r != null; ) {
+            Request next = r.next;
+            r.next = null;
+            r.future.complete(r.result);
+            r = next;
+        }
+    }
+
+    private void rejectPending() {
+        for (Request r = pending.getAndSet(null); r != null; r = r.next) {
+            r.future.completeExceptionally(new RejectedExecutionException("account is closed"));
+        }
+    }
+
+    private static Request reverse(Request head) {
+        Request reversed = null;
+        while (head != null) {
+            Request next = head.next;
+            head.next = reversed;
+            reversed = head;
+            head = next;
+        }
+        return reversed;
+    }
+
+    private static final class Request {
+        final boolean deposit;
+        final long amount;
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        Request next;
+        boolean result;
+
+        Request(boolean deposit, long amount) {
+            this.deposit = deposit;
+            this.amount = amount;
+        }
+    }
+}
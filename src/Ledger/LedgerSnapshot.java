@@ -0,0 +1,115 @@
+package Ledger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <h3><b>Ledger Snapshot</b></h3>
+ * <p>
+ * A compact copy of every balance, plus the sequence number of the last {@link TransactionLog} record it includes.
+ * Recovery loads the snapshot and only has to replay the log records after that sequence number, instead of the whole history.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Layout:</b> a header ({@code magic, accounts, lastSequence}), one {@code long} per account in account-id order, and a
+ *         checksum over all of it. At 8 bytes per account, a million accounts take 8 MB.</li>
+ *     <li><b>Atomic replace:</b> a snapshot is written to a temporary file, forced to disk, and then renamed over the old one,
+ *         so a crash in the middle leaves the previous snapshot intact. The directory is forced after the rename, so once
+ *         {@code write} returns the new snapshot survives a power loss and the log segments it covers may be deleted.</li>
+ * </ul>
+ */
+public final class LedgerSnapshot {
+    static final String FILE_NAME = "balances.snapshot";
+    private static final long MAGIC = 0x4C45444745523031L;        // "LEDGER01"
+    private static final int HEADER_SIZE = 8 + 4 + 8;
+
+    private final long[] balances;
+    private final long lastSequence;
+
+    LedgerSnapshot(long[] balances, long lastSequence) {
+        this.balances = balances;
+        this.lastSequence = lastSequence;
+    }
+
+    public long[] balances() {
+        return balances;
+    }
+
+    public long lastSequence() {
+        return lastSequence;
+    }
+
+    void write(Path directory) throws IOException {
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        long checksum = MAGIC ^ lastSequence;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putLong(MAGIC).putInt(balances.length).putLong(lastSequence);
+            for (long balance : balances) {
+                if (buffer.remaining() < Long.BYTES * 2) {
+                    drain(buffer, channel);
+                }
+                buffer.putLong(balance);
+                checksum = mix(checksum, balance);
+            }
+            buffer.putLong(checksum);
+            drain(buffer, channel);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);        // the rename is only durable once the directory is; the caller deletes log segments next
+        }
+    }
+
+    /**
+     * Reads the snapshot in {@code directory}, or returns {@code null} if there is none.
+     */
+    static LedgerSnapshot read(Path directory, int accounts) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_SIZE || buffer.getLong() != MAGIC) {
+                throw new IOException(file + " is not a ledger snapshot");
+            }
+            int count = buffer.getInt();
+            long lastSequence = buffer.getLong();
+            if (count != accounts || channel.size() != HEADER_SIZE + (long) count * Long.BYTES + Long.BYTES) {
+                throw new IOException(file + " holds " + count + " accounts, expected " + accounts);
+            }
+            long[] balances = new long[count];
+            long checksum = MAGIC ^ lastSequence;
+            for (int i = 0; i < count; i++) {
+                balances[i] = buffer.getLong();
+                checksum = mix(checksum, balances[i]);
+            }
+            if (buffer.getLong() != checksum) {
+                throw new IOException(file + " is corrupt (checksum mismatch)");
+            }
+            return new LedgerSnapshot(balances, lastSequence);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long mix(long checksum, long value) {
+        return (checksum ^ value) * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+    }
+}
@@ -0,0 +1,246 @@
+package Ledger;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * <h3><b>Sharded Ledger</b></h3>
+ * <p>
+ * {@code Locks.T3_BankAccountWithLock} keeps one {@code balance} and one {@code ReentrantLock} per account object.
+ * For millions of accounts that means millions of objects, and every lock is its own allocation.
+ * This ledger instead keeps all balances in primitive {@code long[]} arrays and uses <b>lock striping</b>:
+ * the accounts are split into a fixed number of shards, and each shard has one lock guarding all of its accounts.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Sharding:</b> Account {@code id} lives in shard {@code id & (shards - 1)} at slot {@code id >>> log2(shards)}.
+ *         Consecutive ids land in different shards, so a handful of hot, low-numbered accounts don't all end up behind the same lock.</li>
+ *     <li><b>Lock ordering:</b> {@code transfer(from, to, amount)} needs two locks. In {@code Locks.T1_DeadLockExample} one thread holds
+ *         Pen and waits for Paper while the other holds Paper and waits for Pen. Here both locks are always taken in ascending shard
+ *         index, whatever the direction of the transfer, so that circular wait cannot form.
+ *         If both accounts are in the same shard, the lock is taken only once.</li>
+ *     <li><b>Amounts:</b> are {@code long} and must not be negative. A withdrawal or transfer that would overdraw the account
+ *         is refused and returns {@code false}, like the "Insufficient balance" path of {@code T3_BankAccountWithLock}.</li>
+ * </ul>
+ */
+public class ShardedLedger {
+    private final long[][] balances;
+    private final ReentrantLock[] locks;
+    private final int shardMask;
+    private final int shardBits;
+    private final int accounts;
+    Journal journal;        // set by DurableLedger before the ledger is shared
+
+    /**
+     * Receives every successful change while the affected shard locks are still held, before the balances change, so a snapshot
+     * taken under all locks sees exactly the changes journaled so far and a change that can't be journaled isn't made.
+     * {@code committed} is called after the locks are released, which is where slow work such as forcing the log to disk belongs.
+     */
+    interface Journal {
+        void record(int op, int account, int to, long amount);
+
+        void committed();
+    }
+
+    public ShardedLedger(int accounts, long initialBalance) {
+        this(accounts, Runtime.getRuntime().availableProcessors() * 16, initialBalance);
+    }
+
+    public ShardedLedger(int accounts, int shards, long initialBalance) {
+        if (accounts <= 0 || shards <= 0) {
+            throw new IllegalArgumentException("accounts and shards must be positive");
+        }
+        requireNonNegative(initialBalance);
+        int shardCount = shards == 1 ? 1 : Integer.highestOneBit(shards - 1) << 1;
+        this.accounts = accounts;
+        this.shardMask = shardCount - 1;
+        this.shardBits = Integer.numberOfTrailingZeros(shardCount);
+        this.balances = new long[shardCount][];
+        this.locks = new ReentrantLock[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            int slots = (accounts - shard + shardCount - 1) >>> shardBits;      // ids shard, shard + shardCount, ... below accounts
+            balances[shard] = new long[slots];
+            Arrays.fill(balances[shard], initialBalance);
+            locks[shard] = new ReentrantLock();
+        }
+    }
+
+    public void deposit(int account, long amount) {
+        requireNonNegative(amount);
+        int shard = shardOf(account);
+        ReentrantLock lock = locks[shard];
+        lock.lock();
+        try {
+            if (journal != null) {
+                journal.record(TransactionLog.DEPOSIT, account, account, amount);
+            }
+            balances[shard][slotOf(account)] += amount;
+        } finally {
+            lock.unlock();
+        }
+        committed();
+    }
+
+    public boolean withdraw(int account, long amount) {
+        requireNonNegative(amount);
+        int shard = shardOf(account);
+        ReentrantLock lock = locks[shard];
+        lock.lock();
+        try {
+            long[] shardBalances = balances[shard];
+            int slot = slotOf(account);
+            if (shardBalances[slot] < amount) {
+                return false;
+            }
+            if (journal != null) {
+                journal.record(TransactionLog.WITHDRAW, account, account, amount);
+            }
+            shardBalances[slot] -= amount;
+        } finally {
+            lock.unlock();
+        }
+        committed();
+        return true;
+    }
+
+    public boolean transfer(int from, int to, long amount) {
+        requireNonNegative(amount);
+        int fromShard = shardOf(from);
+        int toShard = shardOf(to);
+        ReentrantLock first = locks[Math.min(fromShard, toShard)];
+        ReentrantLock second = locks[Math.max(fromShard, toShard)];
+        first.lock();
+        try {
+            if (second != first) {
+                second.lock();
+            }
+            try {
+                int fromSlot = slotOf(from);
+                if (balances[fromShard][fromSlot] < amount) {
+                    return false;
+                }
+                if (journal != null) {
+                    journal.record(TransactionLog.TRANSFER, from, to, amount);
+                }
+                balances[fromShard][fromSlot] -= amount;
+                balances[toShard][slotOf(to)] += amount;
+            } finally {
+                if (second != first) {
+                    second.unlock();
+                }
+            }
+        } finally {
+            first.unlock();
+        }
+        committed();
+        return true;
+    }
+
+    public long balance(int account) {
+        int shard = shardOf(account);
+        ReentrantLock lock = locks[shard];
+        lock.lock();
+        try {
+            return balances[shard][slotOf(account)];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sum of all balances. Takes every shard lock (in ascending order, like {@code transfer}) so the result is a consistent
+     * snapshot: no transfer can be half applied while we count. Meant for audits, not for the hot path.
+     */
+    public long totalBalance() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            long total = 0;
+            for (long[] shardBalances : balances) {
+                for (long balance : shardBalances) {
+                    total += balance;
+                }
+            }
+            return total;
+        } finally {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Copies every balance into {@code into} (indexed by account id) under all shard locks, and calls {@code cut} while the
+     * locks are still held. Returns what {@code cut} returned, e.g. the last journaled sequence number.
+     */
+    long exportBalances(long[] into, LongSupplier cut) {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            for (int account = 0; account < accounts; account++) {
+                into[account] = balances[account & shardMask][account >>> shardBits];
+            }
+            return cut.getAsLong();
+        } finally {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * Overwrites every balance. Only for recovery, before the ledger is shared with other threads.
+     */
+    void importBalances(long[] from) {
+        for (int account = 0; account < accounts; account++) {
+            balances[account & shardMask][account >>> shardBits] = from[account];
+        }
+    }
+
+    /**
+     * Re-applies a journaled change without locking or balance checks. Only for replaying a log during recovery.
+     */
+    void replay(int op, int account, int to, long amount) {
+        switch (op) {
+            case TransactionLog.DEPOSIT -> balances[account & shardMask][account >>> shardBits] += amount;
+            case TransactionLog.WITHDRAW -> balances[account & shardMask][account >>> shardBits] -= amount;
+            case TransactionLog.TRANSFER -> {
+                balances[account & shardMask][account >>> shardBits] -= amount;
+                balances[to & shardMask][to >>> shardBits] += amount;
+            }
+            default -> throw new IllegalArgumentException("unknown op " + op);
+        }
+    }
+
+    public int accounts() {
+        return accounts;
+    }
+
+    public int shards() {
+        return locks.length;
+    }
+
+    private void committed() {
+        if (journal != null) {
+            journal.committed();
+        }
+    }
+
+    private int shardOf(int account) {
+        return Objects.checkIndex(account, accounts) & shardMask;
+    }
+
+    private int slotOf(int account) {
+        return account >>> shardBits;
+    }
+
+    private static void requireNonNegative(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("amount must not be negative: " + amount);
+        }
+    }
+}
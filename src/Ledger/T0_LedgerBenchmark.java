@@ -0,0 +1,71 @@
+package Ledger;
+
+import Metrics.BenchmarkHarness;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntSupplier;
+
+/**
+ * <h3><b>Ledger Benchmark</b></h3>
+ * <p>
+ * Runs random {@code transfer(from, to, 1)} calls against a {@link ShardedLedger} with 1, 2, 4 ... N threads,
+ * once with accounts picked uniformly and once with a Zipf (theta 0.99) skew where a few accounts receive most of the traffic.
+ * After every run it checks that the total balance is unchanged, i.e. that no transfer was lost or half applied.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java Ledger.T0_LedgerBenchmark [accounts] [maxThreads] [millisPerRun]}.
+ * </p>
+ */
+public class T0_LedgerBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, cores * 2);
+        long millis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        ZipfGenerator zipf = new ZipfGenerator(accounts, 0.99);
+        IntSupplier uniform = () -> ThreadLocalRandom.current().nextInt(accounts);
+
+        List<Integer> threadCounts = BenchmarkHarness.threadCounts(maxThreads);
+
+        System.out.println(accounts + " accounts, cores: " + cores + ", throughput in million transfers/s");
+        System.out.printf("%-10s", "threads");
+        for (int threads : threadCounts) {
+            System.out.printf("%10d", threads);
+        }
+        System.out.println();
+
+        run(accounts, 1, millis / 4, uniform);        // warm up
+        print("uniform", accounts, threadCounts, millis, uniform);
+        print("zipf", accounts, threadCounts, millis, zipf::next);
+    }
+
+    private static void print(String name, int accounts, List<Integer> threadCounts, long millis, IntSupplier picker) throws InterruptedException {
+        System.out.printf("%-10s", name);
+        for (int threads : threadCounts) {
+            System.out.printf("%10.2f", run(accounts, threads, millis, picker));
+        }
+        System.out.println();
+    }
+
+    private static double run(int accounts, int threads, long millis, IntSupplier picker) throws InterruptedException {
+        ShardedLedger ledger = new ShardedLedger(accounts, 1_000);
+        long expectedTotal = ledger.totalBalance();
+        BenchmarkHarness.Result result = BenchmarkHarness.run(threads, millis, (index, stop) -> {
+            long n = 0;
+            while (!stop.stopped()) {
+                ledger.transfer(picker.getAsInt(), picker.getAsInt(), 1);
+                n++;
+            }
+            return n;
+        });
+
+        if (ledger.totalBalance() != expectedTotal) {
+            throw new IllegalStateException("Money was created or destroyed: expected " + expectedTotal + " but was " + ledger.totalBalance());
+        }
+        return result.throughput();
+    }
+}
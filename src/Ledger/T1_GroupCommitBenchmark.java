@@ -0,0 +1,173 @@
+package Ledger;
+
+import Metrics.BenchmarkHarness;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h3><b>Group Commit Benchmark</b></h3>
+ * <p>
+ * 1, 8 and 64 producer threads alternate {@code deposit(1)} and {@code withdraw(1)} for a fixed time against:
+ * </p>
+ * <ul>
+ *     <li><b>synchronized:</b> the locking of {@code Locks.T2_BankAccount}, without the sleep and the printing.</li>
+ *     <li><b>ReentrantLock:</b> the locking of {@code Locks.T3_BankAccountWithLock}, likewise.</li>
+ *     <li><b>group commit, wait each:</b> a {@link GroupCommitAccount} where every producer waits for its request to be applied
+ *         before sending the next one — the same blocking behaviour callers get from the locked versions.</li>
+ *     <li><b>group commit, 32 in flight:</b> every producer keeps up to 32 requests outstanding and only waits for the oldest one.</li>
+ * </ul>
+ * <p>
+ * Expect the locked versions to win with a single producer (no handoff at all) and group commit to catch up and pass them as the
+ * producer count, and so the batch size, grows.
+ * </p>
+ * <p>Usage: {@code java Ledger.T1_GroupCommitBenchmark [millisPerRun]}.</p>
+ */
+public class T1_GroupCommitBenchmark {
+    private static final int[] PRODUCERS = {1, 8, 64};
+
+    interface Account {
+        void deposit(long amount) throws Exception;
+
+        void withdraw(long amount) throws Exception;
+    }
+
+    static class SynchronizedAccount implements Account {
+        private long balance = 1_000;
+
+        @Override
+        public synchronized void deposit(long amount) {
+            balance += amount;
+        }
+
+        @Override
+        public synchronized void withdraw(long amount) {
+            if (balance >= amount) {
+                balance -= amount;
+            }
+        }
+    }
+
+    static class LockedAccount implements Account {
+        private long balance = 1_000;
+        private final Lock lock = new ReentrantLock();
+
+        @Override
+        public void deposit(long amount) {
+            lock.lock();
+            try {
+                balance += amount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void withdraw(long amount) {
+            lock.lock();
+            try {
+                if (balance >= amount) {
+                    balance -= amount;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+
+        System.out.println("Throughput in million requests/s");
+        System.out.printf("%-30s", "producers");
+        for (int producers : PRODUCERS) {
+            System.out.printf("%10d", producers);
+        }
+        System.out.println();
+
+        row("synchronized", millis, producers -> runBlocking(new SynchronizedAccount(), producers, millis));
+        row("ReentrantLock", millis, producers -> runBlocking(new LockedAccount(), producers, millis));
+        row("group commit, wait each", millis, producers -> {
+            try (GroupCommitAccount account = new GroupCommitAccount(1_000)) {
+                return runBlocking(new Account() {
+                    @Override
+                    public void deposit(long amount) {
+                        account.deposit(amount).join();
+                    }
+
+                    @Override
+                    public void withdraw(long amount) {
+                        account.withdraw(amount).join();
+                    }
+                }, producers, millis);
+            }
+        });
+        double[] batchSizes = new double[PRODUCERS.length];
+        row("group commit, 32 in flight", millis, producers -> {
+            try (GroupCommitAccount account = new GroupCommitAccount(1_000)) {
+                double result = runPipelined(account, producers, 32, millis);
+                for (int i = 0; i < PRODUCERS.length; i++) {
+                    if (PRODUCERS[i] == producers) {
+                        batchSizes[i] = account.averageBatchSize();
+                    }
+                }
+                return result;
+            }
+        });
+        System.out.printf("%-30s", "  average batch size");
+        for (double batchSize : batchSizes) {
+            System.out.printf("%10.1f", batchSize);
+        }
+        System.out.println();
+    }
+
+    interface Run {
+        double run(int producers) throws Exception;
+    }
+
+    private static void row(String name, long millis, Run run) throws Exception {
+        run.run(PRODUCERS[0]);      // warm up
+        System.out.printf("%-30s", name);
+        for (int producers : PRODUCERS) {
+            System.out.printf("%10.2f", run.run(producers));
+        }
+        System.out.println();
+    }
+
+    private static double runBlocking(Account account, int producers, long millis) throws InterruptedException {
+        return BenchmarkHarness.run(producers, millis, (index, stop) -> {
+            long n = 0;
+            while (!stop.stopped()) {
+                account.deposit(1);
+                account.withdraw(1);
+                n += 2;
+            }
+            return n;
+        }).throughput();
+    }
+
+    private static double runPipelined(GroupCommitAccount account, int producers, int window, long millis) throws InterruptedException {
+        return BenchmarkHarness.run(producers, millis, (index, stop) -> {
+            List<CompletableFuture<Boolean>> inFlight = new ArrayList<>(Collections.nCopies(window, null));
+            long n = 0;
+            while (!stop.stopped()) {
+                int slot = (int) (n % window);
+                if (inFlight.get(slot) != null) {
+                    inFlight.get(slot).join();
+                }
+                inFlight.set(slot, (n & 1) == 0 ? account.deposit(1) : account.withdraw(1));
+                n++;
+            }
+            for (CompletableFuture<Boolean> future : inFlight) {
+                if (future != null) {
+                    future.join();
+                }
+            }
+            return n;
+        }).throughput();
+    }
+}
@@ -0,0 +1,98 @@
+package Ledger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+/**
+ * <h3><b>Durable Ledger Benchmark</b></h3>
+ * <ol>
+ *     <li>Appends {@code transactions} random transfers to a fresh {@link DurableLedger} and reports the cost per transaction.</li>
+ *     <li>Reopens it and times recovery by replaying the whole log, then checks every balance against the state before closing.</li>
+ *     <li>Takes a snapshot, appends 1% more transactions, reopens again and times recovery from snapshot + log tail.</li>
+ * </ol>
+ * <p>
+ * Usage: {@code java Ledger.T2_DurableLedgerBenchmark [transactions] [accounts] [syncEvery] [directory]}.
+ * 100M transactions take 2.4 GB of log. The directory defaults to a temporary one, deleted at the end.
+ * </p>
+ */
+public class T2_DurableLedgerBenchmark {
+    private static final int RECORDS_PER_SEGMENT = 4 << 20;      // 96 MB segments
+
+    public static void main(String[] args) throws IOException {
+        long transactions = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        int accounts = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int syncEvery = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        boolean temporary = args.length <= 3;
+        Path directory = temporary ? Files.createTempDirectory("ledger") : Path.of(args[3]);
+
+        try {
+            long[] expected;
+            try (DurableLedger ledger = DurableLedger.open(directory, accounts, 1_000, RECORDS_PER_SEGMENT, syncEvery)) {
+                long start = System.nanoTime();
+                long applied = transfers(ledger, accounts, transactions);
+                ledger.sync();
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("appended %,d transfers (%,d applied) in %.2f s, %.0f ns per transaction%n",
+                        transactions, applied, elapsed / 1e9, elapsed / (double) transactions);
+                expected = balances(ledger, accounts);
+            }
+
+            long start = System.nanoTime();
+            try (DurableLedger ledger = DurableLedger.open(directory, accounts, 1_000, RECORDS_PER_SEGMENT, syncEvery)) {
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("full replay of %,d records: %.2f s (%.1f M records/s)%n",
+                        ledger.recoveredRecords(), elapsed / 1e9, ledger.recoveredRecords() / (elapsed / 1e3));
+                verify(ledger, expected);
+
+                ledger.snapshot();
+                transfers(ledger, accounts, transactions / 100);
+                expected = balances(ledger, accounts);
+            }
+
+            start = System.nanoTime();
+            try (DurableLedger ledger = DurableLedger.open(directory, accounts, 1_000, RECORDS_PER_SEGMENT, syncEvery)) {
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("snapshot + tail of %,d records: %.2f s%n", ledger.recoveredRecords(), elapsed / 1e9);
+                verify(ledger, expected);
+            }
+            System.out.println("All balances recovered correctly.");
+        } finally {
+            if (temporary) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    private static long transfers(DurableLedger ledger, int accounts, long count) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long applied = 0;
+        for (long i = 0; i < count; i++) {
+            if (ledger.transfer(random.nextInt(accounts), random.nextInt(accounts), 1 + random.nextInt(10))) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private static long[] balances(DurableLedger ledger, int accounts) {
+        long[] balances = new long[accounts];
+        for (int account = 0; account < accounts; account++) {
+            balances[account] = ledger.balance(account);
+        }
+        return balances;
+    }
+
+    private static void verify(DurableLedger ledger, long[] expected) {
+        for (int account = 0; account < expected.length; account++) {
+            if (ledger.balance(account) != expected[account]) {
+                throw new IllegalStateException("account " + account + ": expected " + expected[account] + " but recovered " + ledger.balance(account));
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package Ledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * <h3><b>Transaction Log (write-ahead log)</b></h3>
+ * <p>
+ * An append-only log of balance changes, written through memory-mapped files. Appending a record is a few {@code put}s into a
+ * {@code MappedByteBuffer} — no system call, no copy into a {@code byte[]}, no allocation. The operating system writes the dirty
+ * pages to disk on its own; {@code sync()} forces them out, which is what makes a record survive a power loss.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Records:</b> fixed {@value #RECORD_SIZE} bytes: {@code op, account, to, checksum} as ints and {@code amount} as a long.
+ *         Every record has a sequence number (1, 2, 3 ...) implied by its position, and the checksum covers the sequence number
+ *         too. A zeroed or half-written record at the end of the log fails the check, which is how recovery finds the end.</li>
+ *     <li><b>Segments:</b> the log is split into files of {@code recordsPerSegment} records named after their first sequence number,
+ *         so old segments can simply be deleted once a snapshot covers them.</li>
+ *     <li><b>Group sync:</b> {@code append} never forces anything itself, because callers append while holding their own locks.
+ *         Once they have released them they call {@code syncIfDue()}: with {@code syncEvery = n} that forces the pages written since
+ *         the last sync after every n appends, so the cost of one {@code msync} is shared by n transactions. {@code syncEvery = 0}
+ *         leaves it to {@code sync()} calls and the OS.</li>
+ *     <li><b>Threads:</b> {@code append} is {@code synchronized}. {@code sync} takes that monitor only to see how far the log goes
+ *         and runs the {@code force} under a separate lock, so appends carry on while the disk is busy. Reading with
+ *         {@code replay} is meant for recovery, before anybody appends.</li>
+ * </ul>
+ */
+public class TransactionLog implements AutoCloseable {
+    public static final int DEPOSIT = 1;
+    public static final int WITHDRAW = 2;
+    public static final int TRANSFER = 3;
+    static final int RECORD_SIZE = 24;
+    private static final String SUFFIX = ".wal";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int syncEvery;
+    private final Object syncLock = new Object();      // one sync at a time; never taken while holding this
+    private final List<MappedByteBuffer> rolledSegments = new ArrayList<>();       // full segments with pages not yet forced
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+    private int position;           // records written in the current segment
+    private int syncedPosition;     // records of the current segment already handed to a sync
+    private int unsynced;
+    private long lastSequence;
+
+    /**
+     * Receives replayed records. Primitive parameters, so replaying doesn't allocate per record.
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void apply(long sequence, int op, int account, int to, long amount);
+    }
+
+    public TransactionLog(Path directory, int recordsPerSegment, int syncEvery) throws IOException {
+        if (recordsPerSegment <= 0 || (long) recordsPerSegment * RECORD_SIZE > Integer.MAX_VALUE || syncEvery < 0) {
+            throw new IllegalArgumentException("recordsPerSegment must be between 1 and " + Integer.MAX_VALUE / RECORD_SIZE + ", syncEvery must not be negative");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.recordsPerSegment = recordsPerSegment;
+        this.syncEvery = syncEvery;
+
+        List<Long> segments = segments();
+        if (segments.isEmpty()) {
+            openSegment(1);
+            lastSequence = 0;
+        } else {
+            long first = segments.get(segments.size() - 1);
+            openSegment(first);
+            while (position < recordsPerSegment && valid(segment, position, first + position)) {
+                position++;     // find the end of what was written before
+            }
+            syncedPosition = position;
+            lastSequence = first + position - 1;
+        }
+    }
+
+    public synchronized long append(int op, int account, int to, long amount) {
+        if (position == recordsPerSegment) {
+            roll();
+        }
+        long sequence = ++lastSequence;
+        int offset = position * RECORD_SIZE;
+        segment.putInt(offset, op);
+        segment.putInt(offset + 4, account);
+        segment.putInt(offset + 8, to);
+        segment.putLong(offset + 16, amount);
+        segment.putInt(offset + 12, checksum(sequence, op, account, to, amount));
+        position++;
+        unsynced++;
+        return sequence;
+    }
+
+    /**
+     * Syncs if at least {@code syncEvery} records were appended since the last sync. Meant to be called after every append, once
+     * the caller no longer holds any locks of its own.
+     */
+    public void syncIfDue() {
+        if (syncEvery > 0) {
+            boolean due;
+            synchronized (this) {
+                due = unsynced >= syncEvery;
+            }
+            if (due) {
+                sync();
+            }
+        }
+    }
+
+    /**
+     * Forces everything appended before the call to disk. Appends made meanwhile aren't held up.
+     */
+    public void sync() {
+        synchronized (syncLock) {
+            List<MappedByteBuffer> rolled;
+            MappedByteBuffer current;
+            int from;
+            int to;
+            synchronized (this) {
+                rolled = rolledSegments.isEmpty() ? List.of() : new ArrayList<>(rolledSegments);
+                rolledSegments.clear();
+                current = segment;
+                from = syncedPosition;
+                to = position;
+                syncedPosition = position;
+                unsynced = 0;
+            }
+            for (MappedByteBuffer full : rolled) {
+                full.force();
+            }
+            if (to > from) {
+                current.force(from * RECORD_SIZE, (to - from) * RECORD_SIZE);
+            }
+        }
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Calls {@code handler} for every valid record with a sequence number of at least {@code fromSequence}, in order.
+     * Returns the last sequence number replayed, or {@code fromSequence - 1} if there was nothing to replay.
+     */
+    public long replay(long fromSequence, RecordHandler handler) throws IOException {
+        List<Long> segments = segments();
+        long last = fromSequence - 1;
+        for (int i = 0; i < segments.size(); i++) {
+            long first = segments.get(i);
+            long next = i + 1 < segments.size() ? segments.get(i + 1) : Long.MAX_VALUE;
+            if (next <= fromSequence) {
+                continue;       // entirely before what we need
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(first), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                int records = (int) (channel.size() / RECORD_SIZE);
+                int start = (int) Math.max(0, fromSequence - first);
+                for (int index = start; index < records; index++) {
+                    long sequence = first + index;
+                    if (!valid(buffer, index, sequence)) {
+                        return last;        // end of the log, or a torn write
+                    }
+                    int offset = index * RECORD_SIZE;
+                    handler.apply(sequence, buffer.getInt(offset), buffer.getInt(offset + 4), buffer.getInt(offset + 8), buffer.getLong(offset + 16));
+                    last = sequence;
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Deletes the segments whose records all have a sequence number below {@code sequence}. The current segment is always kept.
+     */
+    public synchronized void deleteBefore(long sequence) throws IOException {
+        List<Long> segments = segments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1) <= sequence && segments.get(i) != segmentFirstSequence) {
+                Files.deleteIfExists(segmentPath(segments.get(i)));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        sync();
+    }
+
+    private void roll() {
+        try {
+            openSegment(segmentFirstSequence + recordsPerSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(firstSequence),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer next = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) recordsPerSegment * RECORD_SIZE);      // the mapping stays valid after the channel is closed
+            next.order(ByteOrder.LITTLE_ENDIAN);
+            if (segment != null && position > syncedPosition) {
+                rolledSegments.add(segment);        // forced by the next sync
+            }
+            segment = next;
+        }
+        segmentFirstSequence = firstSequence;
+        position = 0;
+        syncedPosition = 0;
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> firstSequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> firstSequences.add(Long.parseLong(name.substring(0, name.length() - SUFFIX.length()))));
+        }
+        firstSequences.sort(null);
+        return firstSequences;
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%020d%s", firstSequence, SUFFIX));
+    }
+
+    private static boolean valid(MappedByteBuffer buffer, int index, long sequence) {
+        int offset = index * RECORD_SIZE;
+        int op = buffer.getInt(offset);
+        return op != 0 && buffer.getInt(offset + 12) == checksum(sequence, op, buffer.getInt(offset + 4), buffer.getInt(offset + 8), buffer.getLong(offset + 16));
+    }
+
+    static int checksum(long sequence, int op, int account, int to, long amount) {
+        long h = sequence * 0x9E3779B97F4A7C15L;
+        h = (h ^ op) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ account) * 0x94D049BB133111EBL;
+        h = (h ^ to) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ amount) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (int) (h ^ (h >>> 32));
+    }
+}
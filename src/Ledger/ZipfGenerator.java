@@ -0,0 +1,56 @@
+package Ledger;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h3><b>Zipf Generator</b></h3>
+ * <p>
+ * Picks integers in {@code [0, n)} where a few low values are picked very often and the rest rarely —
+ * like a few very active accounts among millions of dormant ones. Value {@code k} is picked with probability
+ * proportional to {@code 1 / (k + 1)^theta}; {@code theta = 0.99} is the usual "highly skewed" setting.
+ * </p>
+ *
+ * <p>
+ * Uses the approximation from Gray et al., "Quickly Generating Billion-Record Synthetic Databases":
+ * the constants take O(n) to compute once, after which every {@code next()} is O(1).
+ * Uses {@code ThreadLocalRandom}, so one instance can be shared by all benchmark threads.
+ * </p>
+ */
+public class ZipfGenerator {
+    private final int n;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+
+    public ZipfGenerator(int n, double theta) {
+        if (n <= 0 || theta <= 0 || theta >= 1) {
+            throw new IllegalArgumentException("need n > 0 and 0 < theta < 1");
+        }
+        this.n = n;
+        this.theta = theta;
+        this.zetaN = zeta(n, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta(2, theta) / zetaN);
+    }
+
+    public int next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) {
+            return 0;
+        }
+        if (uz < 1.0 + Math.pow(0.5, theta)) {
+            return Math.min(1, n - 1);
+        }
+        return (int) Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private static double zeta(int n, double theta) {
+        double sum = 0;
+        for (int i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
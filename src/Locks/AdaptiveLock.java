@@ -0,0 +1,222 @@
+package Locks;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h3><b>Adaptive (spin-then-park) Lock</b></h3>
+ * <p>
+ * {@link T5_LockFairnessExample} shows the two options of {@code ReentrantLock}: unfair, which is fast but can starve a thread,
+ * and fair, which never starves anybody but parks and wakes a thread on every single handoff. This lock sits in between.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Spin, then park:</b> A thread that finds the lock taken first spins for a short while with {@code Thread.onSpinWait()}.
+ *         Critical sections are often shorter than the cost of parking and unparking a thread, so the lock is usually free again
+ *         before the spin ends. Only if it isn't does the thread join the wait queue and park.</li>
+ *     <li><b>Normal mode (unfair):</b> A released lock goes to whoever grabs it first: a newly arriving thread, a spinning one,
+ *         or the woken head of the queue. This keeps the lock busy and throughput high.</li>
+ *     <li><b>Starvation mode (FIFO):</b> If a queued thread has waited longer than {@code maxWait}, the lock switches to direct handoff:
+ *         {@code unlock()} passes ownership straight to the head of the queue and new arrivals queue up behind instead of barging.
+ *         It switches back to normal mode once the queue is empty or the thread being handed the lock hasn't waited long.</li>
+ *     <li><b>Tuning:</b> {@code maxWait = 0} behaves like a fair lock (with spinning in front), a very large {@code maxWait} like an unfair one.</li>
+ * </ul>
+ *
+ * <p>Like {@code ReentrantLock} it is reentrant. Conditions are not supported.</p>
+ */
+public class AdaptiveLock implements Lock {
+    private final AtomicInteger state = new AtomicInteger();        // 0 = free, 1 = held
+    private final ConcurrentLinkedQueue<Waiter> queue = new ConcurrentLinkedQueue<>();
+    private final int spins;
+    private final long maxWaitNanos;
+    private volatile boolean starving;
+    private Thread owner;       // only ever compared with the current thread, so it doesn't need to be volatile
+    private int holds;
+
+    public AdaptiveLock() {
+        this(100, 1, TimeUnit.MILLISECONDS);
+    }
+
+    public AdaptiveLock(int spins, long maxWait, TimeUnit unit) {
+        if (spins < 0 || maxWait < 0) {
+            throw new IllegalArgumentException("spins and maxWait must not be negative");
+        }
+        this.spins = spins;
+        this.maxWaitNanos = unit.toNanos(maxWait);
+    }
+
+    @Override
+    public void lock() {
+        try {
+            acquire(false, Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);        // not interruptible, can't happen
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        acquire(true, Long.MAX_VALUE);
+    }
+
+    @Override
+    public boolean tryLock() {
+        Thread current = Thread.currentThread();
+        if (owner == current) {
+            holds++;
+            return true;
+        }
+        if (!starving && state.compareAndSet(0, 1)) {
+            setOwner(current);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(time);
+        return acquire(true, nanos >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE : System.nanoTime() + nanos);
+    }
+
+    @Override
+    public void unlock() {
+        if (owner != Thread.currentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        if (--holds > 0) {
+            return;
+        }
+        owner = null;
+        if (starving) {
+            Waiter next = queue.poll();
+            if (next != null) {
+                if (queue.isEmpty() || System.nanoTime() - next.since < maxWaitNanos) {
+                    starving = false;
+                }
+                next.granted = true;        // the lock stays held (state 1), it just changes hands
+                LockSupport.unpark(next.thread);
+                return;
+            }
+            starving = false;
+        }
+        state.set(0);
+        Waiter head = queue.peek();
+        if (head != null) {
+            LockSupport.unpark(head.thread);
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isStarving() {
+        return starving;
+    }
+
+    private boolean acquire(boolean interruptible, long deadline) throws InterruptedException {
+        if (interruptible && Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tryLock()) {
+            return true;
+        }
+        for (int i = 0; i < spins; i++) {
+            Thread.onSpinWait();
+            if (!starving && state.get() == 0 && state.compareAndSet(0, 1)) {
+                setOwner(Thread.currentThread());
+                return true;
+            }
+        }
+        return park(interruptible, deadline);
+    }
+
+    private boolean park(boolean interruptible, long deadline) throws InterruptedException {
+        Waiter waiter = new Waiter(Thread.currentThread(), System.nanoTime());
+        queue.add(waiter);
+        boolean interrupted = false;
+        while (true) {
+            if (waiter.granted) {
+                setOwner(waiter.thread);
+                break;
+            }
+            // In starvation mode only the head may take a free lock; that covers the lock being released just before we set the flag.
+            if ((!starving || queue.peek() == waiter) && state.get() == 0 && state.compareAndSet(0, 1)) {
+                queue.remove(waiter);
+                setOwner(waiter.thread);
+                break;
+            }
+            long now = System.nanoTime();
+            long waited = now - waiter.since;
+            if (waited > maxWaitNanos && !starving) {
+                starving = true;
+            }
+            if (Thread.interrupted()) {
+                if (interruptible) {
+                    return cancel(waiter, true);
+                }
+                interrupted = true;
+            }
+            if (deadline != Long.MAX_VALUE && deadline - now <= 0) {
+                return cancel(waiter, false);
+            }
+            long parkNanos = waited < maxWaitNanos ? maxWaitNanos - waited : Long.MAX_VALUE;     // wake up in time to notice we've waited too long
+            if (deadline != Long.MAX_VALUE) {
+                parkNanos = Math.min(parkNanos, deadline - now);
+            }
+            if (parkNanos == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, parkNanos);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();       // lock() isn't interruptible, but the flag must not be lost
+        }
+        return true;
+    }
+
+    /**
+     * Gives up waiting. If {@code unlock()} already picked us for a handoff, we own the lock and have to pass it on.
+     */
+    private boolean cancel(Waiter waiter, boolean becauseInterrupted) throws InterruptedException {
+        if (queue.remove(waiter)) {
+            Waiter head = queue.peek();
+            if (head != null && state.get() == 0) {
+                LockSupport.unpark(head.thread);        // we may have been woken for a free lock, pass the wake-up on
+            }
+        } else {
+            while (!waiter.granted) {
+                Thread.onSpinWait();
+            }
+            setOwner(waiter.thread);
+            unlock();
+        }
+        if (becauseInterrupted) {
+            throw new InterruptedException();
+        }
+        return false;
+    }
+
+    private void setOwner(Thread thread) {
+        owner = thread;
+        holds = 1;
+    }
+
+    private static final class Waiter {
+        final Thread thread;
+        final long since;
+        volatile boolean granted;
+
+        Waiter(Thread thread, long since) {
+            this.thread = thread;
+            this.since = since;
+        }
+    }
+}
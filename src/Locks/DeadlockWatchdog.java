@@ -0,0 +1,133 @@
+package Locks;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <h3><b>Deadlock Watchdog</b></h3>
+ * <p>
+ * A deadlock like the Paper/Pen one in {@link T1_DeadLockExample} doesn't crash anything — the threads just stop.
+ * This watchdog asks the JVM every {@code period} whether any threads are deadlocked and, if so, reports the whole cycle:
+ * which thread waits for which lock, who owns it, and every thread's full stack.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@code ThreadMXBean.findDeadlockedThreads()}:</b> Finds cycles of threads waiting on each other, both on
+ *         {@code synchronized} monitors and on {@code java.util.concurrent} locks. It returns {@code null} when there is none,
+ *         which is the common case, so a check is cheap. It only finds deadlocks that have already happened.</li>
+ *     <li>Each cycle is reported once, not on every check. A cycle that is gone (e.g. a thread was interrupted out of
+ *         {@code lockInterruptibly()}) is forgotten, so the set of reported cycles stays bounded and a new deadlock between the same
+ *         threads is reported again.</li>
+ *     <li>If the reporter throws, the scheduled check prints the exception and keeps running, and the cycle is reported again
+ *         on the next check. {@code check()} called directly passes the exception on.</li>
+ *     <li>The check runs on a single daemon thread, so the watchdog never keeps the JVM alive.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * DeadlockWatchdog watchdog = new DeadlockWatchdog(5, TimeUnit.SECONDS, System.err::println);
+ * watchdog.start();
+ * }</pre>
+ */
+public class DeadlockWatchdog implements AutoCloseable {
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final long period;
+    private final TimeUnit unit;
+    private final Consumer<String> reporter;
+    private final Set<Set<Long>> reported = new HashSet<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "deadlock-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public DeadlockWatchdog(long period, TimeUnit unit, Consumer<String> reporter) {
+        this.period = period;
+        this.unit = unit;
+        this.reporter = reporter;
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::scheduledCheck, period, period, unit);
+    }
+
+    private void scheduledCheck() {
+        try {
+            check();
+        } catch (RuntimeException e) {
+            e.printStackTrace();        // an exception here would cancel every later check
+        }
+    }
+
+    /**
+     * Runs one check right now. Returns {@code true} if a deadlock was found (whether or not it had been reported before).
+     */
+    public synchronized boolean check() {
+        long[] ids = threadMXBean.findDeadlockedThreads();
+        if (ids == null) {
+            reported.clear();
+            return false;
+        }
+        Set<Long> cycle = new HashSet<>();
+        for (long id : ids) {
+            cycle.add(id);
+        }
+        reported.removeIf(old -> !cycle.containsAll(old));      // no longer deadlocked
+        if (reported.add(cycle)) {
+            try {
+                reporter.accept(describe(threadMXBean.getThreadInfo(ids, true, true)));
+            } catch (RuntimeException e) {
+                reported.remove(cycle);
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    static String describe(ThreadInfo[] threads) {
+        StringBuilder sb = new StringBuilder("Deadlock detected between ").append(threads.length).append(" threads:\n");
+        for (ThreadInfo info : threads) {
+            if (info == null) {
+                continue;       // the thread ended between the two calls
+            }
+            sb.append('"').append(info.getThreadName()).append("\" ").append(info.getThreadState())
+                    .append(" waiting for ").append(info.getLockName())
+                    .append(" held by \"").append(info.getLockOwnerName()).append("\"\n");
+        }
+        for (ThreadInfo info : threads) {
+            if (info == null) {
+                continue;
+            }
+            sb.append("\n\"").append(info.getThreadName()).append("\" id=").append(info.getThreadId()).append('\n');
+            StackTraceElement[] stack = info.getStackTrace();
+            MonitorInfo[] monitors = info.getLockedMonitors();
+            for (int depth = 0; depth < stack.length; depth++) {
+                sb.append("\tat ").append(stack[depth]).append('\n');
+                for (MonitorInfo monitor : monitors) {
+                    if (monitor.getLockedStackDepth() == depth) {
+                        sb.append("\t-  locked ").append(monitor).append('\n');
+                    }
+                }
+            }
+            LockInfo[] synchronizers = info.getLockedSynchronizers();
+            if (synchronizers.length > 0) {
+                sb.append("\tLocked synchronizers: ").append(Arrays.toString(synchronizers)).append('\n');
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,241 @@
+package Locks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * <h3><b>Instrumented Lock</b></h3>
+ * <p>
+ * Wraps any {@code Lock} and records wait time, hold time, reentrancy depth and {@code tryLock} failures into {@link LockMetrics}.
+ * Get one from a {@link LockRegistry} so the numbers can be dumped later.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Exclusive locks:</b> the depth and the acquire timestamp are kept in plain fields. Only the thread holding the lock ever
+ *         touches them, and the lock itself makes the writes visible to the next owner. An {@code unlock()} from a thread that
+ *         doesn't hold the lock is passed straight to the delegate, which throws, without touching them.</li>
+ *     <li><b>Shared locks</b> (the read side of a {@code ReadWriteLock}): several threads hold the lock at once,
+ *         so every thread keeps its own depth and timestamp in a {@code ThreadLocal}.</li>
+ *     <li><b>Cost:</b> {@code lock()} first tries a non-blocking {@code tryLock()}; when that succeeds the wait is recorded as 0
+ *         and only one {@code System.nanoTime()} is needed. An uncontended acquire/release pair therefore costs two
+ *         {@code System.nanoTime()} calls and three histogram increments, with no allocation. For fair locks the
+ *         {@code tryLock()} shortcut is skipped, because it would let the thread barge past the queue.</li>
+ *     <li><b>Conditions:</b> {@code newCondition()} wraps the delegate's condition. {@code await} releases the lock, so the hold
+ *         ends there and is recorded, at whatever depth; once the lock is taken back the depth is restored and a new hold starts.
+ *         Time spent waiting in {@code await} is counted neither as hold nor as wait time.</li>
+ * </ul>
+ */
+public class InstrumentedLock implements Lock {
+    private final Lock delegate;
+    private final LockMetrics metrics;
+    private final ThreadLocal<HoldState> sharedState;
+    private final boolean tryFirst;
+    private int depth;              // exclusive mode only, guarded by the lock itself
+    private long acquiredAt;
+    private Thread owner;           // exclusive mode only; a plain field is enough, no other thread ever writes our own reference here
+
+    InstrumentedLock(Lock delegate, LockMetrics metrics, boolean shared, boolean fair) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.sharedState = shared ? ThreadLocal.withInitial(HoldState::new) : null;
+        this.tryFirst = !fair;
+    }
+
+    @Override
+    public void lock() {
+        if (tryFirst && delegate.tryLock()) {
+            long now = System.nanoTime();
+            acquired(now, now);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.lock();
+        acquired(start, System.nanoTime());
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        long start = System.nanoTime();
+        delegate.lockInterruptibly();
+        acquired(start, System.nanoTime());
+    }
+
+    @Override
+    public boolean tryLock() {
+        if (delegate.tryLock()) {
+            long now = System.nanoTime();
+            acquired(now, now);
+            return true;
+        }
+        metrics.failedTryLocks.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        if (delegate.tryLock(time, unit)) {
+            acquired(start, System.nanoTime());
+            return true;
+        }
+        metrics.waitTime.record(System.nanoTime() - start);
+        metrics.timeouts.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void unlock() {
+        if (sharedState == null) {
+            if (owner != Thread.currentThread()) {
+                delegate.unlock();      // not ours: let the delegate throw, and leave the owner's bookkeeping alone
+                return;
+            }
+            if (depth == 1) {
+                metrics.holdTime.record(System.nanoTime() - acquiredAt);
+                owner = null;
+            }
+            depth--;
+            delegate.unlock();
+        } else {
+            HoldState state = sharedState.get();
+            delegate.unlock();          // throws if this thread holds no read lock, before anything is counted
+            if (state.depth == 0) {
+                return;
+            }
+            if (state.depth == 1) {
+                metrics.holdTime.record(System.nanoTime() - state.acquiredAt);
+            }
+            state.depth--;
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        Condition condition = delegate.newCondition();       // a read lock throws UnsupportedOperationException here
+        return sharedState == null ? new InstrumentedCondition(condition) : condition;
+    }
+
+    public LockMetrics metrics() {
+        return metrics;
+    }
+
+    private void acquired(long start, long now) {
+        metrics.waitTime.record(now - start);
+        int newDepth;
+        if (sharedState == null) {
+            newDepth = ++depth;
+            if (newDepth == 1) {
+                acquiredAt = now;
+                owner = Thread.currentThread();
+            }
+        } else {
+            HoldState state = sharedState.get();
+            newDepth = ++state.depth;
+            if (newDepth == 1) {
+                state.acquiredAt = now;
+            }
+        }
+        metrics.depth.record(newDepth);
+    }
+
+    /**
+     * Ends the hold before {@code await} releases the lock. Returns the depth to restore afterwards, or 0 if this thread doesn't
+     * hold the lock (the delegate's {@code await} throws then).
+     */
+    private int beforeAwait() {
+        if (owner != Thread.currentThread()) {
+            return 0;
+        }
+        int savedDepth = depth;
+        metrics.holdTime.record(System.nanoTime() - acquiredAt);
+        owner = null;
+        depth = 0;
+        return savedDepth;
+    }
+
+    /**
+     * Called once {@code await} has taken the lock back, whether it returned or threw.
+     */
+    private void afterAwait(int savedDepth) {
+        if (savedDepth > 0) {
+            depth = savedDepth;
+            acquiredAt = System.nanoTime();
+            owner = Thread.currentThread();
+        }
+    }
+
+    private final class InstrumentedCondition implements Condition {
+        private final Condition delegate;
+
+        InstrumentedCondition(Condition delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            int savedDepth = beforeAwait();
+            try {
+                delegate.await();
+            } finally {
+                afterAwait(savedDepth);
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            int savedDepth = beforeAwait();
+            try {
+                delegate.awaitUninterruptibly();
+            } finally {
+                afterAwait(savedDepth);
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            int savedDepth = beforeAwait();
+            try {
+                return delegate.awaitNanos(nanosTimeout);
+            } finally {
+                afterAwait(savedDepth);
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            int savedDepth = beforeAwait();
+            try {
+                return delegate.await(time, unit);
+            } finally {
+                afterAwait(savedDepth);
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            int savedDepth = beforeAwait();
+            try {
+                return delegate.awaitUntil(deadline);
+            } finally {
+                afterAwait(savedDepth);
+            }
+        }
+
+        @Override
+        public void signal() {
+            delegate.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            delegate.signalAll();
+        }
+    }
+
+    private static final class HoldState {
+        int depth;
+        long acquiredAt;
+    }
+}
@@ -0,0 +1,72 @@
+package Locks;
+
+import Metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What an {@link InstrumentedLock} records about one named lock.
+ * <ul>
+ *     <li><b>waitTime:</b> nanoseconds from calling {@code lock()}/{@code tryLock()} until it returned, whether or not it succeeded.</li>
+ *     <li><b>holdTime:</b> nanoseconds from getting the lock until the matching outermost {@code unlock()}.</li>
+ *     <li><b>depth:</b> the reentrancy depth after each successful acquire — 1 for a first acquire, 2 when
+ *         {@code innerMethod()} of {@link T4_ReentrantLockExample} takes the lock again, and so on.</li>
+ *     <li><b>timeouts:</b> how often a timed {@code tryLock} (like the 5000 ms one in {@link T3_BankAccountWithLock}) gave up.</li>
+ *     <li><b>failedTryLocks:</b> how often an untimed {@code tryLock()} found the lock taken. It doesn't wait, so it is no timeout.</li>
+ * </ul>
+ */
+public class LockMetrics {
+    private final String name;
+    final LatencyHistogram waitTime = new LatencyHistogram();
+    final LatencyHistogram holdTime = new LatencyHistogram();
+    final LatencyHistogram depth = new LatencyHistogram();
+    final AtomicLong timeouts = new AtomicLong();
+    final AtomicLong failedTryLocks = new AtomicLong();
+
+    LockMetrics(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public LatencyHistogram.Snapshot waitTime() {
+        return waitTime.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot holdTime() {
+        return holdTime.snapshot();
+    }
+
+    public LatencyHistogram.Snapshot depth() {
+        return depth.snapshot();
+    }
+
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    public long failedTryLocks() {
+        return failedTryLocks.get();
+    }
+
+    public void reset() {
+        waitTime.reset();
+        holdTime.reset();
+        depth.reset();
+        timeouts.set(0);
+        failedTryLocks.set(0);
+    }
+
+    @Override
+    public String toString() {
+        LatencyHistogram.Snapshot depths = depth();
+        return name + "\n"
+                + "  wait    " + waitTime().format(TimeUnit.MICROSECONDS) + "\n"
+                + "  hold    " + holdTime().format(TimeUnit.MICROSECONDS) + "\n"
+                + "  depth   max=" + depths.max() + " p99=" + depths.percentile(99) + "\n"
+                + "  timeouts=" + timeouts() + " failedTryLocks=" + failedTryLocks();
+    }
+}
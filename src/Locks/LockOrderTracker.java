@@ -0,0 +1,306 @@
+package Locks;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * <h3><b>Lock Order Tracker</b></h3>
+ * <p>
+ * {@link DeadlockWatchdog} only sees a deadlock once threads are already stuck. A deadlock needs two threads taking the same
+ * locks in opposite orders <i>at the same time</i>, but the opposite orders themselves show up much earlier, usually in every run.
+ * This tracker catches them: locks wrapped with {@link #wrap(String, Lock)} record "B was acquired while holding A" as an edge
+ * A → B in a global lock-order graph. When a new edge closes a cycle (e.g. Pen → Paper after Paper → Pen was seen),
+ * it reports a <b>lock-order inversion</b>, even if the two threads never actually collided.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Opt-in:</b> only locks passed through {@code wrap()} are tracked, so it can be enabled lock by lock.</li>
+ *     <li><b>Cost:</b> each thread keeps the locks it holds in a small array. Acquiring a lock while holding nothing costs a
+ *         {@code ThreadLocal} lookup, and so does releasing it. Acquiring while holding {@code k} locks adds {@code k} set lookups for edges that are already known.
+ *         Only a brand-new edge pays for the cycle search and the stack capture, and the number of distinct edges in a program is small.</li>
+ *     <li><b>{@code tryLock()}:</b> the untimed version never waits, so it can't be part of a deadlock and records no edge.
+ *         The timed version can wait, so it is tracked like {@code lock()}.</li>
+ *     <li><b>Conditions:</b> {@code newCondition()} returns a wrapper. While a thread waits in {@code await} it doesn't hold the lock,
+ *         so the lock leaves that thread's stack for the wait. Taking it back after the wait records edges like {@code lock()} does.</li>
+ *     <li>Each inversion is reported once.</li>
+ * </ul>
+ */
+public class LockOrderTracker {
+    private final Consumer<String> reporter;
+    private final Set<String> reported = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<HeldLocks> held = ThreadLocal.withInitial(HeldLocks::new);
+
+    public LockOrderTracker(Consumer<String> reporter) {
+        this.reporter = reporter;
+    }
+
+    public Lock wrap(String name, Lock lock) {
+        return new TrackedLock(name, lock);
+    }
+
+    private HeldLocks beforeAcquire(TrackedLock lock) {
+        HeldLocks locks = held.get();
+        for (int i = 0; i < locks.size; i++) {
+            TrackedLock before = locks.locks[i];
+            if (before != lock && !before.successors.contains(lock)) {
+                addEdge(before, lock);
+            }
+        }
+        return locks;
+    }
+
+    private void addEdge(TrackedLock from, TrackedLock to) {
+        if (!from.successors.add(to)) {
+            return;     // another thread added the same edge first
+        }
+        from.firstSeen.putIfAbsent(to, new Throwable(Thread.currentThread().getName() + " acquired " + to.name + " while holding " + from.name));
+        Deque<TrackedLock> path = findPath(to, from);
+        if (path == null) {
+            return;
+        }
+        path.addFirst(from);
+        StringBuilder cycle = new StringBuilder();
+        for (TrackedLock lock : path) {
+            cycle.append(lock.name).append(" -> ");
+        }
+        cycle.append(from.name);
+        if (!reported.add(cycle.toString())) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("Potential deadlock, lock-order inversion: ").append(cycle).append('\n');
+        TrackedLock previous = null;
+        for (TrackedLock lock : path) {
+            if (previous != null) {
+                appendStack(sb, previous.firstSeen.get(lock));
+            }
+            previous = lock;
+        }
+        appendStack(sb, previous.firstSeen.get(from));
+        reporter.accept(sb.toString());
+    }
+
+    /**
+     * Depth first search from {@code from} to {@code to}. Returns the path, excluding {@code to}, or {@code null} if there is none.
+     */
+    private static Deque<TrackedLock> findPath(TrackedLock from, TrackedLock to) {
+        Deque<TrackedLock> path = new ArrayDeque<>();
+        return findPath(from, to, path, new HashSet<>()) ? path : null;
+    }
+
+    private static boolean findPath(TrackedLock current, TrackedLock to, Deque<TrackedLock> path, Set<TrackedLock> visited) {
+        if (current == to) {
+            return true;
+        }
+        if (!visited.add(current)) {
+            return false;
+        }
+        path.addLast(current);
+        for (TrackedLock next : current.successors) {
+            if (findPath(next, to, path, visited)) {
+                return true;
+            }
+        }
+        path.removeLast();
+        return false;
+    }
+
+    private static void appendStack(StringBuilder sb, Throwable seen) {
+        if (seen == null) {
+            return;
+        }
+        sb.append('\n').append(seen.getMessage()).append('\n');
+        for (StackTraceElement element : seen.getStackTrace()) {
+            if (!element.getClassName().startsWith(LockOrderTracker.class.getName())) {
+                sb.append("\tat ").append(element).append('\n');
+            }
+        }
+    }
+
+    private static final class HeldLocks {
+        TrackedLock[] locks = new TrackedLock[8];
+        int size;
+
+        void push(TrackedLock lock) {
+            if (size == locks.length) {
+                locks = Arrays.copyOf(locks, size * 2);
+            }
+            locks[size++] = lock;
+        }
+
+        boolean remove(TrackedLock lock) {
+            for (int i = size - 1; i >= 0; i--) {       // usually the last one, but locks may be released out of order
+                if (locks[i] == lock) {
+                    System.arraycopy(locks, i + 1, locks, i, size - i - 1);
+                    locks[--size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final class TrackedLock implements Lock {
+        private final String name;
+        private final Lock delegate;
+        private final Set<TrackedLock> successors = ConcurrentHashMap.newKeySet();
+        private final ConcurrentHashMap<TrackedLock, Throwable> firstSeen = new ConcurrentHashMap<>();
+
+        TrackedLock(String name, Lock delegate) {
+            this.name = name;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void lock() {
+            HeldLocks locks = beforeAcquire(this);
+            delegate.lock();
+            locks.push(this);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            HeldLocks locks = beforeAcquire(this);
+            delegate.lockInterruptibly();
+            locks.push(this);
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (delegate.tryLock()) {
+                held.get().push(this);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            HeldLocks locks = beforeAcquire(this);
+            if (delegate.tryLock(time, unit)) {
+                locks.push(this);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void unlock() {
+            delegate.unlock();
+            held.get().remove(this);
+        }
+
+        @Override
+        public Condition newCondition() {
+            return new TrackedCondition(this, delegate.newCondition());
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+        /**
+         * Takes every hold of this lock off the current thread's stack, because {@code await} releases them all.
+         * Returns how many there were.
+         */
+        int beforeAwait() {
+            HeldLocks locks = held.get();
+            int holds = 0;
+            while (locks.remove(this)) {
+                holds++;
+            }
+            beforeAcquire(this);        // await takes the lock again while the thread holds the others
+            return holds;
+        }
+
+        void afterAwait(int holds) {
+            HeldLocks locks = held.get();
+            for (int i = 0; i < holds; i++) {
+                locks.push(this);
+            }
+        }
+    }
+
+    /**
+     * Keeps the held-lock stack right while a thread waits: during {@code await} the lock is not held.
+     */
+    private static final class TrackedCondition implements Condition {
+        private final TrackedLock lock;
+        private final Condition delegate;
+
+        TrackedCondition(TrackedLock lock, Condition delegate) {
+            this.lock = lock;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            int holds = lock.beforeAwait();
+            try {
+                delegate.await();
+            } finally {
+                lock.afterAwait(holds);
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            int holds = lock.beforeAwait();
+            try {
+                delegate.awaitUninterruptibly();
+            } finally {
+                lock.afterAwait(holds);
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            int holds = lock.beforeAwait();
+            try {
+                return delegate.awaitNanos(nanosTimeout);
+            } finally {
+                lock.afterAwait(holds);
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            int holds = lock.beforeAwait();
+            try {
+                return delegate.await(time, unit);
+            } finally {
+                lock.afterAwait(holds);
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            int holds = lock.beforeAwait();
+            try {
+                return delegate.awaitUntil(deadline);
+            } finally {
+                lock.afterAwait(holds);
+            }
+        }
+
+        @Override
+        public void signal() {
+            delegate.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            delegate.signalAll();
+        }
+    }
+}
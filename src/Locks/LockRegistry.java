@@ -0,0 +1,80 @@
+package Locks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <h3><b>Lock Registry</b></h3>
+ * <p>
+ * Hands out {@link InstrumentedLock}s and keeps their {@link LockMetrics} by name, so contention can be inspected on demand
+ * (from a debug endpoint, a periodic log line, a shutdown hook) instead of attaching a profiler.
+ * </p>
+ *
+ * <pre>{@code
+ * Lock lock = LockRegistry.global().lock("account", new ReentrantLock());
+ * ...
+ * System.out.println(LockRegistry.global().dump());
+ * }</pre>
+ *
+ * <p>
+ * Locks registered under the same name share one {@link LockMetrics}, which is handy for lock striping
+ * (e.g. all shard locks of a ledger under one name). A {@code ReadWriteLock} is recorded as {@code name.read} and {@code name.write}.
+ * </p>
+ */
+public class LockRegistry {
+    private static final LockRegistry GLOBAL = new LockRegistry();
+
+    private final Map<String, LockMetrics> metrics = new ConcurrentSkipListMap<>();
+
+    public static LockRegistry global() {
+        return GLOBAL;
+    }
+
+    public InstrumentedLock lock(String name, Lock lock) {
+        boolean fair = lock instanceof ReentrantLock reentrantLock && reentrantLock.isFair();
+        return new InstrumentedLock(lock, metrics(name), false, fair);
+    }
+
+    public ReadWriteLock readWriteLock(String name, ReadWriteLock lock) {
+        boolean fair = lock instanceof ReentrantReadWriteLock reentrantLock && reentrantLock.isFair();
+        InstrumentedLock readLock = new InstrumentedLock(lock.readLock(), metrics(name + ".read"), true, fair);
+        InstrumentedLock writeLock = new InstrumentedLock(lock.writeLock(), metrics(name + ".write"), false, fair);
+        return new ReadWriteLock() {
+            @Override
+            public Lock readLock() {
+                return readLock;
+            }
+
+            @Override
+            public Lock writeLock() {
+                return writeLock;
+            }
+        };
+    }
+
+    public LockMetrics metrics(String name) {
+        return metrics.computeIfAbsent(name, LockMetrics::new);
+    }
+
+    public Collection<LockMetrics> all() {
+        return Collections.unmodifiableCollection(metrics.values());
+    }
+
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (LockMetrics lockMetrics : metrics.values()) {
+            sb.append(lockMetrics).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        metrics.values().forEach(LockMetrics::reset);
+    }
+}
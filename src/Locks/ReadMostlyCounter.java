@@ -0,0 +1,12 @@
+package Locks;
+
+/**
+ * The {@code increment()}/{@code getCount()} surface of {@link T6_ReadWriteLockExample}, so the different read strategies
+ * in {@link ReadStrategy} can be swapped behind it.
+ */
+public interface ReadMostlyCounter {
+
+    void increment();
+
+    int getCount();
+}
@@ -0,0 +1,37 @@
+package Locks;
+
+import java.util.function.Supplier;
+
+/**
+ * <h3><b>Read Strategy</b></h3>
+ * <p>Picks how readers of a {@link ReadMostlyCounter} are protected from concurrent writers.</p>
+ *
+ * <ul>
+ *     <li><b>{@code READ_WRITE_LOCK}:</b> What {@link T6_ReadWriteLockExample} does. Every read takes the read lock, which is an
+ *         atomic update of a reader count shared by all readers. Under many readers that one cache line becomes the bottleneck,
+ *         even though no reader ever blocks another.</li>
+ *     <li><b>{@code STAMPED_LOCK}:</b> {@code StampedLock.tryOptimisticRead()} — readers don't write anything, they read a stamp,
+ *         read the data and {@code validate()} that no write happened in between. Falls back to a real read lock if it did.</li>
+ *     <li><b>{@code SEQLOCK}:</b> A hand-rolled sequence lock. Same idea as the stamp, but readers simply retry until they get a
+ *         clean read instead of falling back to a lock. Best when writes are rare and short.</li>
+ * </ul>
+ *
+ * <pre>{@code
+ * ReadMostlyCounter counter = ReadStrategy.STAMPED_LOCK.newCounter();
+ * }</pre>
+ */
+public enum ReadStrategy {
+    READ_WRITE_LOCK(ReadWriteLockCounter::new),
+    STAMPED_LOCK(StampedLockCounter::new),
+    SEQLOCK(SeqLockCounter::new);
+
+    private final Supplier<ReadMostlyCounter> factory;
+
+    ReadStrategy(Supplier<ReadMostlyCounter> factory) {
+        this.factory = factory;
+    }
+
+    public ReadMostlyCounter newCounter() {
+        return factory.get();
+    }
+}
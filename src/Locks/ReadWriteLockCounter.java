@@ -0,0 +1,36 @@
+package Locks;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Same locking as {@link T6_ReadWriteLockExample}, without the {@code Thread.sleep(50)} inside the write lock,
+ * so it can be measured against the optimistic strategies.
+ */
+public class ReadWriteLockCounter implements ReadMostlyCounter {
+    private int count = 0;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    @Override
+    public void increment() {
+        writeLock.lock();
+        try {
+            count++;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int getCount() {
+        readLock.lock();
+        try {
+            return count;
+        } finally {
+            readLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package Locks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * <h3><b>Sequence Lock (seqlock)</b></h3>
+ * <p>
+ * A sequence number guards the data. It is even while the data is stable and odd while a writer is changing it.
+ * </p>
+ * <ul>
+ *     <li><b>Writer:</b> CAS the sequence from even to odd (this also keeps other writers out), change the data,
+ *         then set the sequence to the next even value.</li>
+ *     <li><b>Reader:</b> read the sequence, read the data, read the sequence again. If it was odd, or changed, a write overlapped
+ *         and the reader simply tries again. Readers never write to shared memory, so any number of them can read in parallel
+ *         without bouncing a cache line between cores.</li>
+ * </ul>
+ * <p>
+ * The fences matter: the {@code loadLoadFence()} stops the data read from being moved after the second sequence read,
+ * and the {@code storeStoreFence()} stops the data write from being moved before the odd sequence is visible.
+ * Readers can be starved by a constant stream of writes, so this suits data that is read far more often than it is written.
+ * </p>
+ */
+public class SeqLockCounter implements ReadMostlyCounter {
+    private static final VarHandle SEQUENCE;
+    private static final VarHandle COUNT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            SEQUENCE = lookup.findVarHandle(SeqLockCounter.class, "sequence", long.class);
+            COUNT = lookup.findVarHandle(SeqLockCounter.class, "count", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile long sequence = 0;
+    private int count = 0;
+
+    @Override
+    public void increment() {
+        long seq;
+        while (((seq = sequence) & 1) != 0 || !SEQUENCE.compareAndSet(this, seq, seq + 1)) {
+            Thread.onSpinWait();        // another writer is in, wait for it to finish
+        }
+        VarHandle.storeStoreFence();
+        COUNT.setOpaque(this, count + 1);
+        SEQUENCE.setRelease(this, seq + 2);
+    }
+
+    @Override
+    public int getCount() {
+        while (true) {
+            long before = (long) SEQUENCE.getAcquire(this);
+            if ((before & 1) == 0) {
+                int value = (int) COUNT.getOpaque(this);
+                VarHandle.loadLoadFence();
+                if (before == sequence) {
+                    return value;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package Locks;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <h3><b>StampedLock</b></h3>
+ * <p>
+ * A {@code StampedLock} hands out a {@code long} stamp for every lock mode. Besides read and write locks it has an
+ * <b>optimistic read</b> mode which doesn't lock at all:
+ * </p>
+ * <ul>
+ *     <li><b>{@code tryOptimisticRead()}:</b> Returns a stamp (or 0 if a writer currently holds the lock). It only reads the lock state, it doesn't modify it.</li>
+ *     <li><b>{@code validate(stamp)}:</b> Returns {@code true} if no write lock was acquired since the stamp was issued,
+ *         i.e. the values we read in between are consistent.</li>
+ *     <li>If validation fails, we fall back to a normal {@code readLock()} and read again.</li>
+ * </ul>
+ * <p>
+ * Note: {@code StampedLock} is <i>not</i> reentrant, and the fields read optimistically may be inconsistent until validated,
+ * so nothing should be done with them before {@code validate()} returns {@code true}.
+ * </p>
+ */
+public class StampedLockCounter implements ReadMostlyCounter {
+    private int count = 0;
+    private final StampedLock lock = new StampedLock();
+
+    @Override
+    public void increment() {
+        long stamp = lock.writeLock();
+        try {
+            count++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int getCount() {
+        long stamp = lock.tryOptimisticRead();
+        int value = count;
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();        // a writer got in between, read again under the real read lock
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+}
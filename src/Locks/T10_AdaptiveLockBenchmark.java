@@ -0,0 +1,95 @@
+package Locks;
+
+import Metrics.BenchmarkHarness;
+import Metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * <h3><b>Fair vs unfair vs adaptive</b></h3>
+ * <p>
+ * The 20 threads of {@link T5_LockFairnessExample}, but with a short critical section instead of {@code Thread.sleep(1000)}.
+ * For each lock it reports:
+ * </p>
+ * <ul>
+ *     <li><b>throughput:</b> lock acquisitions per second, all threads together.</li>
+ *     <li><b>p99 / max wait:</b> time from calling {@code lock()} to getting it. A high max wait with an unfair lock means some thread was starved.</li>
+ *     <li><b>min / max share:</b> the fewest and most acquisitions a single thread got, as a share of a perfectly even split.</li>
+ * </ul>
+ * <p>Usage: {@code java Locks.T10_AdaptiveLockBenchmark [threads] [millisPerRun]}.</p>
+ */
+public class T10_AdaptiveLockBenchmark {
+    record Candidate(String name, Supplier<Lock> factory) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+
+        Candidate[] candidates = {
+                new Candidate("unfair ReentrantLock", ReentrantLock::new),
+                new Candidate("fair ReentrantLock", () -> new ReentrantLock(true)),
+                new Candidate("adaptive (1 ms)", () -> new AdaptiveLock(100, 1, TimeUnit.MILLISECONDS)),
+        };
+
+        System.out.println(threads + " threads, " + millis + " ms per run");
+        System.out.printf("%-22s%14s%14s%14s%12s%12s%n", "lock", "Macq/s", "p99 wait us", "max wait us", "min share", "max share");
+        for (Candidate candidate : candidates) {
+            run(candidate, threads, millis / 4, false);       // warm up
+            run(candidate, threads, millis, true);
+        }
+    }
+
+    private static void run(Candidate candidate, int threads, long millis, boolean print) throws InterruptedException {
+        Lock lock = candidate.factory().get();
+        LatencyHistogram[] waits = new LatencyHistogram[threads];     // one per thread, so recording adds no shared writes
+        for (int i = 0; i < threads; i++) {
+            waits[i] = new LatencyHistogram();
+        }
+        long[] shared = new long[1];
+        BenchmarkHarness.Result result = BenchmarkHarness.run(threads, millis, (index, stop) -> {
+            LatencyHistogram histogram = waits[index];
+            long n = 0;
+            while (!stop.stopped()) {
+                long before = System.nanoTime();
+                lock.lock();
+                long waited = System.nanoTime() - before;
+                try {
+                    for (int j = 0; j < 20; j++) {      // short critical section
+                        shared[0] += j;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                histogram.record(waited);
+                n++;
+            }
+            return n;
+        });
+        if (!print) {
+            return;
+        }
+
+        long[] acquisitions = result.ops();
+        long total = result.total();
+        LatencyHistogram.Snapshot all = waits[0].snapshot();
+        long minAcquisitions = Long.MAX_VALUE;
+        long maxAcquisitions = 0;
+        for (int i = 0; i < threads; i++) {
+            if (i > 0) {
+                all = all.plus(waits[i].snapshot());
+            }
+            minAcquisitions = Math.min(minAcquisitions, acquisitions[i]);
+            maxAcquisitions = Math.max(maxAcquisitions, acquisitions[i]);
+        }
+        double even = total / (double) threads;
+        System.out.printf("%-22s%14.2f%14.1f%14.1f%12.2f%12.2f%n", candidate.name(),
+                result.throughput(),
+                all.percentile(99) / 1000.0,
+                all.max() / 1000.0,
+                minAcquisitions / even, maxAcquisitions / even);
+    }
+}
@@ -0,0 +1,121 @@
+package Locks;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * <h3><b>Lock metrics</b></h3>
+ * <p>Swaps instrumented locks into the earlier examples and prints what the {@link LockRegistry} saw.</p>
+ * <ul>
+ *     <li><b>account:</b> three threads call {@link T3_BankAccountWithLock#withdraw(int)}. Each withdrawal holds the lock for 3 s,
+ *         so the third thread gives up after its 5 s {@code tryLock} — that shows up as a timeout and a ~5 s wait.
+ *         Takes about 6 seconds.</li>
+ *     <li><b>reentrant:</b> {@link T4_ReentrantLockExample#outerMethod()} takes the lock twice, so the depth reaches 2.</li>
+ *     <li><b>counter.read / counter.write:</b> the reader and writer threads of {@link T6_ReadWriteLockExample}.</li>
+ *     <li><b>condition:</b> one thread waits on a {@code Condition} while the lock is held twice, another signals it, then the lock
+ *         is taken 5 more times. {@code await} gives the lock up, so no acquire may see a depth above 2 afterwards, and the
+ *         example fails if one does.</li>
+ * </ul>
+ */
+public class T11_LockMetricsExample {
+
+    public static void main(String[] args) throws InterruptedException {
+        LockRegistry registry = LockRegistry.global();
+
+        T3_BankAccountWithLock bankAccount = new T3_BankAccountWithLock();
+        bankAccount.lock = registry.lock("account", new ReentrantLock());
+        Thread[] withdrawals = new Thread[3];
+        for (int i = 0; i < withdrawals.length; i++) {
+            withdrawals[i] = new Thread(() -> bankAccount.withdraw(30), "Thread " + (i + 1));
+            withdrawals[i].start();
+        }
+
+        T4_ReentrantLockExample reentrant = new T4_ReentrantLockExample();
+        reentrant.lock = registry.lock("reentrant", new ReentrantLock());
+        reentrant.outerMethod();
+
+        ReadWriteLock lock = registry.readWriteLock("counter", new ReentrantReadWriteLock());
+        int[] count = new int[1];
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                lock.writeLock().lock();
+                try {
+                    count[0]++;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }, "Writing thread");
+        Runnable readTask = () -> {
+            int sum = 0;
+            for (int i = 0; i < 100_000; i++) {
+                lock.readLock().lock();
+                try {
+                    sum += count[0];
+                } finally {
+                    lock.readLock().unlock();
+                }
+            }
+            System.out.println(Thread.currentThread().getName() + " done, checksum " + sum);
+        };
+        Thread reader1 = new Thread(readTask, "Reading thread 1");
+        Thread reader2 = new Thread(readTask, "Reading thread 2");
+        writer.start();
+        reader1.start();
+        reader2.start();
+        writer.join();
+        reader1.join();
+        reader2.join();
+
+        checkConditionDepth(registry);
+
+        for (Thread withdrawal : withdrawals) {
+            withdrawal.join();
+        }
+        System.out.println("-------------------------------");
+        System.out.println(registry.dump());
+    }
+
+    private static void checkConditionDepth(LockRegistry registry) throws InterruptedException {
+        Lock lock = registry.lock("condition", new ReentrantLock());
+        Condition signalled = lock.newCondition();
+        boolean[] ready = new boolean[1];
+        Thread waiter = new Thread(() -> {
+            lock.lock();
+            lock.lock();
+            try {
+                while (!ready[0]) {
+                    signalled.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+                lock.unlock();
+            }
+        }, "Waiting thread");
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        lock.lock();
+        try {
+            ready[0] = true;
+            signalled.signal();
+        } finally {
+            lock.unlock();
+        }
+        waiter.join();
+        for (int i = 0; i < 5; i++) {
+            lock.lock();
+            lock.unlock();
+        }
+        LockMetrics metrics = registry.metrics("condition");
+        long maxDepth = metrics.depth().max();
+        long holds = metrics.holdTime().count();        // waiter before and after await, the signal, 5 more
+        if (maxDepth != 2 || holds != 8) {
+            throw new IllegalStateException("depth not back to 0 after await/signal: max depth " + maxDepth + ", holds " + holds);
+        }
+    }
+}
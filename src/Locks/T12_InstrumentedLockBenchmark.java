@@ -0,0 +1,66 @@
+package Locks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h3><b>Instrumented Lock overhead</b></h3>
+ * <p>
+ * Compares a plain {@code ReentrantLock} with the same lock wrapped by {@link LockRegistry}:
+ * the cost of an uncontended {@code lock()}/{@code unlock()} pair on one thread, and throughput with several threads contending.
+ * </p>
+ * <p>Usage: {@code java Locks.T12_InstrumentedLockBenchmark [threads] [iterations]}.</p>
+ */
+public class T12_InstrumentedLockBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        LockRegistry registry = new LockRegistry();
+
+        for (int round = 0; round < 3; round++) {       // the first rounds are warm up
+            Lock plain = new ReentrantLock();
+            Lock instrumented = registry.lock("benchmark", new ReentrantLock());
+            System.out.printf("round %d  uncontended: plain %.1f ns, instrumented %.1f ns   %d threads: plain %.2f, instrumented %.2f Mops/s%n",
+                    round, uncontended(plain, iterations), uncontended(instrumented, iterations),
+                    threads, contended(plain, threads, iterations / threads), contended(instrumented, threads, iterations / threads));
+        }
+        System.out.println(registry.dump());
+    }
+
+    private static double uncontended(Lock lock, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            lock.lock();
+            lock.unlock();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    private static double contended(Lock lock, int threads, int iterationsPerThread) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < iterationsPerThread; j++) {
+                    lock.lock();
+                    lock.unlock();
+                }
+            });
+            workers[i].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (long) threads * iterationsPerThread * 1000.0 / (System.nanoTime() - begin);
+    }
+}
@@ -15,6 +15,9 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  *  If a thread acquires a write lock, other threads can't acquire read or write locks until current thread releases the write lock.
  *  It is mutually exclusive lock for write operations.</li>
  * </ul>
+ * <p>
+ * Taking the read lock still writes to the lock's shared reader count. For read-mostly data, see {@link ReadStrategy} for
+ * optimistic readers ({@code StampedLock} and seqlock) that only validate a version stamp.
  */
 public class T6_ReadWriteLockExample {
     int count = 0;
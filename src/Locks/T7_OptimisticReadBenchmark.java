@@ -0,0 +1,76 @@
+package Locks;
+
+import Metrics.BenchmarkHarness;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * <h3><b>Optimistic Read Benchmark</b></h3>
+ * <p>
+ * Every thread loops over {@code getCount()} and {@code increment()} in a fixed read/write ratio (99/1, 90/10 and 50/50)
+ * against each {@link ReadStrategy}. The more read-heavy the mix, the more the optimistic strategies should pull ahead of
+ * {@code ReentrantReadWriteLock}, whose readers all update the same reader count. At 50/50 the writers dominate and the
+ * difference mostly disappears.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java Locks.T7_OptimisticReadBenchmark [threads] [millisPerRun]}.
+ * </p>
+ */
+public class T7_OptimisticReadBenchmark {
+    private static final int[] READ_PERCENTAGES = {99, 90, 50};
+    static volatile int blackhole;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+
+        System.out.println(threads + " threads, throughput in million operations/s");
+        System.out.printf("%-18s", "reads/writes");
+        for (int reads : READ_PERCENTAGES) {
+            System.out.printf("%10s", reads + "/" + (100 - reads));
+        }
+        System.out.println();
+
+        for (ReadStrategy strategy : ReadStrategy.values()) {
+            run(strategy, threads, 90, millis / 4);       // warm up
+            System.out.printf("%-18s", strategy);
+            for (int reads : READ_PERCENTAGES) {
+                System.out.printf("%10.2f", run(strategy, threads, reads, millis));
+            }
+            System.out.println();
+        }
+    }
+
+    private static double run(ReadStrategy strategy, int threads, int readPercentage, long millis) throws InterruptedException {
+        ReadMostlyCounter counter = strategy.newCounter();
+        long[] writes = new long[threads];
+        BenchmarkHarness.Result result = BenchmarkHarness.run(threads, millis, (index, stop) -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long n = 0;
+            long w = 0;
+            int sink = 0;
+            while (!stop.stopped()) {
+                if (random.nextInt(100) < readPercentage) {
+                    sink += counter.getCount();
+                } else {
+                    counter.increment();
+                    w++;
+                }
+                n++;
+            }
+            writes[index] = w;
+            blackhole = sink;       // publish the reads so the JIT can't drop them
+            return n;
+        });
+
+        long totalWrites = 0;
+        for (long w : writes) {
+            totalWrites += w;
+        }
+        if (counter.getCount() != (int) totalWrites) {
+            throw new IllegalStateException(strategy + " lost writes: expected " + totalWrites + " but was " + counter.getCount());
+        }
+        return result.throughput();
+    }
+}
@@ -0,0 +1,63 @@
+package Locks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h3><b>Detecting deadlocks</b></h3>
+ * <p>Runs the Paper/Pen scenario of {@link T1_DeadLockExample} twice.</p>
+ *
+ * <ol>
+ *     <li><b>With a {@link LockOrderTracker}:</b> the two threads run <i>one after the other</i>, so no deadlock can happen.
+ *         The tracker still reports the inversion, because thread 1 took Pen → Paper and thread 2 took Paper → Pen.
+ *         This is the run that would have hung in production on an unlucky day.</li>
+ *     <li><b>With a {@link DeadlockWatchdog}:</b> the two threads run at the same time with {@code synchronized}, exactly like
+ *         {@code T1_DeadLockExample} without its fix, and really deadlock. The watchdog reports both threads, the monitors they hold
+ *         and wait for, and their stacks. The threads are daemons so the program can still exit.</li>
+ * </ol>
+ */
+public class T8_DeadlockDetectionExample {
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("----------Lock order tracker");
+        LockOrderTracker tracker = new LockOrderTracker(System.out::println);
+        Lock paper = tracker.wrap("Paper", new ReentrantLock());
+        Lock pen = tracker.wrap("Pen", new ReentrantLock());
+
+        Thread t1 = new Thread(() -> useBoth(pen, paper), "Thread-1");
+        Thread t2 = new Thread(() -> useBoth(paper, pen), "Thread-2");
+        t1.start();
+        t1.join();      // strictly one after the other, so they never collide
+        t2.start();
+        t2.join();
+
+        System.out.println("----------Deadlock watchdog");
+        try (DeadlockWatchdog watchdog = new DeadlockWatchdog(500, TimeUnit.MILLISECONDS, System.out::println)) {
+            watchdog.start();
+            T1_DeadLockExample.Paper paperMonitor = new T1_DeadLockExample.Paper();
+            T1_DeadLockExample.Pen penMonitor = new T1_DeadLockExample.Pen();
+            Thread t3 = new Thread(() -> penMonitor.writeWithPenAndPaper(paperMonitor), "Thread-3");
+            Thread t4 = new Thread(() -> paperMonitor.writeWithPaperAndPen(penMonitor), "Thread-4");
+            t3.setDaemon(true);
+            t4.setDaemon(true);
+            t3.start();
+            t4.start();
+            Thread.sleep(2000);
+        }
+    }
+
+    private static void useBoth(Lock first, Lock second) {
+        first.lock();
+        try {
+            second.lock();
+            try {
+                System.out.println(Thread.currentThread().getName() + " is using " + first + " and " + second);
+            } finally {
+                second.unlock();
+            }
+        } finally {
+            first.unlock();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package Locks;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h3><b>Lock Order Tracker overhead</b></h3>
+ * <p>
+ * Measures what a {@link LockOrderTracker} adds to an uncontended {@code lock()}/{@code unlock()} pair, which is the case where
+ * its cost is most visible (under contention the waiting dwarfs it). Two patterns are measured:
+ * </p>
+ * <ul>
+ *     <li><b>single:</b> lock one lock while holding nothing — only the held-locks bookkeeping.</li>
+ *     <li><b>nested:</b> lock an inner lock while holding an outer one — bookkeeping plus one lookup of an already known edge.</li>
+ * </ul>
+ * <p>Usage: {@code java Locks.T9_LockOrderTrackerBenchmark [iterations]}.</p>
+ */
+public class T9_LockOrderTrackerBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        LockOrderTracker tracker = new LockOrderTracker(System.out::println);
+
+        Lock plainOuter = new ReentrantLock();
+        Lock plainInner = new ReentrantLock();
+        Lock trackedOuter = tracker.wrap("outer", new ReentrantLock());
+        Lock trackedInner = tracker.wrap("inner", new ReentrantLock());
+
+        for (int round = 0; round < 3; round++) {       // the first rounds are warm up, the last one is the one to read
+            double plainSingle = single(plainOuter, iterations);
+            double trackedSingle = single(trackedOuter, iterations);
+            double plainNested = nested(plainOuter, plainInner, iterations);
+            double trackedNested = nested(trackedOuter, trackedInner, iterations);
+            System.out.printf("round %d  single: plain %.1f ns, tracked %.1f ns (+%.1f)  nested: plain %.1f ns, tracked %.1f ns (+%.1f)%n",
+                    round, plainSingle, trackedSingle, trackedSingle - plainSingle,
+                    plainNested, trackedNested, trackedNested - plainNested);
+        }
+    }
+
+    private static double single(Lock lock, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            lock.lock();
+            lock.unlock();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+
+    private static double nested(Lock outer, Lock inner, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            outer.lock();
+            inner.lock();
+            inner.unlock();
+            outer.unlock();
+        }
+        return (System.nanoTime() - start) / (double) iterations;
+    }
+}
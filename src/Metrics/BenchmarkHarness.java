@@ -0,0 +1,112 @@
+package Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <h3><b>Benchmark Harness</b></h3>
+ * <p>
+ * The timed run shared by the throughput benchmarks: start {@code threads} workers, release them together, let them loop for
+ * {@code millis}, then stop and join them. Each worker returns how many operations it did, and the run reports the total and the
+ * throughput over the measured time.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Start gate:</b> the workers wait on a {@code CountDownLatch}, so thread creation isn't part of the measurement and all
+ *         of them start contending at the same moment.</li>
+ *     <li><b>{@link Stop}:</b> a volatile flag the workers poll. Checking it once per batch of operations keeps the read out of the
+ *         way; each worker counts in a local and returns the count at the end, so no shared counter is written during the run.</li>
+ *     <li><b>Failures:</b> if a worker throws, the run still stops and joins the others, then throws {@code IllegalStateException}
+ *         with the first failure as its cause.</li>
+ *     <li><b>{@code threadCounts(max)}:</b> 1, 2, 4 ... up to and including {@code max}, the columns of a scaling table.</li>
+ * </ul>
+ */
+public final class BenchmarkHarness {
+
+    private BenchmarkHarness() {
+    }
+
+    /**
+     * One worker of a run: loops until {@code stop.stopped()} and returns the number of operations it did.
+     */
+    @FunctionalInterface
+    public interface Worker {
+        long run(int index, Stop stop) throws Exception;
+    }
+
+    public static final class Stop {
+        private volatile boolean stopped;
+
+        public boolean stopped() {
+            return stopped;
+        }
+    }
+
+    /**
+     * The operations each worker did, and the time from releasing them to the last one finishing.
+     */
+    public record Result(long[] ops, long elapsedNanos) {
+
+        public long total() {
+            long total = 0;
+            for (long n : ops) {
+                total += n;
+            }
+            return total;
+        }
+
+        /**
+         * Million operations per second, all workers together.
+         */
+        public double throughput() {
+            return total() * 1000.0 / elapsedNanos;
+        }
+    }
+
+    public static Result run(int threads, long millis, Worker worker) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        long[] ops = new long[threads];
+        Thread[] workers = new Thread[threads];
+        Stop stop = new Stop();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    ops[index] = worker.run(index, stop);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                    stop.stopped = true;            // no point measuring the others
+                }
+            });
+            workers[i].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        stop.stopped = true;
+        for (Thread thread : workers) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("worker failed", failure.get());
+        }
+        return new Result(ops, elapsed);
+    }
+
+    public static List<Integer> threadCounts(int maxThreads) {
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int t = 1; t < maxThreads; t *= 2) {
+            threadCounts.add(t);
+        }
+        threadCounts.add(maxThreads);
+        return threadCounts;
+    }
+}
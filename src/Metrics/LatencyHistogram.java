@@ -0,0 +1,172 @@
+package Metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h3><b>Latency Histogram</b></h3>
+ * <p>
+ * Counts recorded values (usually nanoseconds) in buckets, so percentiles can be read at any time without keeping every sample.
+ * Recording is lock-free and allocation-free: one {@code AtomicLongArray} increment, plus a CAS on the max only when a new max is seen.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Buckets:</b> values below {@value #SUB_BUCKETS} get one bucket each. Above that, every power of two is split into
+ *         {@value #SUB_BUCKETS} equal buckets, so a value is reported with at most ~3% error whether it is 100 ns or 10 s.
+ *         The whole {@code long} range fits into a fixed {@value #BUCKETS} buckets.</li>
+ *     <li><b>{@code snapshot()}:</b> copies the counts once, so the percentiles read from it are consistent with each other.
+ *         Values recorded while copying may or may not be included. {@code Snapshot.plus} adds two snapshots, so hot paths can
+ *         record into one histogram per thread and combine them afterwards.</li>
+ *     <li>Negative values are recorded as 0.</li>
+ * </ul>
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.getAndIncrement(indexOf(value));
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int exponent = msb - SUB_BITS + 1;
+        int mantissa = (int) (value >>> (msb - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + mantissa;
+    }
+
+    static long lowerBound(int index) {
+        int exponent = index >>> SUB_BITS;
+        int mantissa = index & (SUB_BUCKETS - 1);
+        return exponent == 0 ? mantissa : (long) (SUB_BUCKETS | mantissa) << (exponent - 1);
+    }
+
+    static long upperBound(int index) {
+        int exponent = index >>> SUB_BITS;
+        return exponent == 0 ? lowerBound(index) : lowerBound(index) + (1L << (exponent - 1)) - 1;
+    }
+
+    /**
+     * A frozen copy of the counts.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long max;
+        private final long count;
+
+        Snapshot(long[] counts, long max) {
+            this.counts = counts;
+            this.max = max;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * The counts of both snapshots together, e.g. to combine per-thread histograms after a run.
+         */
+        public Snapshot plus(Snapshot other) {
+            long[] sum = counts.clone();
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += other.counts[i];
+            }
+            return new Snapshot(sum, Math.max(max, other.max));
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /**
+         * The value at the given percentile (0 - 100), reported as the upper end of its bucket and never above the max.
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        public double mean() {
+            if (count == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    sum += counts[i] * ((lowerBound(i) + upperBound(i)) / 2.0);
+                }
+            }
+            return sum / count;
+        }
+
+        /**
+         * One line summary, with the values converted from nanoseconds to {@code unit}.
+         */
+        public String format(TimeUnit unit) {
+            double scale = unit.toNanos(1);
+            String suffix = switch (unit) {
+                case NANOSECONDS -> "ns";
+                case MICROSECONDS -> "us";
+                case MILLISECONDS -> "ms";
+                default -> unit.name().toLowerCase();
+            };
+            return String.format("count=%d p50=%.1f%s p90=%.1f%s p99=%.1f%s p99.9=%.1f%s max=%.1f%s",
+                    count,
+                    percentile(50) / scale, suffix,
+                    percentile(90) / scale, suffix,
+                    percentile(99) / scale, suffix,
+                    percentile(99.9) / scale, suffix,
+                    max / scale, suffix);
+        }
+
+        @Override
+        public String toString() {
+            return format(TimeUnit.MICROSECONDS);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package Padding;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <h3><b>Object Layout</b></h3>
+ * <p>
+ * Padding only works if the JVM lays the object out the way the code suggests, and that depends on the JVM version and flags
+ * (compressed class pointers make the header 12 bytes instead of 16, {@code -XX:ObjectAlignmentInBytes} changes the rounding,
+ * and fields of one class may be reordered). This reads the layout the running JVM actually uses, without external tools.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@link #cacheLineSize()}:</b> from {@code /sys/devices/system/cpu/cpu0/cache} on Linux, otherwise 64.</li>
+ *     <li><b>{@link #fields(Class)}:</b> the instance fields of a class and its superclasses, by offset, from
+ *         {@code sun.misc.Unsafe.objectFieldOffset}. Returns an empty list if {@code Unsafe} isn't available. {@code Unsafe} is
+ *         looked up by name and called through method handles, so compiling this class doesn't depend on the internal API.</li>
+ *     <li><b>{@link #instanceSize(Class)}:</b> where the last field ends, rounded up to the object alignment.</li>
+ *     <li><b>{@link #describe(Class, String)}:</b> the field list, and how many bytes of the object lie before and after
+ *         {@code field}. If both are at least a cache line, no other object can share its line.</li>
+ * </ul>
+ */
+public final class ObjectLayout {
+    private static final MethodHandle OBJECT_FIELD_OFFSET;      // (Field) long, bound to the Unsafe instance; null if unavailable
+    private static final MethodHandle ARRAY_BASE_OFFSET;        // (Class) int
+    private static final MethodHandle ARRAY_INDEX_SCALE;        // (Class) int
+
+    static {
+        MethodHandle fieldOffset = null;
+        MethodHandle baseOffset = null;
+        MethodHandle indexScale = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            fieldOffset = lookup.unreflect(unsafeClass.getMethod("objectFieldOffset", Field.class)).bindTo(unsafe);
+            baseOffset = lookup.unreflect(unsafeClass.getMethod("arrayBaseOffset", Class.class)).bindTo(unsafe);
+            indexScale = lookup.unreflect(unsafeClass.getMethod("arrayIndexScale", Class.class)).bindTo(unsafe);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            fieldOffset = null;      // all three or none
+        }
+        OBJECT_FIELD_OFFSET = fieldOffset;
+        ARRAY_BASE_OFFSET = baseOffset;
+        ARRAY_INDEX_SCALE = indexScale;
+    }
+
+    public record FieldOffset(String name, Class<?> type, long offset, int size) {
+    }
+
+    private ObjectLayout() {
+    }
+
+    public static boolean available() {
+        return OBJECT_FIELD_OFFSET != null;
+    }
+
+    public static int cacheLineSize() {
+        try {
+            return Integer.parseInt(Files.readString(Path.of("/sys/devices/system/cpu/cpu0/cache/index0/coherency_line_size")).trim());
+        } catch (Exception e) {
+            return 64;
+        }
+    }
+
+    public static int objectAlignment() {
+        return Integer.parseInt(vmOption("ObjectAlignmentInBytes", "8"));
+    }
+
+    /**
+     * The JVM flags that change object layouts, as one line.
+     */
+    public static String vmSummary() {
+        return "JVM " + System.getProperty("java.vm.version")
+                + ", compressed oops " + vmOption("UseCompressedOops", "?")
+                + ", compressed class pointers " + vmOption("UseCompressedClassPointers", "?")
+                + ", alignment " + objectAlignment()
+                + ", cache line " + cacheLineSize() + " bytes";
+    }
+
+    public static List<FieldOffset> fields(Class<?> type) {
+        List<FieldOffset> fields = new ArrayList<>();
+        if (!available()) {
+            return fields;
+        }
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    fields.add(new FieldOffset(c.getSimpleName() + "." + field.getName(), field.getType(),
+                            objectFieldOffset(field), sizeOf(field.getType())));
+                }
+            }
+        }
+        fields.sort(Comparator.comparingLong(FieldOffset::offset));
+        return fields;
+    }
+
+    /**
+     * Bytes per instance, or -1 if the layout can't be read.
+     */
+    public static long instanceSize(Class<?> type) {
+        if (!available()) {
+            return -1;
+        }
+        long end = headerSize();
+        for (FieldOffset field : fields(type)) {
+            end = Math.max(end, field.offset() + field.size());
+        }
+        int alignment = objectAlignment();
+        return (end + alignment - 1) / alignment * alignment;
+    }
+
+    /**
+     * The offset of the first field in an object, which is where the header ends.
+     */
+    public static long headerSize() {
+        return fields(HeaderProbe.class).get(0).offset();
+    }
+
+    /**
+     * Offset of element 0 and bytes per element of an array class, e.g. {@code long[].class}.
+     */
+    public static String describeArray(Class<?> arrayType) {
+        if (!available()) {
+            return arrayType.getSimpleName() + ": layout unknown";
+        }
+        return arrayType.getSimpleName() + ": element 0 at offset " + arrayBaseOffset(arrayType) + ", "
+                + arrayIndexScale(arrayType) + " bytes per element";
+    }
+
+    /**
+     * One line per field, then whether {@code field} has a cache line of its own object on either side.
+     */
+    public static String describe(Class<?> type, String field) {
+        if (!available()) {
+            return type.getSimpleName() + ": layout unknown, sun.misc.Unsafe is not available";
+        }
+        StringBuilder text = new StringBuilder();
+        long size = instanceSize(type);
+        List<FieldOffset> fields = fields(type);
+        text.append(type.getSimpleName()).append(": ").append(size).append(" bytes, header ").append(headerSize()).append('\n');
+        FieldOffset hot = null;
+        for (int i = 0; i < fields.size(); ) {
+            FieldOffset f = fields.get(i);
+            String owner = f.name().substring(0, f.name().indexOf('.') + 1);
+            int end = i + 1;        // a run of fields of the same class and type, like padding, is printed as one line
+            while (end < fields.size() && fields.get(end).type() == f.type() && fields.get(end).name().startsWith(owner)
+                    && !fields.get(end).name().endsWith("." + field) && !f.name().endsWith("." + field)) {
+                end++;
+            }
+            if (end - i == 1) {
+                text.append(String.format("    %4d %-28s %s%n", f.offset(), f.name(), f.type().getSimpleName()));
+            } else {
+                FieldOffset last = fields.get(end - 1);
+                text.append(String.format("    %4d %-28s %d x %s%n", f.offset(),
+                        f.name() + " .. " + last.name().substring(owner.length()), end - i, f.type().getSimpleName()));
+            }
+            if (f.name().endsWith("." + field)) {
+                hot = f;
+            }
+            i = end;
+        }
+        if (hot != null) {
+            long before = hot.offset();
+            long after = size - hot.offset() - hot.size();
+            int line = cacheLineSize();
+            text.append(String.format("    %s: %d bytes of this object before it, %d after: %s%n", field, before, after,
+                    before >= line && after >= line ? "on a cache line of its own"
+                            : "may share a cache line with the neighbouring objects"));
+        }
+        return text.toString();
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return arrayIndexScale(Object[].class);      // 4 with compressed oops, 8 without
+    }
+
+    private static String vmOption(String name, String fallback) {
+        try {
+            return ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class).getVMOption(name).getValue();
+        } catch (RuntimeException e) {
+            return fallback;
+        }
+    }
+
+    private static long objectFieldOffset(Field field) {
+        try {
+            return (long) OBJECT_FIELD_OFFSET.invokeExact(field);
+        } catch (Throwable e) {
+            throw new IllegalStateException("objectFieldOffset failed for " + field, e);
+        }
+    }
+
+    private static int arrayBaseOffset(Class<?> arrayType) {
+        try {
+            return (int) ARRAY_BASE_OFFSET.invokeExact(arrayType);
+        } catch (Throwable e) {
+            throw new IllegalStateException("arrayBaseOffset failed for " + arrayType, e);
+        }
+    }
+
+    private static int arrayIndexScale(Class<?> arrayType) {
+        try {
+            return (int) ARRAY_INDEX_SCALE.invokeExact(arrayType);
+        } catch (Throwable e) {
+            throw new IllegalStateException("arrayIndexScale failed for " + arrayType, e);
+        }
+    }
+
+    private static final class HeaderProbe {
+        byte field;
+    }
+}
@@ -0,0 +1,39 @@
+package Padding;
+
+/**
+ * <h3><b>Padded Atomic Long</b></h3>
+ * <p>
+ * The operations of {@code AtomicLong} on a {@link PaddedVolatileLong}. A plain {@code AtomicLong} is a 24-byte object, so up to
+ * three of them fit into one cache line; per-thread counters allocated in a row, or an {@code AtomicLong} allocated next to an
+ * object another thread writes, slow each other down although no value is shared.
+ * </p>
+ */
+public class PaddedAtomicLong extends PaddedVolatileLong {
+
+    public PaddedAtomicLong() {
+    }
+
+    public PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+
+    public boolean compareAndSet(long expected, long newValue) {
+        return VALUE.compareAndSet(this, expected, newValue);
+    }
+
+    public long getAndAdd(long delta) {
+        return (long) VALUE.getAndAdd(this, delta);
+    }
+
+    public long addAndGet(long delta) {
+        return getAndAdd(delta) + delta;
+    }
+
+    public long incrementAndGet() {
+        return addAndGet(1);
+    }
+
+    public long getAndSet(long newValue) {
+        return (long) VALUE.getAndSet(this, newValue);
+    }
+}
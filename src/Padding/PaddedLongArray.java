@@ -0,0 +1,103 @@
+package Padding;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * <h3><b>Padded Long Array</b></h3>
+ * <p>
+ * An array of {@code long} counters where element {@code i} is stored {@code stride} longs after element {@code i - 1}. In a plain
+ * {@code long[]} eight elements share a 64-byte cache line, so per-thread slots like {@code counts[threadIndex]++} fight over the
+ * line exactly like one shared counter would. With the default stride of {@value #DEFAULT_STRIDE} (128 bytes) every element has
+ * its own line and the neighbouring one. The same layout as the cells of {@code Counters.StripedCounter}, as a general-purpose
+ * array; a stride of 1 gives the packed layout, for comparison.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@code get} / {@code set}:</b> volatile reads and writes.</li>
+ *     <li><b>{@code setRelease}:</b> a write without the trailing fence, for slots with a single writer.</li>
+ *     <li><b>{@code getAndAdd} / {@code addAndGet} / {@code incrementAndGet} / {@code compareAndSet}:</b> atomic, for slots with
+ *         several writers.</li>
+ * </ul>
+ * <p>
+ * Memory is {@code (length + 1) * stride * 8} bytes: the extra stride in front keeps element 0 away from the array header.
+ * </p>
+ */
+public class PaddedLongArray {
+    public static final int DEFAULT_STRIDE = 16;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] values;
+    private final int length;
+    private final int stride;
+
+    public PaddedLongArray(int length) {
+        this(length, DEFAULT_STRIDE);
+    }
+
+    public PaddedLongArray(int length, int stride) {
+        if (length < 0) {
+            throw new IllegalArgumentException("length must not be negative: " + length);
+        }
+        if (stride < 1) {
+            throw new IllegalArgumentException("stride must be positive: " + stride);
+        }
+        this.values = new long[Math.multiplyExact(length + 1, stride)];
+        this.length = length;
+        this.stride = stride;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    public long get(int index) {
+        return (long) LONGS.getVolatile(values, offset(index));
+    }
+
+    public void set(int index, long newValue) {
+        LONGS.setVolatile(values, offset(index), newValue);
+    }
+
+    public void setRelease(int index, long newValue) {
+        LONGS.setRelease(values, offset(index), newValue);
+    }
+
+    public boolean compareAndSet(int index, long expected, long newValue) {
+        return LONGS.compareAndSet(values, offset(index), expected, newValue);
+    }
+
+    public long getAndAdd(int index, long delta) {
+        return (long) LONGS.getAndAdd(values, offset(index), delta);
+    }
+
+    public long addAndGet(int index, long delta) {
+        return getAndAdd(index, delta) + delta;
+    }
+
+    public long incrementAndGet(int index) {
+        return addAndGet(index, 1);
+    }
+
+    /**
+     * The sum of all elements; not an atomic snapshot.
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += get(i);
+        }
+        return sum;
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+        return (index + 1) * stride;
+    }
+}
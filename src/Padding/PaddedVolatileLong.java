@@ -0,0 +1,76 @@
+package Padding;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// HotSpot lays out a superclass's fields before its subclass's, so padding in the classes around the value stays around it.
+// Within a single class it may reorder fields freely.
+abstract class LeftPadding {
+    long p01, p02, p03, p04, p05, p06, p07, p08, p09, p10, p11, p12, p13, p14, p15;
+}
+
+abstract class Value extends LeftPadding {
+    volatile long value;
+}
+
+abstract class RightPadding extends Value {
+    long p17, p18, p19, p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p30, p31;
+}
+
+/**
+ * <h3><b>Padded Volatile Long</b></h3>
+ * <p>
+ * A {@code volatile long} with 120 bytes of unused fields on either side, so no other variable shares its cache line, or the
+ * line next to it (some CPUs fetch lines in pairs). Objects allocated one after another usually end up next to each other in
+ * memory: two small holders written by two threads, like the {@code volatile boolean flag} in {@code VolatileExample}, then sit on
+ * one line and every write of one thread evicts the other thread's copy (<b>false sharing</b>). Padded, each one has its own lines.
+ * </p>
+ * <p>
+ * The padding costs 256 bytes per instance, so it is for a handful of hot fields written by different threads, not for
+ * everything. {@link ObjectLayout} shows where the JVM actually put the field. The JDK's own {@code @Contended} does the same but
+ * needs {@code -XX:-RestrictContended} outside the JDK.
+ * </p>
+ */
+public class PaddedVolatileLong extends RightPadding {
+    static final VarHandle VALUE;
+
+    static {
+        try {
+            VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public PaddedVolatileLong() {
+    }
+
+    public PaddedVolatileLong(long initialValue) {
+        value = initialValue;
+    }
+
+    public long get() {
+        return value;
+    }
+
+    public void set(long newValue) {
+        value = newValue;
+    }
+
+    /**
+     * Like {@code set}, but without the fence after the write: other threads see it a little later, the writer doesn't wait.
+     * Enough for a value only one thread writes.
+     */
+    public void setRelease(long newValue) {
+        VALUE.setRelease(this, newValue);
+    }
+
+    public long getAcquire() {
+        return (long) VALUE.getAcquire(this);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
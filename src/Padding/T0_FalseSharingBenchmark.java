@@ -0,0 +1,214 @@
+package Padding;
+
+import Metrics.BenchmarkHarness;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * <h3><b>False Sharing Benchmark</b></h3>
+ * <p>
+ * Every thread increments its own counter; no value is shared, so the total should grow with the thread count. Whether it
+ * does depends only on where the counters are in memory:
+ * </p>
+ *
+ * <ul>
+ *     <li><b>long[] packed / stride 16:</b> slot {@code i} of a {@link PaddedLongArray} with stride 1 (a plain {@code long[]}) and
+ *         with the default stride, written with a volatile store.</li>
+ *     <li><b>volatile holder / PaddedVolatileLong:</b> one small object per thread with a {@code volatile long}, allocated in a
+ *         row, like the {@code volatile} flag holder in {@code VolatileExample}, and the padded version.</li>
+ *     <li><b>AtomicLong / PaddedAtomicLong:</b> one per thread, {@code incrementAndGet()}, as in {@code AtomicExample}.</li>
+ * </ul>
+ * <p>
+ * Before the table it prints the layouts the JVM actually chose ({@link ObjectLayout}), since that is what decides whether the
+ * padding works. Throughput is in million increments per second, summed over all threads; the counters are checked against the
+ * number of increments done. On a single core there is no false sharing to see: threads take turns, so every line stays in
+ * the one cache, and the padded layouts only cost memory.
+ * </p>
+ * <p>Usage: {@code java Padding.T0_FalseSharingBenchmark [maxThreads] [millisPerRun]}.</p>
+ */
+public class T0_FalseSharingBenchmark {
+
+    // The shape of VolatileExample's SharedResource, with a long instead of a boolean to count in.
+    static final class VolatileHolder {
+        volatile long value;
+    }
+
+    /**
+     * One thread's counter: {@code increment} is called in the hot loop, {@code get} at the end for the check.
+     */
+    interface Slot {
+        void increment();
+
+        long get();
+    }
+
+    record Layout(String name, IntFunction<Slot[]> factory) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(4, cores);
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 500;
+
+        System.out.println(ObjectLayout.vmSummary());
+        System.out.println(ObjectLayout.describeArray(long[].class));
+        System.out.print(ObjectLayout.describe(VolatileHolder.class, "value"));
+        System.out.print(ObjectLayout.describe(AtomicLong.class, "value"));
+        System.out.print(ObjectLayout.describe(PaddedAtomicLong.class, "value"));
+        System.out.println();
+
+        List<Layout> layouts = List.of(
+                new Layout("long[] packed", threads -> arraySlots(new PaddedLongArray(threads, 1))),
+                new Layout("long[] stride 16", threads -> arraySlots(new PaddedLongArray(threads))),
+                new Layout("volatile holder", threads -> {
+                    Slot[] slots = new Slot[threads];
+                    VolatileHolder[] holders = new VolatileHolder[threads];
+                    for (int i = 0; i < threads; i++) {
+                        holders[i] = new VolatileHolder();      // in a row, so most likely next to each other
+                    }
+                    for (int i = 0; i < threads; i++) {
+                        VolatileHolder holder = holders[i];
+                        slots[i] = new Slot() {
+                            @Override
+                            public void increment() {
+                                holder.value = holder.value + 1;
+                            }
+
+                            @Override
+                            public long get() {
+                                return holder.value;
+                            }
+                        };
+                    }
+                    return slots;
+                }),
+                new Layout("PaddedVolatileLong", threads -> {
+                    Slot[] slots = new Slot[threads];
+                    PaddedVolatileLong[] holders = new PaddedVolatileLong[threads];
+                    for (int i = 0; i < threads; i++) {
+                        holders[i] = new PaddedVolatileLong();
+                    }
+                    for (int i = 0; i < threads; i++) {
+                        PaddedVolatileLong holder = holders[i];
+                        slots[i] = new Slot() {
+                            @Override
+                            public void increment() {
+                                holder.set(holder.get() + 1);
+                            }
+
+                            @Override
+                            public long get() {
+                                return holder.get();
+                            }
+                        };
+                    }
+                    return slots;
+                }),
+                new Layout("AtomicLong", threads -> {
+                    Slot[] slots = new Slot[threads];
+                    AtomicLong[] counters = new AtomicLong[threads];
+                    for (int i = 0; i < threads; i++) {
+                        counters[i] = new AtomicLong();
+                    }
+                    for (int i = 0; i < threads; i++) {
+                        AtomicLong counter = counters[i];
+                        slots[i] = new Slot() {
+                            @Override
+                            public void increment() {
+                                counter.incrementAndGet();
+                            }
+
+                            @Override
+                            public long get() {
+                                return counter.get();
+                            }
+                        };
+                    }
+                    return slots;
+                }),
+                new Layout("PaddedAtomicLong", threads -> {
+                    Slot[] slots = new Slot[threads];
+                    PaddedAtomicLong[] counters = new PaddedAtomicLong[threads];
+                    for (int i = 0; i < threads; i++) {
+                        counters[i] = new PaddedAtomicLong();
+                    }
+                    for (int i = 0; i < threads; i++) {
+                        PaddedAtomicLong counter = counters[i];
+                        slots[i] = new Slot() {
+                            @Override
+                            public void increment() {
+                                counter.incrementAndGet();
+                            }
+
+                            @Override
+                            public long get() {
+                                return counter.get();
+                            }
+                        };
+                    }
+                    return slots;
+                }));
+
+        List<Integer> threadCounts = BenchmarkHarness.threadCounts(maxThreads);
+
+        System.out.println("Cores: " + cores + ", " + millis + " ms per run, throughput in million increments/s");
+        System.out.printf("%-20s", "threads");
+        for (int threads : threadCounts) {
+            System.out.printf("%10d", threads);
+        }
+        System.out.println();
+
+        for (Layout layout : layouts) {
+            run(layout, 1, millis / 4);         // warm up so the JIT has compiled the loop before we measure
+            System.out.printf("%-20s", layout.name());
+            for (int threads : threadCounts) {
+                System.out.printf("%10.1f", run(layout, threads, millis));
+            }
+            System.out.println();
+        }
+    }
+
+    private static Slot[] arraySlots(PaddedLongArray array) {
+        Slot[] slots = new Slot[array.length()];
+        for (int i = 0; i < slots.length; i++) {
+            int index = i;
+            slots[i] = new Slot() {
+                @Override
+                public void increment() {
+                    array.set(index, array.get(index) + 1);
+                }
+
+                @Override
+                public long get() {
+                    return array.get(index);
+                }
+            };
+        }
+        return slots;
+    }
+
+    private static double run(Layout layout, int threads, long millis) throws InterruptedException {
+        Slot[] slots = layout.factory().apply(threads);
+        BenchmarkHarness.Result result = BenchmarkHarness.run(threads, millis, (index, stop) -> {
+            Slot slot = slots[index];
+            long n = 0;
+            while (!stop.stopped()) {
+                for (int j = 0; j < 1000; j++) {        // check the flag once per 1000 increments so reading it doesn't dominate
+                    slot.increment();
+                }
+                n += 1000;
+            }
+            return n;           // a local count, so no shared array is falsely shared during the run
+        });
+
+        long[] ops = result.ops();
+        for (int i = 0; i < threads; i++) {
+            if (slots[i].get() != ops[i]) {
+                throw new IllegalStateException(layout.name() + ": slot " + i + " is " + slots[i].get() + ", expected " + ops[i]);
+            }
+        }
+        return result.throughput();
+    }
+}
@@ -0,0 +1,288 @@
+package ThreadCommunication;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h3><b>Demand Publisher</b></h3>
+ * <p>
+ * {@link Producer} pushes into {@link SharedResource} whether or not anybody is ready, and the only thing a slow {@link Consumer} can
+ * do about it is not take the value, which stops the producer after a single item. With {@link Flow} it is the other way round:
+ * a subscriber says how many items it can take with {@code request(n)}, and the publisher never sends more than that.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Demand:</b> every subscription counts what was requested and not yet delivered. {@code request(Long.MAX_VALUE)} (or
+ *         a total that reaches it) means unbounded. {@code request(0)} or less is answered with {@code onError}, as the
+ *         specification asks.</li>
+ *     <li><b>Bounded prefetch:</b> every subscriber has its own buffer of {@code capacity} items, so items can be produced ahead of
+ *         demand, but only that far. {@code submit} waits with the {@link WaitStrategy} while a buffer is full: the slowest
+ *         subscriber sets the pace, and memory stays bounded.</li>
+ *     <li><b>Fan-out:</b> every subscriber gets every item submitted after it subscribed, through its own buffer, and is called on
+ *         the {@code Executor} by one thread at a time. A subscriber that cancels is removed and no longer holds the producer up.</li>
+ *     <li><b>Batched signals:</b> handing work to another thread is the expensive part. A subscription is given to the executor
+ *         only when its delivery loop isn't running already; while it runs, new items and new demand are picked up by the same
+ *         loop. The loop tells a waiting producer about free space once per {@code batchSize} items, not per item. Subscribers
+ *         should request in batches too: {@code request(capacity)} at the start, then {@code request(capacity / 2)} after every
+ *         {@code capacity / 2} items they have processed, which keeps the buffer busy with one request per half buffer.</li>
+ * </ul>
+ * <p>
+ * Submitting threads are serialized by a lock. {@code close()} completes each subscriber once its buffer is drained;
+ * {@code closeExceptionally} drops what is buffered and signals the error right away. If {@code onNext} throws, the subscription
+ * is cancelled and the exception is passed to {@code onError}. {@code java.util.concurrent.SubmissionPublisher} is the full-featured
+ * version of the same idea.
+ * </p>
+ */
+public class DemandPublisher<T> implements Flow.Publisher<T>, AutoCloseable {
+    private static final int PAD = 16;
+    private static final int TAIL = PAD;            // next slot the producer writes
+    private static final int HEAD = 2 * PAD;        // next slot the subscriber reads
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Executor executor;
+    private final int capacity;
+    private final int batchSize;
+    private final WaitStrategy waitStrategy;
+    private final CopyOnWriteArrayList<BufferedSubscription<T>> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object submitLock = new Object();
+    private volatile boolean closed;
+    private volatile Throwable closedException;
+
+    public DemandPublisher(Executor executor, int capacity, int batchSize) {
+        this(executor, capacity, batchSize, WaitStrategy.blocking());
+    }
+
+    /**
+     * @param capacity  buffer size per subscriber, a power of two
+     * @param batchSize how many items a subscriber's delivery loop passes on before it tells the producer about the free space
+     */
+    public DemandPublisher(Executor executor, int capacity, int batchSize, WaitStrategy waitStrategy) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        if (batchSize < 1 || batchSize > capacity) {
+            throw new IllegalArgumentException("batchSize must be between 1 and " + capacity + ": " + batchSize);
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        BufferedSubscription<T> subscription = new BufferedSubscription<>(this, subscriber);
+        subscriptions.add(subscription);
+        if (closed) {       // close() may have looked at the list before the add
+            subscription.complete(closedException);
+        }
+        subscription.signal();
+    }
+
+    /**
+     * Passes {@code item} to every current subscriber, waiting while any of their buffers is full.
+     *
+     * @throws IllegalStateException if the publisher is closed
+     */
+    public void submit(T item) throws InterruptedException {
+        Objects.requireNonNull(item);
+        synchronized (submitLock) {
+            if (closed) {
+                throw new IllegalStateException("closed");
+            }
+            for (BufferedSubscription<T> subscription : subscriptions) {
+                subscription.put(item);
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Completes every subscriber after the items already submitted. Further {@code submit}s fail.
+     */
+    @Override
+    public void close() {
+        closeWith(null);
+    }
+
+    /**
+     * Signals {@code error} to every subscriber without delivering what is still buffered.
+     */
+    public void closeExceptionally(Throwable error) {
+        closeWith(Objects.requireNonNull(error));
+    }
+
+    private void closeWith(Throwable error) {
+        synchronized (submitLock) {         // not in the middle of a submit
+            if (closed) {
+                return;
+            }
+            closedException = error;
+            closed = true;
+        }
+        for (BufferedSubscription<T> subscription : subscriptions) {
+            subscription.complete(error);
+            subscription.signal();
+        }
+    }
+
+    /**
+     * One subscriber's buffer, demand and delivery loop. The loop runs on the executor; {@code wip} counts the signals it still has
+     * to look at, so only the signal that finds it at 0 starts a new one.
+     */
+    private static final class BufferedSubscription<T> implements Flow.Subscription, Runnable {
+        private final DemandPublisher<T> publisher;
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Object[] buffer;
+        private final int mask;
+        private final long[] cursors = new long[3 * PAD];
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private long producerLimit;             // the producer may write below this without reading HEAD
+        private boolean subscribed;             // onSubscribe was called; delivery loop only
+        private boolean terminated;             // onComplete or onError was called; delivery loop only
+        private volatile boolean cancelled;
+        private volatile boolean completing;
+        private volatile Throwable error;       // closeExceptionally, a bad request(n) or a throwing onNext
+
+        BufferedSubscription(DemandPublisher<T> publisher, Flow.Subscriber<? super T> subscriber) {
+            this.publisher = publisher;
+            this.subscriber = subscriber;
+            this.buffer = new Object[publisher.capacity];
+            this.mask = publisher.capacity - 1;
+            this.producerLimit = publisher.capacity;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("request must be positive: " + n);
+                signal();
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;      // overflow means unbounded
+            } while (current != Long.MAX_VALUE && !requested.compareAndSet(current, next));
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            signal();
+            publisher.waitStrategy.signalAll();         // a producer waiting for this buffer goes on
+        }
+
+        /**
+         * Producer side, under the submit lock.
+         */
+        void put(T item) throws InterruptedException {
+            long tail = (long) LONGS.getOpaque(cursors, TAIL);
+            if (tail >= producerLimit) {
+                for (int round = 0; ; round++) {
+                    producerLimit = (long) LONGS.getAcquire(cursors, HEAD) + buffer.length;
+                    if (tail < producerLimit || cancelled) {
+                        break;
+                    }
+                    publisher.waitStrategy.idle(round);
+                }
+                if (cancelled) {
+                    return;
+                }
+            }
+            buffer[(int) tail & mask] = item;
+            LONGS.setRelease(cursors, TAIL, tail + 1);
+            signal();
+        }
+
+        void complete(Throwable cause) {
+            if (cause != null) {
+                error = cause;
+            }
+            completing = true;
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                publisher.executor.execute(this);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            int missed = 1;
+            do {
+                if (!terminated) {
+                    if (!subscribed) {
+                        subscribed = true;
+                        try {
+                            subscriber.onSubscribe(this);
+                        } catch (Throwable e) {
+                            error = e;
+                        }
+                    }
+                    long head = (long) LONGS.getOpaque(cursors, HEAD);
+                    long demand = requested.get();
+                    long delivered = 0;
+                    while (delivered != demand && !cancelled && error == null) {
+                        if (head == (long) LONGS.getAcquire(cursors, TAIL)) {
+                            break;
+                        }
+                        int slot = (int) head & mask;
+                        T item = (T) buffer[slot];
+                        buffer[slot] = null;
+                        head++;
+                        delivered++;
+                        try {
+                            subscriber.onNext(item);
+                        } catch (Throwable e) {
+                            error = e;
+                        }
+                        if (delivered % publisher.batchSize == 0) {
+                            LONGS.setRelease(cursors, HEAD, head);
+                            publisher.waitStrategy.signalAll();
+                        }
+                    }
+                    if (delivered % publisher.batchSize != 0) {
+                        LONGS.setRelease(cursors, HEAD, head);
+                        publisher.waitStrategy.signalAll();
+                    }
+                    if (delivered != 0 && demand != Long.MAX_VALUE) {
+                        requested.addAndGet(-delivered);
+                    }
+                    if (cancelled) {
+                        terminate();
+                    } else if (error != null) {
+                        terminate();
+                        subscriber.onError(error);
+                    } else if (completing && head == (long) LONGS.getAcquire(cursors, TAIL)) {
+                        terminate();
+                        subscriber.onComplete();
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void terminate() {
+            terminated = true;
+            cancelled = true;       // a producer in put() stops waiting for this buffer
+            publisher.subscriptions.remove(this);
+            publisher.waitStrategy.signalAll();
+        }
+    }
+}
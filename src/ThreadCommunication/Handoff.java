@@ -0,0 +1,10 @@
+package ThreadCommunication;
+
+/**
+ * One producer hands {@code int}s to one consumer. {@link Producer} and {@link Consumer} work with any implementation.
+ */
+interface Handoff {
+    void produce(int value) throws InterruptedException;
+
+    int consume() throws InterruptedException;
+}
@@ -0,0 +1,265 @@
+package ThreadCommunication;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h3><b>Int Channel</b></h3>
+ * <p>
+ * A bounded queue of {@code int}s, for the job {@link Producer} and {@link Consumer} do. Replacing {@link SharedResource} with an
+ * {@code ArrayBlockingQueue<Integer>} gives it more than one slot, but every value outside {@code -128..127} becomes an
+ * {@code Integer} object: 16 bytes per item that the garbage collector has to clean up. At millions of items per second that is
+ * tens of megabytes per second of garbage for moving plain numbers.
+ * </p>
+ * <p>
+ * This channel keeps the values in an {@code int[]} used as a circular buffer, with the same lock and two conditions as
+ * {@code ArrayBlockingQueue}, so it allocates nothing after construction. The array methods move a whole batch with one lock
+ * acquisition and one {@code System.arraycopy} (two where the batch wraps around), which is where most of the speed comes from.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>{@code offer(value)} / {@code offer(src, off, len)}:</b> never wait; return whether, or how many, values were added.</li>
+ *     <li><b>{@code put(value)} / {@code put(src, off, len)}:</b> wait for space until everything is added.</li>
+ *     <li><b>{@code offer(value, timeout, unit)}:</b> waits for space at most {@code timeout}.</li>
+ *     <li><b>{@code drainTo(dst)}:</b> never waits; moves as many values as there are (up to {@code dst.length}).</li>
+ *     <li><b>{@code take()} / {@code take(dst, off, len)}:</b> wait until there is at least one value, then take one or as many as
+ *         there are; {@code take(dst, off, len, timeout, unit)} returns 0 if none came in time.</li>
+ * </ul>
+ * <p>{@link LongChannel} and {@link DoubleChannel} are the same for {@code long} and {@code double}.</p>
+ */
+public class IntChannel {
+    private final int[] items;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;           // next to take
+    private int count;
+
+    public IntChannel(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.items = new int[capacity];
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(int value) {
+        lock.lock();
+        try {
+            if (count == items.length) {
+                return false;
+            }
+            insert(value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(int value, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insert(value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(int value) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                notFull.await();
+            }
+            insert(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds as many of {@code src[off .. off + len)} as fit right now and returns how many.
+     */
+    public int offer(int[] src, int off, int len) {
+        checkRange(src.length, off, len);
+        lock.lock();
+        try {
+            return insert(src, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds all of {@code src[off .. off + len)}, waiting for space as often as needed. Other producers' values may end up in between
+     * if the batch doesn't fit at once.
+     */
+    public void put(int[] src, int off, int len) throws InterruptedException {
+        checkRange(src.length, off, len);
+        lock.lockInterruptibly();
+        try {
+            while (len > 0) {
+                while (count == items.length) {
+                    notFull.await();
+                }
+                int added = insert(src, off, len);
+                off += added;
+                len -= added;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            int value = items[head];
+            head = head + 1 == items.length ? 0 : head + 1;
+            count--;
+            signalAfterTake();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the values there are right now, up to {@code dst.length}, into {@code dst} and returns how many.
+     */
+    public int drainTo(int[] dst) {
+        return drainTo(dst, 0, dst.length);
+    }
+
+    public int drainTo(int[] dst, int off, int len) {
+        checkRange(dst.length, off, len);
+        lock.lock();
+        try {
+            return remove(dst, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there is at least one value, then moves up to {@code len} into {@code dst} and returns how many.
+     */
+    public int take(int[] dst, int off, int len) throws InterruptedException {
+        checkRange(dst.length, off, len);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return remove(dst, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Like {@code take(dst, off, len)}, but returns 0 if no value came within {@code timeout}.
+     */
+    public int take(int[] dst, int off, int len, long timeout, TimeUnit unit) throws InterruptedException {
+        checkRange(dst.length, off, len);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return remove(dst, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void insert(int value) {
+        int tail = head + count;
+        items[tail >= items.length ? tail - items.length : tail] = value;
+        count++;
+        signalAfterPut();
+    }
+
+    private int insert(int[] src, int off, int len) {
+        int n = Math.min(len, items.length - count);
+        if (n == 0) {
+            return 0;
+        }
+        int tail = head + count;
+        if (tail >= items.length) {
+            tail -= items.length;
+        }
+        int first = Math.min(n, items.length - tail);      // up to the end of the array, the rest wraps around to the start
+        System.arraycopy(src, off, items, tail, first);
+        System.arraycopy(src, off + first, items, 0, n - first);
+        count += n;
+        signalAfterPut();
+        return n;
+    }
+
+    private int remove(int[] dst, int off, int len) {
+        int n = Math.min(len, count);
+        if (n == 0) {
+            return 0;
+        }
+        int first = Math.min(n, items.length - head);
+        System.arraycopy(items, head, dst, off, first);
+        System.arraycopy(items, 0, dst, off + first, n - first);
+        head += n;
+        if (head >= items.length) {
+            head -= items.length;
+        }
+        count -= n;
+        signalAfterTake();
+        return n;
+    }
+
+    // One signal per change, passed on by whoever wakes up while there is still something left for the next waiter.
+    private void signalAfterPut() {
+        notEmpty.signal();
+        if (count < items.length) {
+            notFull.signal();
+        }
+    }
+
+    private void signalAfterTake() {
+        notFull.signal();
+        if (count > 0) {
+            notEmpty.signal();
+        }
+    }
+
+    private static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException("range [" + off + ", " + off + " + " + len + ") out of bounds for length " + length);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package ThreadCommunication;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h3><b>Long Channel</b></h3>
+ * <p>
+ * {@link IntChannel} for {@code long} values: a bounded queue backed by a {@code long[]}, so nothing is boxed into {@code Long}.
+ * The methods and their waiting behaviour are the same.
+ * </p>
+ */
+public class LongChannel {
+    private final long[] items;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;           // next to take
+    private int count;
+
+    public LongChannel(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.items = new long[capacity];
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(long value) {
+        lock.lock();
+        try {
+            if (count == items.length) {
+                return false;
+            }
+            insert(value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(long value, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            insert(value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(long value) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == items.length) {
+                notFull.await();
+            }
+            insert(value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds as many of {@code src[off .. off + len)} as fit right now and returns how many.
+     */
+    public int offer(long[] src, int off, int len) {
+        checkRange(src.length, off, len);
+        lock.lock();
+        try {
+            return insert(src, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds all of {@code src[off .. off + len)}, waiting for space as often as needed. Other producers' values may end up in between
+     * if the batch doesn't fit at once.
+     */
+    public void put(long[] src, int off, int len) throws InterruptedException {
+        checkRange(src.length, off, len);
+        lock.lockInterruptibly();
+        try {
+            while (len > 0) {
+                while (count == items.length) {
+                    notFull.await();
+                }
+                int added = insert(src, off, len);
+                off += added;
+                len -= added;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            long value = items[head];
+            head = head + 1 == items.length ? 0 : head + 1;
+            count--;
+            signalAfterTake();
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the values there are right now, up to {@code dst.length}, into {@code dst} and returns how many.
+     */
+    public int drainTo(long[] dst) {
+        return drainTo(dst, 0, dst.length);
+    }
+
+    public int drainTo(long[] dst, int off, int len) {
+        checkRange(dst.length, off, len);
+        lock.lock();
+        try {
+            return remove(dst, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until there is at least one value, then moves up to {@code len} into {@code dst} and returns how many.
+     */
+    public int take(long[] dst, int off, int len) throws InterruptedException {
+        checkRange(dst.length, off, len);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return remove(dst, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Like {@code take(dst, off, len)}, but returns 0 if no value came within {@code timeout}.
+     */
+    public int take(long[] dst, int off, int len, long timeout, TimeUnit unit) throws InterruptedException {
+        checkRange(dst.length, off, len);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return remove(dst, off, len);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void insert(long value) {
+        int tail = head + count;
+        items[tail >= items.length ? tail - items.length : tail] = value;
+        count++;
+        signalAfterPut();
+    }
+
+    private int insert(long[] src, int off, int len) {
+        int n = Math.min(len, items.length - count);
+        if (n == 0) {
+            return 0;
+        }
+        int tail = head + count;
+        if (tail >= items.length) {
+            tail -= items.length;
+        }
+        int first = Math.min(n, items.length - tail);      // up to the end of the array, the rest wraps around to the start
+        System.arraycopy(src, off, items, tail, first);
+        System.arraycopy(src, off + first, items, 0, n - first);
+        count += n;
+        signalAfterPut();
+        return n;
+    }
+
+    private int remove(long[] dst, int off, int len) {
+        int n = Math.min(len, count);
+        if (n == 0) {
+            return 0;
+        }
+        int first = Math.min(n, items.length - head);
+        System.arraycopy(items, head, dst, off, first);
+        System.arraycopy(items, 0, dst, off + first, n - first);
+        head += n;
+        if (head >= items.length) {
+            head -= items.length;
+        }
+        count -= n;
+        signalAfterTake();
+        return n;
+    }
+
+    // One signal per change, passed on by whoever wakes up while there is still something left for the next waiter.
+    private void signalAfterPut() {
+        notEmpty.signal();
+        if (count < items.length) {
+            notFull.signal();
+        }
+    }
+
+    private void signalAfterTake() {
+        notFull.signal();
+        if (count > 0) {
+            notEmpty.signal();
+        }
+    }
+
+    private static void checkRange(int length, int off, int len) {
+        if (off < 0 || len < 0 || off > length - len) {
+            throw new IndexOutOfBoundsException("range [" + off + ", " + off + " + " + len + ") out of bounds for length " + length);
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package ThreadCommunication;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * <h3><b>Mapped Queue (persistent, shared between processes)</b></h3>
+ * <p>
+ * {@link SharedResource} and the other queues in this package live on the heap of one JVM: what was produced but not consumed is gone
+ * when the JVM stops, and another process can't see any of it. This queue lives in memory-mapped files. Records are written
+ * straight into the page cache, where they survive a crash of the JVM (not of the machine), and every process that maps the same
+ * files sees them, so producers and consumers may be in different JVMs on the same host.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Segments:</b> the queue is a sequence of files of {@code segmentSize} bytes, named after their index. A record never
+ *         crosses a segment end; one that doesn't fit leaves a padding marker and goes to the start of the next segment. Record
+ *         positions are global: {@code segment * segmentSize + offset}.</li>
+ *     <li><b>Records:</b> an 8-byte header, then the payload, rounded up to 8 bytes. The header is 0 until the record is committed,
+ *         then {@code length + 1}. The payload is written before the header (with release semantics), so a consumer that sees the
+ *         header sees the payload.</li>
+ *     <li><b>Appending:</b> the next free position lives in a mapped {@code queue.meta} file, and producers claim space with a CAS on
+ *         it. That works across processes because they all map the same page. {@code claim(length)} returns where to write in
+ *         {@code buffer()}, the producer puts its fields there directly, and {@code commit()} publishes the record: no copy, no
+ *         allocation.</li>
+ *     <li><b>Consuming:</b> every consumer has a name and its own read position in a mapped {@code <name>.offset} file, so after a
+ *         restart it continues where it stopped. A record counts as consumed when the consumer asks for the next one (at least once).
+ *         Consumers don't take records away from each other: each of them reads every record.</li>
+ *     <li><b>Reclaiming:</b> when a consumer moves on to a new segment, segments that every consumer has passed are deleted.
+ *         Before deleting anything, {@code reclaim} raises a "first live segment" watermark in {@code queue.meta}. Consumers only
+ *         open segments that exist. One that finds its segment missing below the watermark (a new consumer can lose that race
+ *         against {@code reclaim}) moves on to the watermark. A missing segment at or above it hasn't been created yet by the
+ *         producer that claimed space in it, so the consumer waits for it like for any record not committed yet.</li>
+ *     <li><b>Byte order:</b> headers, positions and the {@code getLong}/{@code putLong} of the buffers are all little-endian.</li>
+ * </ul>
+ * <p>
+ * {@link Appender} and {@link Tailer} are used by one thread each. A producer that dies between {@code claim} and {@code commit}
+ * leaves a record that is never committed, and consumers stop there. Mapping a new segment is a system call, paid once per segment;
+ * the appender maps the next one when the current one is half full, so the append that crosses the boundary doesn't pay it.
+ * </p>
+ */
+public class MappedQueue {
+    static final int HEADER = 8;
+    private static final int PADDING = -1;
+    private static final int META_SIZE = 64;
+    private static final int WRITE_POSITION = 0;        // in queue.meta
+    private static final int SEGMENT_SIZE = 8;          // in queue.meta, to refuse reopening with another size
+    private static final int FIRST_LIVE_SEGMENT = 16;   // in queue.meta: segments below it are reclaimed or about to be
+    private static final String SEGMENT_SUFFIX = ".q";
+    private static final String OFFSET_SUFFIX = ".offset";
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);    // same order as the buffers,
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);      // so the files are alike on every host
+
+    private final Path directory;
+    private final int segmentSize;
+    private final MappedByteBuffer meta;
+
+    public MappedQueue(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 2 * HEADER || segmentSize % 8 != 0) {
+            throw new IllegalArgumentException("segmentSize must be a multiple of 8 and at least " + 2 * HEADER + ": " + segmentSize);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.meta = map(directory.resolve("queue.meta"), META_SIZE);
+        int existing = (int) INT.compareAndExchange(meta, SEGMENT_SIZE, 0, segmentSize);
+        if (existing != 0 && existing != segmentSize) {
+            throw new IllegalStateException(directory + " was created with segmentSize " + existing + ", not " + segmentSize);
+        }
+    }
+
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * The largest payload a record can have.
+     */
+    public int maxLength() {
+        return segmentSize - HEADER;
+    }
+
+    /**
+     * Position after the last claimed record.
+     */
+    public long writePosition() {
+        return (long) LONG.getVolatile(meta, WRITE_POSITION);
+    }
+
+    public Appender appender() {
+        return new Appender();
+    }
+
+    /**
+     * The consumer called {@code name}, at its saved position. A new consumer starts at the oldest segment still on disk, or at the
+     * write position if there is none.
+     * Only one {@code Tailer} per name may be in use at a time.
+     */
+    public Tailer tailer(String name) throws IOException {
+        if (!name.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("consumer names are letters, digits, '_' and '-': " + name);
+        }
+        Path file = directory.resolve(name + OFFSET_SUFFIX);
+        boolean created = !Files.exists(file);
+        MappedByteBuffer offset = map(file, Long.BYTES);
+        if (created) {
+            List<Long> segments = segments();
+            LONG.setRelease(offset, 0, segments.isEmpty() ? writePosition() : segments.get(0) * segmentSize);
+        }
+        return new Tailer(offset);
+    }
+
+    /**
+     * Deletes the segments that every consumer has read completely. Returns how many were deleted.
+     */
+    public synchronized int reclaim() throws IOException {
+        long slowest = Long.MAX_VALUE;
+        boolean anyConsumer = false;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(OFFSET_SUFFIX)) {
+                    slowest = Math.min(slowest, (long) LONG.getVolatile(map(file, Long.BYTES), 0));
+                    anyConsumer = true;
+                }
+            }
+        }
+        if (!anyConsumer) {
+            return 0;       // nobody has read anything yet, keep it all for the first consumer
+        }
+        long firstLive = slowest / segmentSize;
+        long published;
+        do {
+            published = (long) LONG.getVolatile(meta, FIRST_LIVE_SEGMENT);
+        } while (published < firstLive && !LONG.compareAndSet(meta, FIRST_LIVE_SEGMENT, published, firstLive));
+        int deleted = 0;
+        for (long segment : segments()) {
+            if (segment < firstLive && Files.deleteIfExists(segmentPath(segment))) {
+                deleted++;      // processes that still have it mapped keep their mapping
+            }
+        }
+        return deleted;
+    }
+
+    private MappedByteBuffer segment(long index) {
+        try {
+            return map(segmentPath(index), segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The segment if its file exists, or {@code null}. Unlike {@code segment}, never creates one: a reclaimed segment would come
+     * back filled with zeros, and a consumer would wait there forever.
+     */
+    private MappedByteBuffer existingSegment(long index) throws IOException {
+        try {
+            return map(segmentPath(index), segmentSize, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> indexes.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        return map(file, size, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static MappedByteBuffer map(Path file, int size, StandardOpenOption... options) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);      // grows the file with zeros; the mapping outlives the channel
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    private static int stride(int length) {
+        return (HEADER + length + 7) & ~7;
+    }
+
+    /**
+     * Writes records; one per producing thread.
+     */
+    public final class Appender {
+        private long currentIndex = -1;
+        private MappedByteBuffer current;
+        private long nextIndex = -1;
+        private MappedByteBuffer next;
+        private int claimedOffset = -1;
+        private int claimedLength;
+        private long claimedPosition;
+
+        private Appender() {
+        }
+
+        /**
+         * Reserves room for a payload of {@code length} bytes and returns the offset in {@code buffer()} to write it at.
+         * Nothing is visible to consumers until {@code commit()}.
+         */
+        public int claim(int length) {
+            if (length < 0 || length > maxLength()) {
+                throw new IllegalArgumentException("length must be between 0 and " + maxLength() + ": " + length);
+            }
+            if (claimedOffset >= 0) {
+                throw new IllegalStateException("the previous claim wasn't committed");
+            }
+            int size = stride(length);
+            long position;
+            long start;
+            do {
+                position = (long) LONG.getVolatile(meta, WRITE_POSITION);
+                long segmentEnd = (position / segmentSize + 1) * segmentSize;
+                start = position + size > segmentEnd ? segmentEnd : position;
+            } while (!LONG.compareAndSet(meta, WRITE_POSITION, position, start + size));
+            if (start != position) {
+                INT.setRelease(select(position / segmentSize), (int) (position % segmentSize), PADDING);     // consumers skip to the next segment
+            }
+            select(start / segmentSize);
+            claimedPosition = start;
+            claimedOffset = (int) (start % segmentSize);
+            claimedLength = length;
+            if (claimedOffset > segmentSize / 2 && nextIndex != currentIndex + 1) {
+                nextIndex = currentIndex + 1;
+                next = segment(nextIndex);      // map it now, not on the append that needs it
+            }
+            return claimedOffset + HEADER;
+        }
+
+        /**
+         * The segment of the last claim.
+         */
+        public ByteBuffer buffer() {
+            return current;
+        }
+
+        /**
+         * The position of the last claimed record, as reported by {@link Tailer#position()}.
+         */
+        public long position() {
+            return claimedPosition;
+        }
+
+        public void commit() {
+            if (claimedOffset < 0) {
+                throw new IllegalStateException("nothing claimed");
+            }
+            INT.setRelease(current, claimedOffset, claimedLength + 1);
+            claimedOffset = -1;
+        }
+
+        /**
+         * Copies {@code src[off .. off + len)} into a new record and returns its position.
+         */
+        public long append(byte[] src, int off, int len) {
+            int offset = claim(len);
+            current.put(offset, src, off, len);
+            commit();
+            return claimedPosition;
+        }
+
+        public long appendLong(long value) {
+            int offset = claim(Long.BYTES);
+            current.putLong(offset, value);
+            commit();
+            return claimedPosition;
+        }
+
+        private MappedByteBuffer select(long index) {
+            if (index != currentIndex) {
+                if (index == nextIndex) {
+                    current = next;
+                } else {
+                    current = segment(index);
+                }
+                currentIndex = index;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Reads records for one named consumer; one per consuming thread.
+     */
+    public final class Tailer {
+        private final MappedByteBuffer savedPosition;
+        private long position;
+        private long currentIndex = -1;
+        private MappedByteBuffer current;
+        private int recordOffset;
+        private long recordPosition = -1;
+
+        private Tailer(MappedByteBuffer savedPosition) {
+            this.savedPosition = savedPosition;
+            this.position = (long) LONG.getVolatile(savedPosition, 0);
+        }
+
+        /**
+         * Moves to the next committed record and returns its payload length, or -1 if there is none yet. Marks the record returned
+         * by the previous call as consumed. The payload is at {@code offset()} in {@code buffer()}.
+         */
+        public int next() throws IOException {
+            LONG.setRelease(savedPosition, 0, position);
+            while (true) {
+                long index = position / segmentSize;
+                if (index != currentIndex) {
+                    if (currentIndex >= 0) {
+                        reclaim();
+                    }
+                    MappedByteBuffer segment = existingSegment(index);
+                    if (segment == null) {
+                        long firstLive = (long) LONG.getVolatile(meta, FIRST_LIVE_SEGMENT);
+                        if (index >= firstLive) {
+                            return -1;      // not created yet by the appender that claimed it
+                        }
+                        position = firstLive * segmentSize;     // reclaimed before we got to it
+                        LONG.setRelease(savedPosition, 0, position);
+                        continue;
+                    }
+                    current = segment;
+                    currentIndex = index;
+                }
+                int offset = (int) (position % segmentSize);
+                int header = (int) INT.getAcquire(current, offset);
+                if (header == 0) {
+                    return -1;
+                }
+                if (header == PADDING) {
+                    position = (index + 1) * segmentSize;
+                    LONG.setRelease(savedPosition, 0, position);
+                    continue;
+                }
+                int length = header - 1;
+                recordPosition = position;
+                recordOffset = offset + HEADER;
+                position += stride(length);
+                return length;
+            }
+        }
+
+        public ByteBuffer buffer() {
+            return current;
+        }
+
+        public int offset() {
+            return recordOffset;
+        }
+
+        /**
+         * Position of the record returned by the last {@code next()}.
+         */
+        public long position() {
+            return recordPosition;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ThreadCommunication;
+
+/**
+ * The producer for a {@link DemandPublisher}: submits the same 10 items, then closes the publisher.
+ */
+class PublishingProducer implements Runnable {
+    private final DemandPublisher<Integer> publisher;
+
+    PublishingProducer(DemandPublisher<Integer> publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (int i = 0; i < 10; i++) {
+                System.out.println("Produced: " + i);
+                publisher.submit(i);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            publisher.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ThreadCommunication;
+
+import java.util.concurrent.Flow;
+
+/**
+ * A subscriber that asks for {@code batch} items at a time, and for the next batch once it has processed half of it.
+ */
+class RequestingConsumer implements Flow.Subscriber<Integer> {
+    private final int batch;
+    private final Runnable onDone;
+    private Flow.Subscription subscription;
+    private int sinceRequest;
+
+    RequestingConsumer(int batch, Runnable onDone) {
+        this.batch = batch;
+        this.onDone = onDone;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(batch);
+    }
+
+    @Override
+    public void onNext(Integer item) {
+        System.out.println("Consumed: " + item);
+        if (++sinceRequest == Math.max(1, batch / 2)) {
+            sinceRequest = 0;
+            subscription.request(Math.max(1, batch / 2));
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        throwable.printStackTrace();
+        onDone.run();
+    }
+
+    @Override
+    public void onComplete() {
+        onDone.run();
+    }
+}
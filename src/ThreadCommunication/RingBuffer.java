@@ -0,0 +1,278 @@
+package ThreadCommunication;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <h3><b>Ring Buffer</b></h3>
+ * <p>
+ * {@link SharedResource} hands over one {@code int} at a time through a single slot: the producer waits until the consumer has taken
+ * the value, the consumer waits until the producer has put the next one, and every item costs a {@code notify()} plus a wake-up on
+ * each side. This buffer has {@code capacity} slots instead of one, so both sides only wait when it is really full or empty, and
+ * waiting is spinning on a {@code volatile} read instead of parking the thread.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>Preallocated entries:</b> the slots are created once by a factory and reused. A producer fills the entry of the slot it
+ *         claimed and a consumer reads it, so passing an item allocates nothing.</li>
+ *     <li><b>Sequences:</b> items are numbered 0, 1, 2 ... and item {@code s} lives in slot {@code s & (capacity - 1)}, which is why
+ *         the capacity is a power of two. Every slot also has its own sequence number telling who may use it next: {@code s} means
+ *         "free for producer {@code s}", {@code s + 1} "published, for consumer {@code s}", and once consumed it becomes
+ *         {@code s + capacity}, free for the producer one lap later. So producers never read the consumers' cursor and vice versa.
+ *         With a single slot "published" and "free one lap later" would be the same number, so the capacity is at least 2.</li>
+ *     <li><b>Claim strategies:</b> with {@link ClaimStrategy#MULTI} producers (or consumers) claim sequences with a CAS on their shared
+ *         cursor. With {@link ClaimStrategy#SINGLE} only one thread uses that side and the cursor is a plain write.</li>
+ *     <li><b>Batches:</b> {@code next(n)} claims {@code n} slots with one CAS and {@code publish(first, n)} publishes them;
+ *         {@code poll}/{@code take} claim every published item up to a maximum with one CAS and pass them to a handler.</li>
+ *     <li><b>Padding:</b> the producer and the consumer cursor are written by different threads all the time. They live in one
+ *         {@code long[]}, {@value #PAD} longs apart, so they never share a cache line.</li>
+ * </ul>
+ * <p>
+ * Claimed sequences must be published (producers) or released (consumers), or the buffer stops one lap later. A full or empty buffer
+ * is waited for with a {@link WaitStrategy}: spin, yield, then park up to 50 us, unless another one is given.
+ * </p>
+ */
+public class RingBuffer<E> {
+    private static final int PAD = 16;
+    private static final int TAIL = PAD;            // next sequence for producers
+    private static final int HEAD = 2 * PAD;        // next sequence for consumers
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Object[] entries;
+    private final long[] sequences;
+    private final long[] cursors = new long[3 * PAD];
+    private final int mask;
+    private final boolean multiProducer;
+    private final boolean multiConsumer;
+    private final WaitStrategy waitStrategy;
+
+    public enum ClaimStrategy {
+        /** Only one thread uses this side of the buffer. */
+        SINGLE,
+        /** Any number of threads use this side of the buffer. */
+        MULTI
+    }
+
+    /**
+     * Called for each item of a batch; the entry must not be used after the call returns.
+     */
+    @FunctionalInterface
+    public interface Handler<E> {
+        void onEvent(E entry, long sequence, boolean endOfBatch);
+    }
+
+    public RingBuffer(int capacity, Supplier<E> factory, ClaimStrategy producers, ClaimStrategy consumers) {
+        this(capacity, factory, producers, consumers, WaitStrategy.backoff(100, 100, TimeUnit.MICROSECONDS.toNanos(50)));
+    }
+
+    public RingBuffer(int capacity, Supplier<E> factory, ClaimStrategy producers, ClaimStrategy consumers, WaitStrategy waitStrategy) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two, at least 2: " + capacity);
+        }
+        this.entries = new Object[capacity];
+        this.sequences = new long[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = factory.get();
+            sequences[i] = i;
+        }
+        this.mask = capacity - 1;
+        this.multiProducer = producers == ClaimStrategy.MULTI;
+        this.multiConsumer = consumers == ClaimStrategy.MULTI;
+        this.waitStrategy = waitStrategy;
+        VarHandle.releaseFence();       // publish the initial sequences
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Items claimed by producers but not yet claimed by consumers, a moment ago.
+     */
+    public int size() {
+        long head = (long) LONGS.getVolatile(cursors, HEAD);
+        long tail = (long) LONGS.getVolatile(cursors, TAIL);
+        return (int) Math.max(0, Math.min(tail - head, capacity()));
+    }
+
+    /**
+     * The entry of a claimed sequence.
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    /**
+     * Claims {@code n} consecutive slots and returns the first sequence, or -1 if there aren't {@code n} free slots.
+     */
+    public long tryNext(int n) {
+        checkBatch(n);
+        while (true) {
+            long tail = (long) LONGS.getVolatile(cursors, TAIL);
+            int k = 0;
+            for (; k < n; k++) {
+                long sequence = tail + k;
+                long difference = (long) LONGS.getAcquire(sequences, (int) sequence & mask) - sequence;
+                if (difference < 0) {
+                    return -1;      // the consumer of the previous lap isn't done with it: full
+                }
+                if (difference > 0) {
+                    break;          // another producer claimed it already, our tail is stale
+                }
+            }
+            if (k < n) {
+                continue;
+            }
+            if (!multiProducer) {
+                LONGS.setRelease(cursors, TAIL, tail + n);
+                return tail;
+            }
+            if (LONGS.compareAndSet(cursors, TAIL, tail, tail + n)) {
+                return tail;
+            }
+        }
+    }
+
+    public long next() throws InterruptedException {
+        return next(1);
+    }
+
+    /**
+     * Claims {@code n} consecutive slots, waiting for them to become free, and returns the first sequence.
+     */
+    public long next(int n) throws InterruptedException {
+        for (int round = 0; ; round++) {
+            long sequence = tryNext(n);
+            if (sequence >= 0) {
+                return sequence;
+            }
+            waitStrategy.idle(round);
+        }
+    }
+
+    public void publish(long sequence) {
+        LONGS.setRelease(sequences, (int) sequence & mask, sequence + 1);
+        waitStrategy.signalAll();
+    }
+
+    /**
+     * Publishes {@code n} sequences claimed together by {@code next(n)}.
+     */
+    public void publish(long first, int n) {
+        for (long sequence = first; sequence < first + n; sequence++) {
+            LONGS.setRelease(sequences, (int) sequence & mask, sequence + 1);
+        }
+        waitStrategy.signalAll();
+    }
+
+    /**
+     * Claims the oldest published item and returns its sequence, or -1 if there is none. {@code release} it after reading.
+     */
+    public long tryAcquire() {
+        while (true) {
+            long head = (long) LONGS.getVolatile(cursors, HEAD);
+            int count = readable(head, 1);
+            if (count == 0) {
+                return -1;
+            }
+            if (count > 0 && claim(head, count)) {
+                return head;
+            }
+        }
+    }
+
+    /**
+     * Claims the oldest published item, waiting for one, and returns its sequence. {@code release} it after reading.
+     */
+    public long acquire() throws InterruptedException {
+        for (int round = 0; ; round++) {
+            long sequence = tryAcquire();
+            if (sequence >= 0) {
+                return sequence;
+            }
+            waitStrategy.idle(round);
+        }
+    }
+
+    /**
+     * Gives the slot of an acquired sequence back to the producers.
+     */
+    public void release(long sequence) {
+        LONGS.setRelease(sequences, (int) sequence & mask, sequence + capacity());
+        waitStrategy.signalAll();
+    }
+
+    /**
+     * Passes up to {@code max} published items to {@code handler} and returns how many; 0 without waiting if there are none.
+     * If the handler throws, the rest of the batch is released unread.
+     */
+    public int poll(Handler<? super E> handler, int max) {
+        checkBatch(max);
+        long head;
+        int count;
+        do {
+            head = (long) LONGS.getVolatile(cursors, HEAD);
+            count = readable(head, max);
+            if (count == 0) {
+                return 0;
+            }
+        } while (count < 0 || !claim(head, count));
+        long sequence = head;
+        try {
+            for (; sequence < head + count; sequence++) {
+                handler.onEvent(get(sequence), sequence, sequence == head + count - 1);
+                LONGS.setRelease(sequences, (int) sequence & mask, sequence + capacity());
+            }
+        } finally {
+            for (; sequence < head + count; sequence++) {
+                LONGS.setRelease(sequences, (int) sequence & mask, sequence + capacity());
+            }
+            waitStrategy.signalAll();
+        }
+        return count;
+    }
+
+    /**
+     * Like {@code poll}, but waits until there is at least one item.
+     */
+    public int take(Handler<? super E> handler, int max) throws InterruptedException {
+        for (int round = 0; ; round++) {
+            int count = poll(handler, max);
+            if (count > 0) {
+                return count;
+            }
+            waitStrategy.idle(round);
+        }
+    }
+
+    /**
+     * How many items from {@code head} on are published, up to {@code max}; -1 if {@code head} is stale.
+     */
+    private int readable(long head, int max) {
+        for (int k = 0; k < max; k++) {
+            long sequence = head + k;
+            long difference = (long) LONGS.getAcquire(sequences, (int) sequence & mask) - (sequence + 1);
+            if (difference != 0) {
+                return k == 0 && difference > 0 ? -1 : k;       // > 0: another consumer took it already; < 0: not published yet
+            }
+        }
+        return max;
+    }
+
+    private boolean claim(long head, int count) {
+        if (!multiConsumer) {
+            LONGS.setRelease(cursors, HEAD, head + count);
+            return true;
+        }
+        return LONGS.compareAndSet(cursors, HEAD, head, head + count);
+    }
+
+    private void checkBatch(int n) {
+        if (n < 1 || n > capacity()) {
+            throw new IllegalArgumentException("batch size must be between 1 and " + capacity() + ": " + n);
+        }
+    }
+}
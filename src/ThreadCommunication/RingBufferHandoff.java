@@ -0,0 +1,40 @@
+package ThreadCommunication;
+
+/**
+ * The handoff of {@link SharedResource} on a {@link RingBuffer}: the producer only waits when all slots are full, the consumer only when all are empty.
+ */
+class RingBufferHandoff implements Handoff {
+    private final RingBuffer<int[]> ring;
+    private final boolean verbose;
+
+    RingBufferHandoff(int capacity, RingBuffer.ClaimStrategy producers, RingBuffer.ClaimStrategy consumers, boolean verbose) {
+        this(capacity, producers, consumers, WaitStrategy.named("backoff"), verbose);
+    }
+
+    RingBufferHandoff(int capacity, RingBuffer.ClaimStrategy producers, RingBuffer.ClaimStrategy consumers, WaitStrategy waitStrategy,
+                      boolean verbose) {
+        this.ring = new RingBuffer<>(capacity, () -> new int[1], producers, consumers, waitStrategy);
+        this.verbose = verbose;
+    }
+
+    @Override
+    public void produce(int value) throws InterruptedException {
+        long sequence = ring.next();
+        ring.get(sequence)[0] = value;
+        if (verbose) {
+            System.out.println("Produced: " + value);       // before publishing, or the consumer may print first
+        }
+        ring.publish(sequence);
+    }
+
+    @Override
+    public int consume() throws InterruptedException {
+        long sequence = ring.acquire();
+        int value = ring.get(sequence)[0];
+        ring.release(sequence);
+        if (verbose) {
+            System.out.println("Consumed: " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,57 @@
+package ThreadCommunication;
+
+/**
+ * wait(), notify, and notifyAll()
+ * <ul>
+ *     <li> wait() -> Releases the lock and waits till some other thread calls notify() or notifyAll() method</li>
+ *     <li>notify() -> It is used to wake up a single thread that is waiting</li>
+ *     <li>notifyAll() -> It is used to wake up multiple threads that are there in the waiting stage</li>
+ * </ul>
+ */
+class SharedResource implements Handoff {
+    private final boolean verbose;
+    private int data;
+    private boolean hasData;
+
+    SharedResource() {
+        this(true);
+    }
+
+    SharedResource(boolean verbose) {
+        this.verbose = verbose;
+    }
+
+    @Override
+    public synchronized void produce(int value) {
+        while (hasData) {           // not if: a wake-up doesn't mean the slot is free, another producer may have been faster
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        data = value;
+        if (verbose) {
+            System.out.println("Produced: " + value);
+        }
+        hasData = true;
+        notify();
+    }
+
+    @Override
+    public synchronized int consume() {
+        while (!hasData) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        hasData = false;
+        if (verbose) {
+            System.out.println("Consumed: " + data);
+        }
+        notify();
+        return data;
+    }
+}
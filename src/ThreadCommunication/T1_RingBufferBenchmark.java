@@ -0,0 +1,171 @@
+package ThreadCommunication;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h3><b>Ring Buffer Benchmark</b></h3>
+ * <p>
+ * Moves {@code items} ints from producers to consumers through each handoff and prints items per second and bytes allocated per item
+ * (measured per thread by {@code com.sun.management.ThreadMXBean}). The consumers add up what they receive, and the sum is checked.
+ * </p>
+ *
+ * <ul>
+ *     <li><b>wait/notify:</b> {@link SharedResource}, one slot.</li>
+ *     <li><b>ArrayBlockingQueue:</b> a lock, two conditions, and an {@code Integer} per item above 127.</li>
+ *     <li><b>ring:</b> {@link RingBuffer} one item at a time, and in batches of {@value #BATCH}.</li>
+ * </ul>
+ * <p>
+ * Usage: {@code java ThreadCommunication.T1_RingBufferBenchmark [items]}. With fewer cores than threads, spinning consumers and
+ * producers take turns on a core, so the numbers mostly show the cost per item, not how it scales.
+ * </p>
+ */
+public class T1_RingBufferBenchmark {
+    private static final int CAPACITY = 1024;
+    private static final int BATCH = 64;
+
+    @FunctionalInterface
+    private interface Side {
+        /**
+         * Produces or consumes {@code count} items; consumers return the sum of what they got.
+         */
+        long run(long count) throws InterruptedException;
+    }
+
+    private record Scenario(String name, int producers, int consumers, Side producer, Side consumer) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long items = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", items: " + items);
+        System.out.printf("%-28s%16s%16s%n", "handoff", "items/s", "bytes/item");
+
+        for (int round = 0; round < 2; round++) {       // the first round warms up
+            boolean print = round == 1;
+            for (Scenario scenario : scenarios()) {
+                long n = scenario.name.startsWith("wait/notify") ? Math.min(items, 1_000_000) : items;
+                run(scenario, n, print);
+            }
+        }
+    }
+
+    private static List<Scenario> scenarios() {
+        List<Scenario> scenarios = new ArrayList<>();
+
+        SharedResource monitor = new SharedResource(false);
+        scenarios.add(new Scenario("wait/notify 1P1C", 1, 1, count -> {
+            for (long i = 0; i < count; i++) {
+                monitor.produce((int) i);
+            }
+            return 0;
+        }, count -> consumeAll(monitor, count)));
+
+        for (int threads : new int[]{1, 2}) {
+            BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(CAPACITY);
+            scenarios.add(new Scenario("ArrayBlockingQueue " + threads + "P" + threads + "C", threads, threads, count -> {
+                for (long i = 0; i < count; i++) {
+                    queue.put((int) i);
+                }
+                return 0;
+            }, count -> {
+                long sum = 0;
+                for (long i = 0; i < count; i++) {
+                    sum += queue.take();
+                }
+                return sum;
+            }));
+        }
+
+        RingBufferHandoff spsc = new RingBufferHandoff(CAPACITY, RingBuffer.ClaimStrategy.SINGLE, RingBuffer.ClaimStrategy.SINGLE, false);
+        scenarios.add(new Scenario("ring 1P1C", 1, 1, count -> produceAll(spsc, count), count -> consumeAll(spsc, count)));
+
+        RingBuffer<int[]> batched = new RingBuffer<>(CAPACITY, () -> new int[1], RingBuffer.ClaimStrategy.SINGLE, RingBuffer.ClaimStrategy.SINGLE);
+        scenarios.add(new Scenario("ring 1P1C batch " + BATCH, 1, 1, count -> {
+            for (long i = 0; i < count; ) {
+                int n = (int) Math.min(BATCH, count - i);
+                long first = batched.next(n);
+                for (int k = 0; k < n; k++) {
+                    batched.get(first + k)[0] = (int) (i + k);
+                }
+                batched.publish(first, n);
+                i += n;
+            }
+            return 0;
+        }, count -> {
+            Summer summer = new Summer();
+            for (long received = 0; received < count; ) {
+                received += batched.take(summer, (int) Math.min(BATCH, count - received));
+            }
+            return summer.sum;
+        }));
+
+        RingBufferHandoff mpmc = new RingBufferHandoff(CAPACITY, RingBuffer.ClaimStrategy.MULTI, RingBuffer.ClaimStrategy.MULTI, false);
+        scenarios.add(new Scenario("ring 2P2C", 2, 2, count -> produceAll(mpmc, count), count -> consumeAll(mpmc, count)));
+        return scenarios;
+    }
+
+    private static final class Summer implements RingBuffer.Handler<int[]> {
+        long sum;
+
+        @Override
+        public void onEvent(int[] entry, long sequence, boolean endOfBatch) {
+            sum += entry[0];
+        }
+    }
+
+    private static long produceAll(Handoff handoff, long count) throws InterruptedException {
+        for (long i = 0; i < count; i++) {
+            handoff.produce((int) i);
+        }
+        return 0;
+    }
+
+    private static long consumeAll(Handoff handoff, long count) throws InterruptedException {
+        long sum = 0;
+        for (long i = 0; i < count; i++) {
+            sum += handoff.consume();
+        }
+        return sum;
+    }
+
+    private static void run(Scenario scenario, long items, boolean print) throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long perProducer = items / scenario.producers;
+        long perConsumer = perProducer * scenario.producers / scenario.consumers;
+        AtomicLong sum = new AtomicLong();
+        AtomicLong allocated = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < scenario.producers + scenario.consumers; i++) {
+            boolean producer = i < scenario.producers;
+            workers.add(new Thread(() -> {
+                long before = threads.getCurrentThreadAllocatedBytes();
+                try {
+                    sum.addAndGet(producer ? scenario.producer.run(perProducer) : scenario.consumer.run(perConsumer));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                allocated.addAndGet(threads.getCurrentThreadAllocatedBytes() - before);
+            }));
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        long total = perProducer * scenario.producers;
+        long expected = scenario.producers * (perProducer * (perProducer - 1) / 2);
+        if (sum.get() != expected) {
+            throw new IllegalStateException(scenario.name + ": consumed sum " + sum.get() + ", expected " + expected);
+        }
+        if (print) {
+            System.out.printf("%-28s%16.0f%16.2f%n", scenario.name, total * 1e9 / elapsed, allocated.get() / (double) total);
+        }
+    }
+}
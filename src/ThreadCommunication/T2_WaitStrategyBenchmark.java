@@ -0,0 +1,111 @@
+package ThreadCommunication;
+
+import Metrics.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h3><b>Wait Strategy Benchmark</b></h3>
+ * <p>For every {@link WaitStrategy}:</p>
+ *
+ * <ul>
+ *     <li><b>Wake-up latency:</b> a writer sets a {@code volatile} counter every {@code intervalMicros}, like {@code VolatileExample}'s
+ *         flag, and the reader records how long after the write it noticed. The writer parks between writes, so the reader really
+ *         has to wait each time.</li>
+ *     <li><b>CPU burn:</b> CPU time of the reader divided by the wall time of the run: 100% is one full core for waiting.</li>
+ *     <li><b>Handoff throughput:</b> items per second through a {@link RingBufferHandoff} with that strategy, where waits are short.</li>
+ * </ul>
+ * <p>
+ * Usage: {@code java ThreadCommunication.T2_WaitStrategyBenchmark [wakeUps] [intervalMicros]}. On a single core a spinning reader
+ * competes with the writer for the core, which delays the writer and shows up as latency; with spare cores spinning is the fastest.
+ * </p>
+ */
+public class T2_WaitStrategyBenchmark {
+    private static final String[] STRATEGIES = {"spin", "yield", "backoff", "block"};
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static volatile long written;
+    private static volatile long writtenAt;
+
+    public static void main(String[] args) throws InterruptedException {
+        int wakeUps = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        long intervalMicros = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", wake-ups: " + wakeUps + " every " + intervalMicros + " us");
+        System.out.printf("%-10s%12s%12s%12s%12s%12s%16s%n", "strategy", "p50 us", "p90 us", "p99 us", "p99.9 us", "reader CPU", "handoff items/s");
+
+        for (int round = 0; round < 2; round++) {       // the first round warms up
+            for (String name : STRATEGIES) {
+                LatencyHistogram latency = new LatencyHistogram();
+                double cpu = wakeUps(WaitStrategy.named(name), wakeUps, intervalMicros, latency);
+                double throughput = handoff(WaitStrategy.named(name), 2_000_000);
+                if (round == 1) {
+                    LatencyHistogram.Snapshot snapshot = latency.snapshot();
+                    System.out.printf("%-10s%12.1f%12.1f%12.1f%12.1f%11.0f%%%16.0f%n", name,
+                            snapshot.percentile(50) / 1e3, snapshot.percentile(90) / 1e3, snapshot.percentile(99) / 1e3,
+                            snapshot.percentile(99.9) / 1e3, cpu * 100, throughput);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the CPU time of the reader as a fraction of the wall time.
+     */
+    private static double wakeUps(WaitStrategy waitStrategy, int wakeUps, long intervalMicros, LatencyHistogram latency)
+            throws InterruptedException {
+        written = 0;
+        long[] readerCpu = new long[1];
+        Thread reader = new Thread(() -> {
+            long cpuStart = THREADS.getCurrentThreadCpuTime();
+            try {
+                for (long expected = 1; expected <= wakeUps; expected++) {
+                    for (int round = 0; written < expected; round++) {
+                        waitStrategy.idle(round);
+                    }
+                    latency.record(System.nanoTime() - writtenAt);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            readerCpu[0] = THREADS.getCurrentThreadCpuTime() - cpuStart;
+        });
+        long start = System.nanoTime();
+        reader.start();
+        for (long i = 1; i <= wakeUps; i++) {
+            LockSupport.parkNanos(intervalMicros * 1000);
+            writtenAt = System.nanoTime();
+            written = i;
+            waitStrategy.signalAll();
+        }
+        reader.join();
+        return readerCpu[0] / (double) (System.nanoTime() - start);
+    }
+
+    private static double handoff(WaitStrategy waitStrategy, int items) throws InterruptedException {
+        RingBufferHandoff handoff = new RingBufferHandoff(1024, RingBuffer.ClaimStrategy.SINGLE, RingBuffer.ClaimStrategy.SINGLE,
+                waitStrategy, false);
+        long[] sum = new long[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int i = 0; i < items; i++) {
+                    sum[0] += handoff.consume();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long start = System.nanoTime();
+        consumer.start();
+        for (int i = 0; i < items; i++) {
+            handoff.produce(i);
+        }
+        consumer.join();
+        long elapsed = System.nanoTime() - start;
+        if (sum[0] != (long) items * (items - 1) / 2) {
+            throw new IllegalStateException("lost items: sum " + sum[0]);
+        }
+        return items * 1e9 / elapsed;
+    }
+}
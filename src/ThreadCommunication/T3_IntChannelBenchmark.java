@@ -0,0 +1,157 @@
+package ThreadCommunication;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h3><b>Int Channel Benchmark</b></h3>
+ * <p>
+ * Moves {@code items} ints from producers to consumers through an {@code ArrayBlockingQueue<Integer>} and through an {@link IntChannel},
+ * one at a time and in batches of {@value #BATCH}, with 1 and 2 threads on each side. Prints items per second, bytes allocated per
+ * item by the producer and consumer threads, and the garbage collections that happened during the run.
+ * The consumers add up what they get and the sum is checked.
+ * </p>
+ * <p>Usage: {@code java ThreadCommunication.T3_IntChannelBenchmark [items]}.</p>
+ */
+public class T3_IntChannelBenchmark {
+    private static final int CAPACITY = 1024;
+    private static final int BATCH = 256;
+
+    @FunctionalInterface
+    private interface Side {
+        long run(long count) throws InterruptedException;
+    }
+
+    private record Scenario(String name, int threads, Side producer, Side consumer) {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long items = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000;
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", items: " + items);
+        System.out.printf("%-34s%14s%14s%10s%10s%n", "queue", "items/s", "bytes/item", "GCs", "GC ms");
+        for (int round = 0; round < 2; round++) {       // the first round warms up
+            for (int threads : new int[]{1, 2}) {
+                for (Scenario scenario : scenarios(threads)) {
+                    run(scenario, items, round == 1);
+                }
+            }
+        }
+    }
+
+    private static List<Scenario> scenarios(int threads) {
+        String sides = " " + threads + "P" + threads + "C";
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(CAPACITY);
+        IntChannel single = new IntChannel(CAPACITY);
+        IntChannel batched = new IntChannel(CAPACITY);
+        return List.of(
+                new Scenario("ArrayBlockingQueue<Integer>" + sides, threads, count -> {
+                    for (long i = 0; i < count; i++) {
+                        queue.put((int) i);
+                    }
+                    return 0;
+                }, count -> {
+                    long sum = 0;
+                    for (long i = 0; i < count; i++) {
+                        sum += queue.take();
+                    }
+                    return sum;
+                }),
+                new Scenario("IntChannel" + sides, threads, count -> {
+                    for (long i = 0; i < count; i++) {
+                        single.put((int) i);
+                    }
+                    return 0;
+                }, count -> {
+                    long sum = 0;
+                    for (long i = 0; i < count; i++) {
+                        sum += single.take();
+                    }
+                    return sum;
+                }),
+                new Scenario("IntChannel batch " + BATCH + sides, threads, count -> {
+                    int[] batch = new int[BATCH];
+                    for (long i = 0; i < count; ) {
+                        int n = (int) Math.min(BATCH, count - i);
+                        for (int k = 0; k < n; k++) {
+                            batch[k] = (int) (i + k);
+                        }
+                        batched.put(batch, 0, n);
+                        i += n;
+                    }
+                    return 0;
+                }, count -> {
+                    int[] batch = new int[BATCH];
+                    long sum = 0;
+                    for (long received = 0; received < count; ) {
+                        int n = batched.take(batch, 0, (int) Math.min(BATCH, count - received));
+                        for (int k = 0; k < n; k++) {
+                            sum += batch[k];
+                        }
+                        received += n;
+                    }
+                    return sum;
+                }));
+    }
+
+    private static void run(Scenario scenario, long items, boolean print) throws InterruptedException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long perThread = items / scenario.threads;
+        AtomicLong sum = new AtomicLong();
+        AtomicLong allocated = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 2 * scenario.threads; i++) {
+            boolean producer = i < scenario.threads;
+            workers.add(new Thread(() -> {
+                long before = threads.getCurrentThreadAllocatedBytes();
+                try {
+                    sum.addAndGet(producer ? scenario.producer.run(perThread) : scenario.consumer.run(perThread));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                allocated.addAndGet(threads.getCurrentThreadAllocatedBytes() - before);
+            }));
+        }
+        long gcCount = -gcCount();
+        long gcMillis = -gcMillis();
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        gcCount += gcCount();
+        gcMillis += gcMillis();
+        long total = perThread * scenario.threads;
+        long expected = scenario.threads * (perThread * (perThread - 1) / 2);
+        if (sum.get() != expected) {
+            throw new IllegalStateException(scenario.name + ": consumed sum " + sum.get() + ", expected " + expected);
+        }
+        if (print) {
+            System.out.printf("%-34s%14.0f%14.2f%10d%10d%n", scenario.name, total * 1e9 / elapsed, allocated.get() / (double) total,
+                    gcCount, gcMillis);
+        }
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += gc.getCollectionCount();
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += gc.getCollectionTime();
+        }
+        return millis;
+    }
+}
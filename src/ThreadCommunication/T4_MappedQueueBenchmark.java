@@ -0,0 +1,188 @@
+package ThreadCommunication;
+
+import Metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * <h3><b>Mapped Queue Benchmark</b></h3>
+ * <ol>
+ *     <li><b>Append latency:</b> one thread appends {@code records} 16-byte records and times each append; also reports the bytes
+ *         allocated per append.</li>
+ *     <li><b>Same JVM:</b> a producer thread and a consumer thread, throughput and checksum.</li>
+ *     <li><b>Two JVMs:</b> a consumer in a child JVM, started on the same directory, reads what this JVM produces.</li>
+ *     <li><b>Restart:</b> a child consumer reads half of the records and exits; a second child with the same consumer name continues
+ *         where the first one stopped. Segments all consumers have passed are deleted on the way.</li>
+ * </ol>
+ * <p>
+ * Usage: {@code java ThreadCommunication.T4_MappedQueueBenchmark [records] [directory]}. The directory defaults to a temporary one,
+ * deleted at the end. Each record holds {@code i} and {@code i * 31}, and consumers check both.
+ * </p>
+ */
+public class T4_MappedQueueBenchmark {
+    private static final int SEGMENT_SIZE = 64 << 20;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("consume")) {
+            consumeInChild(Path.of(args[1]), args[2], Long.parseLong(args[3]));
+            return;
+        }
+        long records = args.length > 0 ? Long.parseLong(args[0]) : 5_000_000;
+        boolean temporary = args.length <= 1;
+        Path root = temporary ? Files.createTempDirectory("mapped-queue") : Path.of(args[1]);
+        try {
+            appendLatency(root.resolve("latency"), records);
+            sameJvm(root.resolve("threads"), records);
+            twoJvms(root.resolve("processes"), records);
+            restart(root.resolve("restart"), records);
+        } finally {
+            if (temporary) {
+                delete(root);
+            }
+        }
+    }
+
+    private static void appendLatency(Path directory, long records) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MappedQueue queue = new MappedQueue(directory, SEGMENT_SIZE);
+        MappedQueue.Appender appender = queue.appender();
+        LatencyHistogram latency = new LatencyHistogram();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (long i = 0; i < records; i++) {
+            long before = System.nanoTime();
+            append(appender, i);
+            latency.record(System.nanoTime() - before);
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        System.out.printf("append latency (%,d records, %.0f ns each incl. timing): %s%n", records, elapsed / (double) records,
+                latency.snapshot().format(TimeUnit.NANOSECONDS));
+        System.out.printf("allocated: %.3f bytes per append%n", allocated / (double) records);
+    }
+
+    private static void sameJvm(Path directory, long records) throws Exception {
+        MappedQueue queue = new MappedQueue(directory, SEGMENT_SIZE);
+        MappedQueue.Tailer tailer = queue.tailer("reader");
+        long[] checked = new long[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                checked[0] = consume(tailer, records);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        long start = System.nanoTime();
+        consumer.start();
+        MappedQueue.Appender appender = queue.appender();
+        for (long i = 0; i < records; i++) {
+            append(appender, i);
+        }
+        consumer.join();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("same JVM: %,d records in %.2f s, %.1f M records/s, %d checked%n", records, elapsed / 1e9,
+                records / (elapsed / 1e3), checked[0]);
+    }
+
+    private static void twoJvms(Path directory, long records) throws Exception {
+        MappedQueue queue = new MappedQueue(directory, SEGMENT_SIZE);
+        queue.tailer("child");          // registered before producing, so it starts at the beginning
+        Process child = startChild(directory, "child", records);
+        long start = System.nanoTime();
+        MappedQueue.Appender appender = queue.appender();
+        for (long i = 0; i < records; i++) {
+            append(appender, i);
+        }
+        String result = new String(child.getInputStream().readAllBytes()).trim();
+        child.waitFor();
+        System.out.printf("two JVMs: produced %,d records in %.2f s (incl. child start), child: %s%n", records,
+                (System.nanoTime() - start) / 1e9, result);
+    }
+
+    private static void restart(Path directory, long records) throws Exception {
+        MappedQueue queue = new MappedQueue(directory, 1 << 20);        // small segments, so there is something to reclaim
+        queue.tailer("restarting");
+        MappedQueue.Appender appender = queue.appender();
+        for (long i = 0; i < records; i++) {
+            append(appender, i);
+        }
+        long segments = countSegments(directory);
+        for (int run = 1; run <= 2; run++) {
+            Process child = startChild(directory, "restarting", records / 2);
+            String result = new String(child.getInputStream().readAllBytes()).trim();
+            child.waitFor();
+            System.out.printf("restart: consumer run %d: %s, segments on disk %d of %d%n", run, result, countSegments(directory), segments);
+        }
+    }
+
+    private static void append(MappedQueue.Appender appender, long i) {
+        int offset = appender.claim(16);
+        ByteBuffer buffer = appender.buffer();
+        buffer.putLong(offset, i);
+        buffer.putLong(offset + 8, i * 31);
+        appender.commit();
+    }
+
+    /**
+     * Reads {@code count} records, checks that they continue the sequence, and returns how many were checked.
+     */
+    private static long consume(MappedQueue.Tailer tailer, long count) throws IOException, InterruptedException {
+        WaitStrategy waitStrategy = WaitStrategy.named("backoff");
+        long expected = -1;
+        for (long n = 0; n < count; n++) {
+            for (int round = 0; tailer.next() < 0; round++) {
+                waitStrategy.idle(round);
+            }
+            ByteBuffer buffer = tailer.buffer();
+            long value = buffer.getLong(tailer.offset());
+            if ((expected >= 0 && value != expected) || buffer.getLong(tailer.offset() + 8) != value * 31) {
+                throw new IllegalStateException("expected record " + expected + ", got " + value);
+            }
+            expected = value + 1;
+        }
+        tailer.next();      // saves the position after the last record read; the record it returns is read again next time
+        return count;
+    }
+
+    private static void consumeInChild(Path directory, String name, long count) throws Exception {
+        MappedQueue queue = new MappedQueue(directory, Files.exists(directory.resolve("queue.meta")) ? segmentSizeOf(directory) : SEGMENT_SIZE);
+        MappedQueue.Tailer tailer = queue.tailer(name);
+        long start = System.nanoTime();
+        consume(tailer, count);
+        System.out.printf("pid %d read %,d records in %.2f s", ProcessHandle.current().pid(), count, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static int segmentSizeOf(Path directory) throws IOException {
+        ByteBuffer meta = ByteBuffer.wrap(Files.readAllBytes(directory.resolve("queue.meta"))).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        return meta.getInt(8);
+    }
+
+    private static Process startChild(Path directory, String name, long count) throws IOException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), T4_MappedQueueBenchmark.class.getName(),
+                "consume", directory.toString(), name, Long.toString(count))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static long countSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".q")).count();
+        }
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ThreadCommunication;
+
+import Metrics.LatencyHistogram;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h3><b>Flow Benchmark</b></h3>
+ * <p>
+ * Moves {@code items} ints from one producer to its consumers, through {@link SharedResource} (one slot, {@code wait()}/{@code notify()})
+ * and through a {@link DemandPublisher} with one slot, with a {@value #CAPACITY}-item buffer, and fanned out to {@value #FAN_OUT}
+ * subscribers. {@code SubmissionPublisher} with the same buffer is there for reference. Subscribers request half a buffer at a time.
+ * </p>
+ * <p>
+ * Prints items per second (per subscriber; everything is delivered to every one of them) and the latency from just before
+ * {@code produce}/{@code submit} to the consumer getting the item. The producer runs flat out, so the latency includes the time
+ * spent waiting in the buffer. Every consumer adds up what it gets and the sums are checked. On a single core the publisher's
+ * advantage is batching alone: no handoff between threads is ever free.
+ * </p>
+ * <p>Usage: {@code java ThreadCommunication.T5_FlowBenchmark [items]}.</p>
+ */
+public class T5_FlowBenchmark {
+    private static final int CAPACITY = 1024;
+    private static final int FAN_OUT = 4;
+
+    public static void main(String[] args) throws InterruptedException {
+        int items = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", items: " + items);
+        System.out.printf("%-36s%14s%10s%10s%10s%12s%n", "handoff", "items/s", "p50 us", "p99 us", "p99.9 us", "max us");
+        for (int round = 0; round < 2; round++) {       // the first round warms up
+            boolean print = round == 1;
+            monitor(items, print);
+            demand("DemandPublisher, 1 slot", 1, 1, 1, items, print);
+            demand("DemandPublisher, " + CAPACITY + " slots", 1, CAPACITY, CAPACITY / 4, items, print);
+            demand("DemandPublisher, " + CAPACITY + " slots, " + FAN_OUT + " subs", FAN_OUT, CAPACITY, CAPACITY / 4, items, print);
+            submission(items, print);
+        }
+    }
+
+    private static void monitor(int items, boolean print) throws InterruptedException {
+        SharedResource resource = new SharedResource(false);
+        long[] stamps = new long[items];
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong sum = new AtomicLong();
+        Thread consumer = new Thread(() -> {
+            long total = 0;
+            for (int i = 0; i < items; i++) {
+                int value = resource.consume();
+                latency.record(System.nanoTime() - stamps[value]);
+                total += value;
+            }
+            sum.set(total);
+        });
+        long start = System.nanoTime();
+        consumer.start();
+        for (int i = 0; i < items; i++) {
+            stamps[i] = System.nanoTime();
+            resource.produce(i);
+        }
+        consumer.join();
+        report("wait/notify", items, System.nanoTime() - start, latency, sum.get(), 1, print);
+    }
+
+    private static void demand(String name, int subscribers, int capacity, int batchSize, int items, boolean print)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(subscribers);
+        DemandPublisher<Integer> publisher = new DemandPublisher<>(executor, capacity, batchSize);
+        run(name, publisher, publisher::submit, publisher::close, subscribers, capacity, items, print);
+        executor.shutdown();
+    }
+
+    private static void submission(int items, boolean print) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>(executor, CAPACITY);
+        run("SubmissionPublisher, " + CAPACITY + " slots", publisher, publisher::submit, publisher::close, 1, CAPACITY, items, print);
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface Submit {
+        void submit(Integer item) throws InterruptedException;
+    }
+
+    private static void run(String name, Flow.Publisher<Integer> publisher, Submit submit, Runnable close, int subscribers, int capacity,
+                            int items, boolean print) throws InterruptedException {
+        long[] stamps = new long[items];
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong sum = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(subscribers);
+        for (int s = 0; s < subscribers; s++) {
+            publisher.subscribe(new Flow.Subscriber<>() {
+                private final int batch = Math.max(1, capacity / 2);
+                private Flow.Subscription subscription;
+                private int sinceRequest;
+                private long total;
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    this.subscription = subscription;
+                    subscription.request(capacity);
+                }
+
+                @Override
+                public void onNext(Integer item) {
+                    latency.record(System.nanoTime() - stamps[item]);
+                    total += item;
+                    if (++sinceRequest == batch) {
+                        sinceRequest = 0;
+                        subscription.request(batch);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    throwable.printStackTrace();
+                    done.countDown();
+                }
+
+                @Override
+                public void onComplete() {
+                    sum.addAndGet(total);
+                    done.countDown();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < items; i++) {
+            stamps[i] = System.nanoTime();
+            submit.submit(i);
+        }
+        close.run();
+        if (!done.await(5, TimeUnit.MINUTES)) {
+            throw new IllegalStateException(name + ": subscribers didn't complete");
+        }
+        report(name, items, System.nanoTime() - start, latency, sum.get(), subscribers, print);
+    }
+
+    private static void report(String name, int items, long nanos, LatencyHistogram latency, long sum, int consumers, boolean print) {
+        long expected = (long) items * (items - 1) / 2 * consumers;
+        if (sum != expected) {
+            throw new IllegalStateException(name + ": sum " + sum + ", expected " + expected);
+        }
+        if (print) {
+            LatencyHistogram.Snapshot snapshot = latency.snapshot();
+            System.out.printf("%-36s%,14.0f%10.1f%10.1f%10.1f%,12.0f%n", name, items / (nanos / 1e9),
+                    snapshot.percentile(50) / 1e3, snapshot.percentile(99) / 1e3, snapshot.percentile(99.9) / 1e3, snapshot.max() / 1e3);
+        }
+    }
+}
@@ -1,79 +1,65 @@
 package ThreadCommunication;
 
-/**
- * wait(), notify, and notifyAll()
- * <ul>
- *     <li> wait() -> Releases the lock and waits till some other thread calls notify() or notifyAll() method</li>
- *     <li>notify() -> It is used to wake up a single thread that is waiting</li>
- *     <li>notifyAll() -> It is used to wake up multiple threads that are there in the waiting stage</li>
- * </ul>
- */
-class SharedResource {
-    private int data;
-    private boolean hasData;
-
-    public synchronized void produce(int value) {
-        if (hasData) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        data = value;
-        System.out.println("Produced: " + value);
-        hasData = true;
-        notify();
-    }
-
-    public synchronized void consume() {
-        while (!hasData) {
-            try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
-        }
-        hasData = false;
-        System.out.println("Consumed: " + data);
-        notify();
-    }
-}
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 class Producer implements Runnable {
-    private final SharedResource resource;
+    private final Handoff resource;
 
-    Producer(SharedResource sharedResource) {
+    Producer(Handoff sharedResource) {
         this.resource = sharedResource;
     }
 
     @Override
     public void run() {
-        for (int i = 0; i < 10; i++) {
-            resource.produce(i);
+        try {
+            for (int i = 0; i < 10; i++) {
+                resource.produce(i);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
 
 class Consumer implements Runnable {
-    private final SharedResource resource;
+    private final Handoff resource;
 
-    Consumer(SharedResource sharedResource) {
+    Consumer(Handoff sharedResource) {
         this.resource = sharedResource;
     }
 
     @Override
     public void run() {
-        for (int i = 0; i < 10; i++) {
-            resource.consume();
+        try {
+            for (int i = 0; i < 10; i++) {
+                resource.consume();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
 
 public class ThreadCommunication {
 
+    /**
+     * Usage: {@code java ThreadCommunication.ThreadCommunication [monitor|ring|flow] [spin|yield|backoff|block]}, {@code monitor}
+     * (wait/notify) by default. The wait strategy applies to the ring and to the flow producer.
+     */
     public static void main(String[] args) {
-        SharedResource sharedResource = new SharedResource();
+        if (args.length > 0 && args[0].equals("flow")) {
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            DemandPublisher<Integer> publisher = new DemandPublisher<>(executor, 4, 2,
+                    WaitStrategy.named(args.length > 1 ? args[1] : "block"));
+            publisher.subscribe(new RequestingConsumer(4, executor::shutdown));
+            new Thread(new PublishingProducer(publisher)).start();
+            return;
+        }
+        WaitStrategy waitStrategy = WaitStrategy.named(args.length > 1 ? args[1] : "backoff");
+        Handoff sharedResource = args.length > 0 && args[0].equals("ring")
+                ? new RingBufferHandoff(16, RingBuffer.ClaimStrategy.SINGLE, RingBuffer.ClaimStrategy.SINGLE, waitStrategy, true)
+                : new SharedResource();
         Thread producerThread = new Thread(new Producer(sharedResource));
         Thread consumerThread = new Thread(new Consumer(sharedResource));
         producerThread.start();
@@ -0,0 +1,159 @@
+package ThreadCommunication;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <h3><b>Wait Strategy</b></h3>
+ * <p>
+ * A thread waiting for another one has to choose between reacting fast and leaving the core to others. {@code VolatileExample}'s
+ * reader spins in an empty loop: it sees the flag within nanoseconds, but burns a whole core the entire time. {@link SharedResource}
+ * calls {@code wait()}: it uses no CPU at all, but each wake-up goes through the OS scheduler, which takes microseconds.
+ * Which is right depends on where the code runs (dedicated cores or a shared box), so here it is a parameter.
+ * </p>
+ * <p>
+ * The waiting thread checks its condition in a loop and calls {@code idle(round)} each time it is still false, with
+ * {@code round} counting from 0. The thread that changes the condition calls {@code signalAll()} afterwards.
+ * </p>
+ *
+ * <pre>{@code
+ * for (int round = 0; !flag; round++) {
+ *     waitStrategy.idle(round);
+ * }
+ * }</pre>
+ *
+ * <ul>
+ *     <li><b>{@link #busySpin()}:</b> {@code Thread.onSpinWait()} only. Lowest latency, one full core per waiting thread.</li>
+ *     <li><b>{@link #spinThenYield(int)}:</b> spins a while, then {@code Thread.yield()}s, so other threads on the core get to run.</li>
+ *     <li><b>{@link #backoff(int, int, long)}:</b> spin, yield, then park for exponentially longer times up to a maximum. Close to
+ *         no CPU when idle for long, but a wake-up may be late by up to the maximum park time.</li>
+ *     <li><b>{@link #blocking()}:</b> a lock and a condition, like {@code wait()}/{@code notifyAll()}; the only one that needs
+ *         {@code signalAll()}. Signalling costs an atomic increment, plus the lock only while somebody is actually waiting.</li>
+ * </ul>
+ * <p>All of them throw {@code InterruptedException} from {@code idle} if the waiting thread is interrupted.</p>
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called while the awaited condition is false; {@code round} is 0 on the first call of a wait and grows by one per call.
+     */
+    void idle(int round) throws InterruptedException;
+
+    /**
+     * Called after a change that waiting threads may be waiting for.
+     */
+    default void signalAll() {
+    }
+
+    static WaitStrategy busySpin() {
+        return round -> {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread.onSpinWait();
+        };
+    }
+
+    static WaitStrategy spinThenYield(int spins) {
+        return round -> {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (round < spins) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        };
+    }
+
+    static WaitStrategy backoff(int spins, int yields, long maxParkNanos) {
+        return round -> {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (round < spins) {
+                Thread.onSpinWait();
+            } else if (round < spins + yields) {
+                Thread.yield();
+            } else {
+                int parks = Math.min(round - spins - yields, 20);
+                LockSupport.parkNanos(Math.min(maxParkNanos, 1_000L << parks));     // 1 us, 2 us, 4 us ...
+            }
+        };
+    }
+
+    static WaitStrategy blocking() {
+        return new Blocking();
+    }
+
+    /**
+     * By name, as used on command lines: {@code spin}, {@code yield}, {@code backoff} or {@code block}.
+     */
+    static WaitStrategy named(String name) {
+        return switch (name) {
+            case "spin" -> busySpin();
+            case "yield" -> spinThenYield(100);
+            case "backoff" -> backoff(100, 100, TimeUnit.MICROSECONDS.toNanos(50));
+            case "block" -> blocking();
+            default -> throw new IllegalArgumentException("unknown wait strategy: " + name);
+        };
+    }
+
+    /**
+     * Waits on a condition until the signal count has changed since the waiter's previous call. The count is read in round 0,
+     * before the caller checks its condition again, so a signal that comes after that check is never missed.
+     */
+    final class Blocking implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final AtomicLong signals = new AtomicLong();
+        private final ThreadLocal<long[]> seen = ThreadLocal.withInitial(() -> new long[1]);
+        private volatile int waiters;
+
+        private Blocking() {
+        }
+
+        @Override
+        public void idle(int round) throws InterruptedException {
+            long[] last = seen.get();
+            if (round == 0) {
+                last[0] = signals.get();        // the caller checks its condition once more before the next call
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                return;
+            }
+            lock.lockInterruptibly();
+            try {
+                waiters++;
+                try {
+                    while (signals.get() == last[0]) {
+                        changed.await();
+                    }
+                } finally {
+                    waiters--;
+                }
+                last[0] = signals.get();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            signals.incrementAndGet();      // a full fence: the change is visible before waiters is read
+            if (waiters > 0) {
+                lock.lock();
+                try {
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
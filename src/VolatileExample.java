@@ -1,3 +1,5 @@
+import ThreadCommunication.WaitStrategy;
+
 /**
  * <h3><b>Volatile Keyword</b></h3>
  * <p> Whenever a thread runs, it keeps a copy of the variables that it encounters and stores it in the Thread's local cache and everytime required,
@@ -6,10 +8,13 @@
  * <p> The Volatile keyword is used to indicate that a variable's value will be modified by different threads.
  * It ensures that changes to a variable are always visible to other threads by preventing the caching of the variable and making sure that any change to the variable is
  * immediately propagated to the main memory, preventing thread caching issues.</p>
+ * <p> How the reader waits for the flag is a {@code ThreadCommunication.WaitStrategy}: the empty loop ({@code spin}, the default) sees the
+ * flag first but keeps a core busy for the whole second; {@code yield}, {@code backoff} and {@code block} give the core away.
+ * Usage: {@code java VolatileExample [spin|yield|backoff|block]}.</p>
  */
 public class VolatileExample {
     public static void main(String[] args) {
-        SharedResource sharedResource = new SharedResource();
+        SharedResource sharedResource = new SharedResource(WaitStrategy.named(args.length > 0 ? args[0] : "spin"));
          Thread writer = new Thread(()->{
              try {
                  Thread.sleep(1000);
@@ -29,17 +34,28 @@ public class VolatileExample {
 
 class SharedResource{
     private volatile boolean flag=false;
+    private final WaitStrategy waitStrategy;
+
+    SharedResource(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
 
     public void printIfFlagIsTrue(){
-        while(!flag){
-            //do nothing
+        try {
+            for (int round = 0; !flag; round++) {
+                waitStrategy.idle(round);
 //            System.out.println("Flag is false");          // due to this sometimes it might give correct o/p, because sout requried lock on print.out and it may make the thread to fetch value again from main memory instead of cache, but we can't be sure about that
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
         }
         System.out.println("Flag is true");
     }
 
     public void setFlagTrue(){
         flag=true;
+        waitStrategy.signalAll();
         System.out.println("Flag set true by writer.");
     }
 }
\ No newline at end of file